@@ -0,0 +1,246 @@
+package com.nexuscale;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.nexuscale.codec.SensorSchemaRegistry;
+import com.nexuscale.database.DeviceCatalog;
+import com.nexuscale.hbase.HBaseManager;
+import com.nexuscale.kafka.KafkaProducerManager;
+import com.nexuscale.pipeline.OverflowPolicy;
+import com.nexuscale.pipeline.SensorPipeline;
+import com.nexuscale.scheduler.HashedTimingWheel;
+import com.nexuscale.service.SensorDataGeneratorService;
+import com.nexuscale.sink.FileSensorSink;
+import com.nexuscale.sink.HBaseSensorSink;
+import com.nexuscale.sink.KafkaSensorSink;
+import com.nexuscale.sink.NoOpSensorSink;
+import com.nexuscale.sink.SensorDataSink;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 无MySQL/Redis的设备群模拟器，用于容量测试
+ * 在内存中合成设备和模板，通过 SensorDataGeneratorService 的正式生成路径写入可插拔的sink，
+ * 定期输出持续吞吐、刻度延迟和堆内存使用。
+ *
+ * 用法: FleetSimulator [key=value ...]
+ *   devices=100000                               设备总数
+ *   mix=temperature:3,humidity:2,wind_speed:1    设备类型及权重
+ *   interval.&lt;type&gt;=1000                        某类型的采样间隔（毫秒），写入模板 interval_ms
+ *   sinks=noop                                   noop | file | kafka | hbase，可用逗号组合
+ *   file=sim-readings.jsonl                      file sink 的输出路径
+ *   pipeline=false                               true时各sink作为独立阶段从环形缓冲区消费
+ *   pipeline.capacity=65536 pipeline.policy=block 缓冲区槽位数与满时策略（block | drop）
+ *   duration=60  report=10                       运行和报告间隔（秒）
+ */
+public class FleetSimulator {
+    private static final Logger logger = LoggerFactory.getLogger(FleetSimulator.class);
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    
+    // 内置模板，格式与 device_template.template 相同
+    private static final Map<String, String> BUILTIN_TEMPLATES = new HashMap<>();
+    
+    static {
+        BUILTIN_TEMPLATES.put("temperature", "{\"temperature\":{\"range\":\"-10~40\"}}");
+        BUILTIN_TEMPLATES.put("humidity", "{\"humidity\":{\"range\":\"20~95\"}}");
+        BUILTIN_TEMPLATES.put("air_component", "{\"air_component\":{},\"co2\":{\"range\":\"300~2000\"},"
+                + "\"o2\":{\"range\":\"19~21\"},\"pm25\":{\"range\":\"0~300\"}}");
+        BUILTIN_TEMPLATES.put("soil_npk", "{\"soil_npk\":{},\"nitrogen\":{\"range\":\"0~200\"},"
+                + "\"phosphorus\":{\"range\":\"0~100\"},\"potassium\":{\"range\":\"0~300\"}}");
+        BUILTIN_TEMPLATES.put("soil_ph", "{\"soil_ph\":{\"range\":\"4~9\"}}");
+        BUILTIN_TEMPLATES.put("soil_trace_elements", "{\"soil_trace_elements\":{},\"iron\":{\"range\":\"0~50\"},"
+                + "\"zinc\":{\"range\":\"0~10\"},\"copper\":{\"range\":\"0~5\"},\"manganese\":{\"range\":\"0~20\"}}");
+        BUILTIN_TEMPLATES.put("wind_speed", "{\"wind_speed\":{\"range\":\"0~40\"}}");
+        BUILTIN_TEMPLATES.put("wind_direction", "{\"wind_direction\":{\"range\":\"0~360\"}}");
+        BUILTIN_TEMPLATES.put("light_intensity", "{\"light_intensity\":{\"range\":\"0~100000\"}}");
+    }
+    
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        int deviceCount = Integer.parseInt(options.getOrDefault("devices", "100000"));
+        int durationSeconds = Integer.parseInt(options.getOrDefault("duration", "60"));
+        int reportSeconds = Integer.parseInt(options.getOrDefault("report", "10"));
+        Map<String, Integer> mix = parseMix(options.getOrDefault("mix",
+                "temperature:3,humidity:2,wind_speed:1,air_component:1,soil_npk:1"));
+        
+        logger.info("=== NexusScale Fleet Simulator ===");
+        logger.info("Devices: {}, mix: {}, duration: {}s", deviceCount, mix, durationSeconds);
+        
+        DeviceCatalog catalog = buildCatalog(deviceCount, mix, options);
+        List<AutoCloseable> resources = new ArrayList<>();
+        List<SensorDataSink> sinks = createSinks(options, catalog, resources);
+        SensorDataGeneratorService generator = new SensorDataGeneratorService(catalog, sinks);
+        
+        long start = System.currentTimeMillis();
+        generator.initializeActiveDevices();
+        logger.info("Scheduled {} devices in {} ms", generator.getActiveDeviceCount(), System.currentTimeMillis() - start);
+        
+        try {
+            runAndReport(generator, durationSeconds, reportSeconds);
+        } finally {
+            generator.shutdown();
+            for (AutoCloseable resource : resources) {
+                resource.close();
+            }
+        }
+    }
+    
+    private static void runAndReport(SensorDataGeneratorService generator, int durationSeconds, int reportSeconds)
+            throws InterruptedException {
+        HashedTimingWheel<?> wheel = generator.getGenerationWheel();
+        long runStart = System.nanoTime();
+        long lastTime = runStart;
+        long lastRecords = generator.getGeneratedRecords();
+        long lastLatenessTotal = wheel.getLatenessTotalMillis();
+        long lastLatenessSamples = wheel.getLatenessSamples();
+        long peakHeap = 0;
+        
+        long deadline = runStart + durationSeconds * 1_000_000_000L;
+        while (System.nanoTime() < deadline) {
+            Thread.sleep(reportSeconds * 1000L);
+            
+            long now = System.nanoTime();
+            long records = generator.getGeneratedRecords();
+            long latenessTotal = wheel.getLatenessTotalMillis();
+            long latenessSamples = wheel.getLatenessSamples();
+            long samples = latenessSamples - lastLatenessSamples;
+            Runtime runtime = Runtime.getRuntime();
+            long usedHeap = runtime.totalMemory() - runtime.freeMemory();
+            peakHeap = Math.max(peakHeap, usedHeap);
+            
+            logger.info("Throughput: {} readings/s | tick lateness avg {} ms, max {} ms | skipped {} | heap {} / {} MB",
+                       String.format("%.0f", (records - lastRecords) * 1e9 / (now - lastTime)),
+                       samples > 0 ? String.format("%.1f", (double) (latenessTotal - lastLatenessTotal) / samples) : "-",
+                       wheel.resetMaxLatenessMillis(), wheel.getSkippedCount(),
+                       usedHeap / (1024 * 1024), runtime.maxMemory() / (1024 * 1024));
+            
+            String pipelineStatus = generator.formatPipelineStatus();
+            if (pipelineStatus != null) {
+                logger.info("Pipeline: {}", pipelineStatus);
+            }
+            
+            lastTime = now;
+            lastRecords = records;
+            lastLatenessTotal = latenessTotal;
+            lastLatenessSamples = latenessSamples;
+        }
+        
+        long elapsed = System.nanoTime() - runStart;
+        logger.info("=== Summary: {} readings in {} s, {} readings/s sustained, peak heap {} MB ===",
+                   generator.getGeneratedRecords(), elapsed / 1_000_000_000L,
+                   String.format("%.0f", generator.getGeneratedRecords() * 1e9 / elapsed), peakHeap / (1024 * 1024));
+        logger.info("Generation {}", generator.formatEmissionHistogram());
+    }
+    
+    /**
+     * 按权重把设备分配到各类型，设备ID从1开始连续编号
+     */
+    private static DeviceCatalog buildCatalog(int deviceCount, Map<String, Integer> mix, Map<String, String> options) {
+        List<DeviceCatalog.TemplateEntry> templates = new ArrayList<>();
+        List<DeviceCatalog.DeviceEntry> devices = new ArrayList<>(deviceCount);
+        
+        int totalWeight = 0;
+        for (int weight : mix.values()) {
+            totalWeight += weight;
+        }
+        
+        int dtId = 0;
+        int nextDeviceId = 1;
+        int assigned = 0;
+        int cumulativeWeight = 0;
+        for (Map.Entry<String, Integer> type : mix.entrySet()) {
+            dtId++;
+            templates.add(new DeviceCatalog.TemplateEntry(dtId, type.getKey(),
+                    buildTemplate(type.getKey(), options.get("interval." + type.getKey()))));
+            
+            cumulativeWeight += type.getValue();
+            int target = (int) ((long) deviceCount * cumulativeWeight / totalWeight);
+            for (; assigned < target; assigned++) {
+                String deviceId = String.valueOf(nextDeviceId++);
+                devices.add(new DeviceCatalog.DeviceEntry(deviceId, type.getKey() + "-" + deviceId, 1, dtId));
+            }
+        }
+        
+        return DeviceCatalog.inMemory(templates, devices);
+    }
+    
+    private static String buildTemplate(String type, String intervalMillis) {
+        String template = BUILTIN_TEMPLATES.getOrDefault(type, "{\"" + type + "\":{\"range\":\"0~100\"}}");
+        if (intervalMillis == null) {
+            return template;
+        }
+        try {
+            ObjectNode node = (ObjectNode) objectMapper.readTree(template);
+            node.put("interval_ms", Long.parseLong(intervalMillis));
+            return objectMapper.writeValueAsString(node);
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Invalid interval for " + type + ": " + intervalMillis, e);
+        }
+    }
+    
+    private static List<SensorDataSink> createSinks(Map<String, String> options, DeviceCatalog catalog,
+                                                    List<AutoCloseable> resources) throws Exception {
+        List<SensorDataSink> sinks = new ArrayList<>();
+        for (String name : options.getOrDefault("sinks", "noop").split(",")) {
+            switch (name.trim().toLowerCase()) {
+                case "noop":
+                    sinks.add(new NoOpSensorSink());
+                    break;
+                case "file":
+                    sinks.add(new FileSensorSink(options.getOrDefault("file", "sim-readings.jsonl")));
+                    break;
+                case "kafka":
+                    KafkaProducerManager kafkaProducer = new KafkaProducerManager();
+                    resources.add(kafkaProducer::close);
+                    sinks.add(new KafkaSensorSink(kafkaProducer, new SensorSchemaRegistry(catalog)));
+                    break;
+                case "hbase":
+                    HBaseManager hbaseManager = new HBaseManager();
+                    resources.add(hbaseManager::close);
+                    sinks.add(new HBaseSensorSink(hbaseManager));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown sink: " + name);
+            }
+        }
+        logger.info("Sinks: {}", options.getOrDefault("sinks", "noop"));
+        
+        if (Boolean.parseBoolean(options.getOrDefault("pipeline", "false"))) {
+            List<SensorDataSink> pipeline = new ArrayList<>();
+            pipeline.add(new SensorPipeline(sinks,
+                    Integer.parseInt(options.getOrDefault("pipeline.capacity", "65536")),
+                    OverflowPolicy.fromConfig(options.get("pipeline.policy")),
+                    Integer.parseInt(options.getOrDefault("pipeline.batch", "500"))));
+            return pipeline;
+        }
+        return sinks;
+    }
+    
+    private static Map<String, Integer> parseMix(String value) {
+        Map<String, Integer> mix = new LinkedHashMap<>();
+        for (String part : value.split(",")) {
+            String[] typeAndWeight = part.trim().split(":");
+            mix.put(typeAndWeight[0], typeAndWeight.length > 1 ? Integer.parseInt(typeAndWeight[1]) : 1);
+        }
+        return mix;
+    }
+    
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq > 0) {
+                options.put(arg.substring(0, eq).trim(), arg.substring(eq + 1).trim());
+            } else {
+                logger.warn("Ignoring argument without '=': {}", arg);
+            }
+        }
+        return options;
+    }
+}
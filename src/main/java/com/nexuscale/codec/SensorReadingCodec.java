@@ -0,0 +1,123 @@
+package com.nexuscale.codec;
+
+import com.nexuscale.sink.SensorReading;
+
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 传感器读数的紧凑二进制编码（大端序）
+ * <pre>
+ *   偏移  长度  内容
+ *   0     1     版本号，当前为2（JSON消息首字节为'{'，可据此区分两种格式）
+ *   1     4     deviceId (int)
+ *   5     2     设备类型 dt_id (unsigned short)
+ *   7     8     timestamp (long, 毫秒)
+ *   15    4     字段布局指纹 (int，见 {@link SensorSchema#getFingerprint()})
+ *   19    1     字段数 n（最多255）
+ *   20    8*n   字段值 (double)，顺序与该类型模板的字段顺序一致
+ * </pre>
+ * 字段名不进入消息，编码和解码两端都通过 {@link SensorSchemaRegistry} 取得字段顺序。
+ * 模板被修改（字段增删或调整顺序）后，两端的字段布局可能暂时不一致：指纹不同时解码端不套用本地字段名，
+ * 字段名为 field_&lt;i&gt;，避免把值错配到别的字段上。
+ * 版本1的消息没有指纹（头部16字节），仍可解码，只在字段数一致时套用字段名。
+ */
+public class SensorReadingCodec {
+    public static final byte VERSION = 2;
+    public static final int HEADER_BYTES = 20;
+    // 没有指纹的旧版本消息
+    static final byte VERSION_NO_FINGERPRINT = 1;
+    static final int HEADER_BYTES_NO_FINGERPRINT = 16;
+    
+    private final SensorSchemaRegistry schemaRegistry;
+    
+    public SensorReadingCodec(SensorSchemaRegistry schemaRegistry) {
+        this.schemaRegistry = schemaRegistry;
+    }
+    
+    @SuppressWarnings("unchecked")
+    public byte[] encode(SensorReading reading) {
+        SensorSchema schema = schemaRegistry.get(reading.getDtId());
+        if (schema == null) {
+            throw new IllegalArgumentException("No schema for device type " + reading.getDtId() 
+                                               + " (" + reading.getDeviceType() + ")");
+        }
+        if (reading.getDtId() < 0 || reading.getDtId() > 0xFFFF) {
+            throw new IllegalArgumentException("Device type id out of range: " + reading.getDtId());
+        }
+        
+        int deviceId;
+        try {
+            deviceId = Integer.parseInt(reading.getDeviceId());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Device id is not numeric: " + reading.getDeviceId());
+        }
+        
+        Object typeData = reading.getData().get(schema.getEnName());
+        Map<String, Object> values = typeData instanceof Map ? (Map<String, Object>) typeData 
+                                                             : Collections.<String, Object>emptyMap();
+        int fieldCount = values.isEmpty() ? 0 : schema.getFieldCount();
+        if (fieldCount > 0xFF) {
+            throw new IllegalArgumentException("Too many fields for binary encoding: " + fieldCount 
+                                               + " (max 255) in device type " + reading.getDtId());
+        }
+        
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + fieldCount * 8);
+        buffer.put(VERSION);
+        buffer.putInt(deviceId);
+        buffer.putShort((short) reading.getDtId());
+        buffer.putLong(reading.getTimestamp());
+        buffer.putInt(schema.getFingerprint());
+        buffer.put((byte) fieldCount);
+        for (int i = 0; i < fieldCount; i++) {
+            Object value = values.get(schema.getFieldName(i));
+            buffer.putDouble(value instanceof Number ? ((Number) value).doubleValue() : Double.NaN);
+        }
+        return buffer.array();
+    }
+    
+    /**
+     * 解码为与JSON格式相同结构的读数；类型未知或字段布局（指纹、字段数）与本地不一致时字段名为 field_&lt;i&gt;
+     */
+    public SensorReading decode(byte[] bytes) {
+        if (bytes.length < HEADER_BYTES_NO_FINGERPRINT) {
+            throw new IllegalArgumentException("Message too short: " + bytes.length + " bytes");
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        byte version = buffer.get();
+        if (version != VERSION && version != VERSION_NO_FINGERPRINT) {
+            throw new IllegalArgumentException("Unsupported sensor message version: " + version);
+        }
+        if (version == VERSION && bytes.length < HEADER_BYTES) {
+            throw new IllegalArgumentException("Message too short: " + bytes.length + " bytes");
+        }
+        
+        int deviceId = buffer.getInt();
+        int dtId = buffer.getShort() & 0xFFFF;
+        long timestamp = buffer.getLong();
+        boolean hasFingerprint = version == VERSION;
+        int fingerprint = hasFingerprint ? buffer.getInt() : 0;
+        int fieldCount = buffer.get() & 0xFF;
+        if (buffer.remaining() < fieldCount * 8) {
+            throw new IllegalArgumentException("Truncated message: " + fieldCount + " fields, " 
+                                               + buffer.remaining() + " bytes left");
+        }
+        
+        SensorSchema schema = schemaRegistry.get(dtId);
+        boolean named = schema != null && schema.getFieldCount() == fieldCount 
+                && (!hasFingerprint || schema.getFingerprint() == fingerprint);
+        String enName = schema != null ? schema.getEnName() : "type_" + dtId;
+        
+        Map<String, Object> values = new LinkedHashMap<>();
+        for (int i = 0; i < fieldCount; i++) {
+            values.put(named ? schema.getFieldName(i) : "field_" + i, buffer.getDouble());
+        }
+        Map<String, Object> data = new LinkedHashMap<>();
+        if (fieldCount > 0) {
+            data.put(enName, values);
+        }
+        return new SensorReading(String.valueOf(deviceId), enName, dtId, timestamp, data);
+    }
+}
@@ -0,0 +1,47 @@
+package com.nexuscale.codec;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nexuscale.sink.SensorReading;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Deserializer;
+
+import java.util.Map;
+
+/**
+ * 传感器数据topic的Kafka Deserializer
+ * 同时接受二进制格式和JSON格式（首字节为'{'），topic切换格式期间两种消息可以混在一起消费。
+ * 通过无参构造（例如在consumer配置中指定类名）创建时没有字段布局，二进制消息的字段名为 field_&lt;i&gt;。
+ */
+public class SensorReadingDeserializer implements Deserializer<SensorReading> {
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    
+    private final SensorReadingCodec codec;
+    
+    public SensorReadingDeserializer() {
+        this(new SensorSchemaRegistry());
+    }
+    
+    public SensorReadingDeserializer(SensorSchemaRegistry schemaRegistry) {
+        this.codec = new SensorReadingCodec(schemaRegistry);
+    }
+    
+    @Override
+    @SuppressWarnings("unchecked")
+    public SensorReading deserialize(String topic, byte[] bytes) {
+        if (bytes == null) {
+            return null;
+        }
+        try {
+            if (bytes.length > 0 && bytes[0] == '{') {
+                JsonNode message = objectMapper.readTree(bytes);
+                return new SensorReading(message.path("deviceId").asText(), message.path("deviceType").asText(),
+                                         message.path("timestamp").asLong(),
+                                         objectMapper.convertValue(message.path("data"), Map.class));
+            }
+            return codec.decode(bytes);
+        } catch (Exception e) {
+            throw new SerializationException("Cannot decode sensor reading from topic " + topic, e);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.nexuscale.codec;
+
+import com.nexuscale.sink.SensorReading;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Serializer;
+
+/**
+ * 以 {@link SensorReadingCodec} 二进制格式写出的Kafka Serializer
+ */
+public class SensorReadingSerializer implements Serializer<SensorReading> {
+    private final SensorReadingCodec codec;
+    
+    public SensorReadingSerializer(SensorSchemaRegistry schemaRegistry) {
+        this.codec = new SensorReadingCodec(schemaRegistry);
+    }
+    
+    @Override
+    public byte[] serialize(String topic, SensorReading reading) {
+        if (reading == null) {
+            return null;
+        }
+        try {
+            return codec.encode(reading);
+        } catch (IllegalArgumentException e) {
+            throw new SerializationException("Cannot encode sensor reading for topic " + topic, e);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.nexuscale.codec;
+
+import com.nexuscale.database.DeviceCatalog;
+import com.nexuscale.generator.CompiledTemplate;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 一种设备类型在二进制消息中的字段布局：dt_id、类型名以及按模板顺序排列的字段名
+ * 指纹是按顺序排列的字段名的32位FNV-1a哈希，写入消息头，解码端据此判断双方的字段顺序是否一致。
+ */
+public final class SensorSchema {
+    private final int dtId;
+    private final String enName;
+    private final String[] fieldNames;
+    private final int fingerprint;
+    // 编译该布局所用的模板，模板变化时重新编译
+    private final String template;
+    
+    public SensorSchema(int dtId, String enName, String[] fieldNames) {
+        this(dtId, enName, fieldNames, null);
+    }
+    
+    private SensorSchema(int dtId, String enName, String[] fieldNames, String template) {
+        this.dtId = dtId;
+        this.enName = enName;
+        this.fieldNames = fieldNames;
+        this.fingerprint = fingerprint(fieldNames);
+        this.template = template;
+    }
+    
+    private static int fingerprint(String[] fieldNames) {
+        int hash = 0x811c9dc5;
+        for (String fieldName : fieldNames) {
+            for (byte b : fieldName.getBytes(StandardCharsets.UTF_8)) {
+                hash = (hash ^ (b & 0xFF)) * 0x01000193;
+            }
+            // 字段之间的分隔，避免 ["ab","c"] 与 ["a","bc"] 得到相同指纹
+            hash = (hash ^ 0xFF) * 0x01000193;
+        }
+        return hash;
+    }
+    
+    public static SensorSchema compile(DeviceCatalog.TemplateEntry entry) {
+        CompiledTemplate compiled = CompiledTemplate.compile(entry.getDtId(), entry.getEnName(), entry.getTemplate());
+        String[] fieldNames = new String[compiled.getFieldCount()];
+        for (int i = 0; i < fieldNames.length; i++) {
+            fieldNames[i] = compiled.getFieldName(i);
+        }
+        return new SensorSchema(entry.getDtId(), entry.getEnName(), fieldNames, entry.getTemplate());
+    }
+    
+    boolean isCompiledFrom(DeviceCatalog.TemplateEntry entry) {
+        return entry.getTemplate() != null && entry.getTemplate().equals(template) 
+                && entry.getEnName().equals(enName);
+    }
+    
+    public int getDtId() {
+        return dtId;
+    }
+    
+    public String getEnName() {
+        return enName;
+    }
+    
+    public int getFieldCount() {
+        return fieldNames.length;
+    }
+    
+    public String getFieldName(int index) {
+        return fieldNames[index];
+    }
+    
+    public int getFingerprint() {
+        return fingerprint;
+    }
+}
@@ -0,0 +1,48 @@
+package com.nexuscale.codec;
+
+import com.nexuscale.database.DeviceCatalog;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * dt_id -> SensorSchema
+ * 绑定设备目录时按需从目录中的模板编译并缓存，模板内容变化后下一次查询重新编译；
+ * 不绑定目录时只包含手工注册的布局。
+ */
+public class SensorSchemaRegistry {
+    private final DeviceCatalog deviceCatalog;
+    private final Map<Integer, SensorSchema> schemas = new ConcurrentHashMap<>();
+    
+    public SensorSchemaRegistry() {
+        this(null);
+    }
+    
+    public SensorSchemaRegistry(DeviceCatalog deviceCatalog) {
+        this.deviceCatalog = deviceCatalog;
+    }
+    
+    public void register(SensorSchema schema) {
+        schemas.put(schema.getDtId(), schema);
+    }
+    
+    /**
+     * @return 该类型的布局，未知类型返回null
+     */
+    public SensorSchema get(int dtId) {
+        SensorSchema schema = schemas.get(dtId);
+        if (deviceCatalog == null) {
+            return schema;
+        }
+        
+        DeviceCatalog.TemplateEntry entry = deviceCatalog.getTemplate(dtId);
+        if (entry == null) {
+            return schema;
+        }
+        if (schema == null || !schema.isCompiledFrom(entry)) {
+            schema = SensorSchema.compile(entry);
+            schemas.put(dtId, schema);
+        }
+        return schema;
+    }
+}
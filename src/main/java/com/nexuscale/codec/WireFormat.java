@@ -0,0 +1,18 @@
+package com.nexuscale.codec;
+
+import com.nexuscale.config.ConfigManager;
+
+/**
+ * Kafka消息值的编码格式，按topic配置：kafka.topic.&lt;topic&gt;.format=json|binary
+ */
+public enum WireFormat {
+    // {"deviceId":..,"deviceType":..,"timestamp":..,"data":{..}}，默认格式
+    JSON,
+    // SensorReadingCodec 定义的定长头 + 紧凑double数组
+    BINARY;
+    
+    public static WireFormat forTopic(String topic) {
+        String value = ConfigManager.getProperty("kafka.topic." + topic + ".format", "json");
+        return valueOf(value.trim().toUpperCase());
+    }
+}
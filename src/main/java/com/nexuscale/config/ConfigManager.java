@@ -32,4 +32,9 @@ public class ConfigManager {
         String value = properties.getProperty(key);
         return value != null ? Integer.parseInt(value) : defaultValue;
     }
+    
+    public static double getDoubleProperty(String key, double defaultValue) {
+        String value = properties.getProperty(key);
+        return value != null ? Double.parseDouble(value) : defaultValue;
+    }
 } 
\ No newline at end of file
@@ -0,0 +1,15 @@
+package com.nexuscale.consumer;
+
+/**
+ * 设备状态消息消费者（列表模式、Stream模式等实现）
+ */
+public interface DeviceStateConsumer extends Runnable {
+    
+    void stop();
+    
+    boolean isRunning();
+    
+    String getName();
+    
+    long getMessagesConsumed();
+}
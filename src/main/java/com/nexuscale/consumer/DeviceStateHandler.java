@@ -0,0 +1,13 @@
+package com.nexuscale.consumer;
+
+import java.util.List;
+
+/**
+ * 设备状态消息的处理方（数据生成器，或其前面的合并窗口）
+ */
+public interface DeviceStateHandler {
+    
+    void startDataGeneration(String deviceId, int state);
+    
+    void startDataGeneration(List<DeviceStateMessage> messages);
+}
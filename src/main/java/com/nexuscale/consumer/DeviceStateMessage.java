@@ -0,0 +1,27 @@
+package com.nexuscale.consumer;
+
+/**
+ * 设备状态消息：deviceId + state（1开启，其它关闭）
+ */
+public class DeviceStateMessage {
+    private final String deviceId;
+    private final int state;
+    
+    public DeviceStateMessage(String deviceId, int state) {
+        this.deviceId = deviceId;
+        this.state = state;
+    }
+    
+    public String getDeviceId() {
+        return deviceId;
+    }
+    
+    public int getState() {
+        return state;
+    }
+    
+    @Override
+    public String toString() {
+        return "DeviceStateMessage{deviceId=" + deviceId + ", state=" + state + "}";
+    }
+}
@@ -0,0 +1,70 @@
+package com.nexuscale.consumer;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+
+/**
+ * 设备状态消息解码器
+ * 支持两种格式：[className, {deviceId, state}] 数组格式 和 {deviceId, state} 对象格式
+ * 基于JsonParser逐个token读取，只提取deviceId和state两个字段，其它字段直接跳过，
+ * 不构建JsonNode树。JsonFactory线程安全，可在多个消费者之间共享。
+ */
+public class DeviceStateMessageDecoder {
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    
+    /**
+     * 解码设备状态消息
+     * @return 设备状态消息；如果不是设备状态消息（缺少deviceId或state）返回null
+     * @throws IOException JSON格式错误
+     */
+    public DeviceStateMessage decode(String data) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(data)) {
+            JsonToken token = parser.nextToken();
+            
+            if (token == JsonToken.START_ARRAY) {
+                // 数组格式 [className, dataObject]，跳过第一个元素
+                JsonToken first = parser.nextToken();
+                if (first == null || first == JsonToken.END_ARRAY) {
+                    return null;
+                }
+                parser.skipChildren();
+                token = parser.nextToken();
+            }
+            
+            if (token != JsonToken.START_OBJECT) {
+                return null;
+            }
+            return readStateObject(parser);
+        }
+    }
+    
+    private DeviceStateMessage readStateObject(JsonParser parser) throws IOException {
+        String deviceId = null;
+        int state = 0;
+        boolean hasState = false;
+        
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            
+            if ("deviceId".equals(field)) {
+                deviceId = value.isScalarValue() ? parser.getText() : "";
+                parser.skipChildren();
+            } else if ("state".equals(field)) {
+                state = parser.getValueAsInt(0);
+                hasState = true;
+                parser.skipChildren();
+            } else {
+                parser.skipChildren();
+            }
+        }
+        
+        if (deviceId == null || !hasState) {
+            return null;
+        }
+        return new DeviceStateMessage(deviceId, state);
+    }
+}
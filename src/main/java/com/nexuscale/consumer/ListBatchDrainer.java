@@ -0,0 +1,51 @@
+package com.nexuscale.consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.Transaction;
+import redis.clients.jedis.exceptions.JedisDataException;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 一次往返从Redis列表头部批量取出多条消息
+ * 优先使用 LPOP key count（Redis 6.2+）；服务器不支持时自动退回到
+ * MULTI { LRANGE key 0 n-1; LTRIM key n -1 } 事务，两种方式都是原子的。
+ */
+public class ListBatchDrainer {
+    private static final Logger logger = LoggerFactory.getLogger(ListBatchDrainer.class);
+    
+    private volatile boolean lpopCountSupported = true;
+    
+    /**
+     * 从列表头部最多取出 max 条消息，列表为空时返回空列表
+     */
+    public List<String> drain(Jedis jedis, String key, int max) {
+        if (max <= 0) {
+            return Collections.emptyList();
+        }
+        
+        if (lpopCountSupported) {
+            try {
+                List<String> result = jedis.lpop(key, max);
+                return result != null ? result : Collections.emptyList();
+            } catch (JedisDataException e) {
+                // 旧版本Redis不支持LPOP count参数
+                lpopCountSupported = false;
+                logger.warn("LPOP with count not supported by server, falling back to LRANGE+LTRIM: {}", 
+                           e.getMessage());
+            }
+        }
+        
+        Transaction transaction = jedis.multi();
+        Response<List<String>> range = transaction.lrange(key, 0, max - 1);
+        transaction.ltrim(key, max, -1);
+        transaction.exec();
+        
+        List<String> result = range.get();
+        return result != null ? result : Collections.emptyList();
+    }
+}
@@ -0,0 +1,198 @@
+package com.nexuscale.consumer;
+
+import com.nexuscale.redis.RedisManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.exceptions.JedisDataException;
+import redis.clients.jedis.params.ScanParams;
+import redis.clients.jedis.resps.ScanResult;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 重放遗留在处理中列表里的消息
+ * - 启动时重放本节点上次运行遗留的列表
+ * - 运行期间定期接管已失联节点的列表：每个节点定期刷新带过期时间的心跳key，
+ *   心跳已过期的节点的列表先RENAME到本节点名下（原子操作，多个节点同时接管时只有一个成功）再重放；
+ *   接管后的列表以本节点名称开头，本节点重放中途退出时下次启动会继续重放
+ * 按批读取（LRANGE + LTRIM），每批整体交给数据生成器，
+ * 大量积压时也只需要 (条数 / 批量大小) 次往返。
+ */
+public class ProcessingListRecovery {
+    private static final Logger logger = LoggerFactory.getLogger(ProcessingListRecovery.class);
+    // 接管的列表：前缀 + topic + ":" + 接管节点 + CLAIM_MARKER + 原消费者名称
+    private static final String CLAIM_MARKER = "-claimed-";
+    
+    private final RedisManager redisManager;
+    private final DeviceStateHandler stateHandler;
+    private final DeviceStateMessageDecoder decoder = new DeviceStateMessageDecoder();
+    private final int batchSize;
+    
+    public ProcessingListRecovery(RedisManager redisManager,
+                                  DeviceStateHandler stateHandler,
+                                  int batchSize) {
+        this.redisManager = redisManager;
+        this.stateHandler = stateHandler;
+        this.batchSize = Math.max(1, batchSize);
+    }
+    
+    /**
+     * 重放指定节点在这些topic上遗留的处理中列表
+     * @param nodeId 节点标识，只重放本节点自己的列表（包括本节点接管的列表）
+     * @return 重放的消息条数
+     */
+    public int recover(Collection<String> topics, String nodeId) {
+        String processingPrefix = ReliableRedisConsumer.getProcessingPrefix();
+        int total = 0;
+        long start = System.currentTimeMillis();
+        
+        try (Jedis jedis = redisManager.getJedis()) {
+            for (String topic : topics) {
+                String topicPrefix = processingPrefix + topic + ":";
+                // 通配符同样会匹配以本节点标识开头的其它节点（如 node 与 node-1），按所属节点精确过滤
+                for (String key : scanKeys(jedis, topicPrefix + nodeId + "-*")) {
+                    if (nodeId.equals(ownerNode(key.substring(topicPrefix.length())))) {
+                        total += replay(jedis, topic, key);
+                    }
+                }
+            }
+        } catch (Exception e) {
+            logger.error("Error recovering processing lists", e);
+        }
+        
+        logger.info("Processing list recovery completed: {} messages replayed in {} ms",
+                   total, System.currentTimeMillis() - start);
+        return total;
+    }
+    
+    /**
+     * 刷新本节点的心跳，ttlMillis 内没有再次刷新即视为失联
+     */
+    public void heartbeat(String nodeId, long ttlMillis) {
+        try (Jedis jedis = redisManager.getJedis()) {
+            jedis.psetex(heartbeatKey(nodeId), ttlMillis, String.valueOf(System.currentTimeMillis()));
+        }
+    }
+    
+    /**
+     * 正常退出时删除心跳，本节点剩余的列表可以立即被其它节点接管
+     */
+    public void clearHeartbeat(String nodeId) {
+        try (Jedis jedis = redisManager.getJedis()) {
+            jedis.del(heartbeatKey(nodeId));
+        }
+    }
+    
+    /**
+     * 接管并重放心跳已过期的其它节点在这些topic上的处理中列表
+     * @param nodeId 本节点标识
+     * @return 重放的消息条数
+     */
+    public int recoverStale(Collection<String> topics, String nodeId) {
+        String processingPrefix = ReliableRedisConsumer.getProcessingPrefix();
+        int total = 0;
+        
+        try (Jedis jedis = redisManager.getJedis()) {
+            for (String topic : topics) {
+                String topicPrefix = processingPrefix + topic + ":";
+                for (String key : scanKeys(jedis, topicPrefix + "*")) {
+                    String consumer = key.substring(topicPrefix.length());
+                    String owner = ownerNode(consumer);
+                    if (owner == null || owner.equals(nodeId) || jedis.exists(heartbeatKey(owner))) {
+                        continue;
+                    }
+                    
+                    String claimed = topicPrefix + nodeId + CLAIM_MARKER + consumer;
+                    try {
+                        jedis.rename(key, claimed);
+                    } catch (JedisDataException e) {
+                        // 已被其它节点接管（或刚好处理完）
+                        continue;
+                    }
+                    logger.warn("Claimed processing list {} of stale node {}", key, owner);
+                    total += replay(jedis, topic, claimed);
+                }
+            }
+        } catch (Exception e) {
+            logger.error("Error recovering processing lists of stale nodes", e);
+        }
+        
+        if (total > 0) {
+            logger.info("Stale node recovery completed: {} messages replayed", total);
+        }
+        return total;
+    }
+    
+    static String heartbeatKey(String nodeId) {
+        return ReliableRedisConsumer.getProcessingPrefix() + "heartbeat:" + nodeId;
+    }
+    
+    /**
+     * 从消费者名称（节点 + "-" + 序号，或接管后的 节点 + CLAIM_MARKER + 原名称）取出所属节点
+     */
+    private static String ownerNode(String consumer) {
+        int claim = consumer.indexOf(CLAIM_MARKER);
+        if (claim > 0) {
+            return consumer.substring(0, claim);
+        }
+        int dash = consumer.lastIndexOf('-');
+        if (dash <= 0 || dash == consumer.length() - 1) {
+            return null;
+        }
+        for (int i = dash + 1; i < consumer.length(); i++) {
+            if (!Character.isDigit(consumer.charAt(i))) {
+                return null;
+            }
+        }
+        return consumer.substring(0, dash);
+    }
+    
+    private List<String> scanKeys(Jedis jedis, String pattern) {
+        List<String> keys = new ArrayList<>();
+        ScanParams params = new ScanParams().match(pattern).count(1000);
+        String cursor = ScanParams.SCAN_POINTER_START;
+        do {
+            ScanResult<String> result = jedis.scan(cursor, params);
+            keys.addAll(result.getResult());
+            cursor = result.getCursor();
+        } while (!ScanParams.SCAN_POINTER_START.equals(cursor));
+        return keys;
+    }
+    
+    private int replay(Jedis jedis, String topic, String key) {
+        int replayed = 0;
+        while (true) {
+            List<String> chunk = jedis.lrange(key, 0, batchSize - 1);
+            if (chunk == null || chunk.isEmpty()) {
+                break;
+            }
+            
+            List<DeviceStateMessage> messages = new ArrayList<>(chunk.size());
+            for (String data : chunk) {
+                try {
+                    DeviceStateMessage message = decoder.decode(data);
+                    if (message != null) {
+                        messages.add(message);
+                    }
+                } catch (Exception e) {
+                    logger.error("Error parsing orphaned message, dropping: {}", data, e);
+                }
+            }
+            
+            if (!messages.isEmpty() && stateHandler != null) {
+                stateHandler.startDataGeneration(messages);
+            }
+            
+            jedis.ltrim(key, chunk.size(), -1);
+            replayed += chunk.size();
+        }
+        
+        if (replayed > 0) {
+            logger.info("Replayed {} orphaned messages for topic {} from {}", replayed, topic, key);
+        }
+        return replayed;
+    }
+}
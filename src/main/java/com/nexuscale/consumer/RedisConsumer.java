@@ -1,125 +1,223 @@
 package com.nexuscale.consumer;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.nexuscale.config.ConfigManager;
+import com.nexuscale.redis.RedisConnectionSource;
 import com.nexuscale.redis.RedisManager;
-import com.nexuscale.service.SensorDataGeneratorService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import redis.clients.jedis.Jedis;
+import redis.clients.jedis.util.KeyValue;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
-public class RedisConsumer implements Runnable {
+/**
+ * 多路复用的Redis消费者
+ * 一个消费者线程通过一次多key的BLPOP同时监听多个设备类型队列，
+ * 每轮轮换key的顺序，保证各队列被公平地消费。
+ * 队列集合由外部共享维护，增删topic不需要新建线程。
+ * 多个消费者线程共享同一个集合时按topic哈希分区，每个topic只由一个线程消费，
+ * 同一topic内的状态消息按入队顺序生效（多线程同时BLPOP同一队列会打乱顺序）。
+ * 批量模式下，BLPOP唤醒后会在同一队列上一次性再取出最多 batchSize-1 条消息，
+ * 再逐条交给数据生成器处理（单条失败不影响同批其它消息），避免积压时每条消息一次网络往返。
+ */
+public class RedisConsumer implements DeviceStateConsumer {
     private static final Logger logger = LoggerFactory.getLogger(RedisConsumer.class);
     private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final double BLOCK_TIMEOUT_SECONDS = 2.0;
     
-    private final String topic;
-    private final RedisManager redisManager;
+    private final String name;
+    private final TopicRotation rotation;
+    private final RedisConnectionSource connection;
     private final AtomicBoolean running = new AtomicBoolean(true);
+    private final AtomicLong messagesConsumed = new AtomicLong();
     private final long pollingInterval;
-    private final ObjectMapper objectMapper;
-    private SensorDataGeneratorService sensorDataGenerator;
+    private final int batchSize;
+    private final ListBatchDrainer drainer = new ListBatchDrainer();
+    private final DeviceStateMessageDecoder decoder = new DeviceStateMessageDecoder();
+    private DeviceStateHandler stateHandler;
     
     public RedisConsumer(String topic, RedisManager redisManager) {
-        this.topic = topic;
-        this.redisManager = redisManager;
+        this(topic, Collections.singleton(topic), redisManager);
+    }
+    
+    /**
+     * @param name   消费者名称（用于日志）
+     * @param topics 共享的topic集合，需为线程安全的集合，消费者每轮读取其最新内容
+     */
+    public RedisConsumer(String name, Set<String> topics, RedisManager redisManager) {
+        this.name = name;
+        this.rotation = new TopicRotation(topics);
+        this.connection = redisManager.openConsumerConnection(name);
         this.pollingInterval = ConfigManager.getIntProperty("app.polling.interval", 1000);
-        this.objectMapper = new ObjectMapper();
+        this.batchSize = Math.max(1, ConfigManager.getIntProperty("app.consumer.batch.size", 100));
     }
     
-    public void setSensorDataGenerator(SensorDataGeneratorService sensorDataGenerator) {
-        this.sensorDataGenerator = sensorDataGenerator;
+    public void setStateHandler(DeviceStateHandler stateHandler) {
+        this.stateHandler = stateHandler;
     }
     
     @Override
     public void run() {
-        logger.info("Starting Redis consumer for topic: {}", topic);
+        logger.info("Starting Redis consumer: {}", name);
         
         while (running.get() && !Thread.currentThread().isInterrupted()) {
-            try (Jedis jedis = redisManager.getJedis()) {
-                // Use BLPOP for blocking left pop with timeout
-                List<String> result = jedis.blpop(2, topic);
+            String[] keys = rotation.nextKeyOrder();
+            if (keys.length == 0) {
+                // 当前没有可消费的topic，等待刷新
+                if (!TopicRotation.sleepQuietly(pollingInterval)) {
+                    break;
+                }
+                continue;
+            }
+            
+            Jedis jedis = null;
+            try {
+                jedis = connection.acquire();
+                // 多key BLPOP：任意一个队列有数据即返回，返回值包含来源key
+                KeyValue<String, String> result = jedis.blpop(BLOCK_TIMEOUT_SECONDS, keys);
                 
-                if (result != null && result.size() > 1) {
-                    String data = result.get(1); // First element is the key, second is the value
-                    processMessage(data);
+                if (result != null) {
+                    if (batchSize > 1) {
+                        // 唤醒后在同一队列上批量取出剩余消息
+                        List<String> batch = new ArrayList<>(batchSize);
+                        batch.add(result.getValue());
+                        batch.addAll(drainer.drain(jedis, result.getKey(), batchSize - 1));
+                        messagesConsumed.addAndGet(batch.size());
+                        processBatch(result.getKey(), batch);
+                    } else {
+                        messagesConsumed.incrementAndGet();
+                        processMessage(result.getKey(), result.getValue());
+                    }
                 } else {
                     // No data available, continue polling
-                    logger.debug("No data available for topic: {}", topic);
+                    logger.debug("No data available for consumer: {}", name);
                 }
-                
+            
             } catch (Exception e) {
+                connection.reportError(e);
                 if (running.get()) {
-                    logger.error("Error consuming from topic: {}", topic, e);
-                    try {
-                        Thread.sleep(pollingInterval);
-                    } catch (InterruptedException ie) {
-                        Thread.currentThread().interrupt();
+                    logger.error("Error consuming in consumer: {}", name, e);
+                    if (!TopicRotation.sleepQuietly(pollingInterval)) {
                         break;
                     }
                 }
+            } finally {
+                connection.release(jedis);
             }
         }
         
-        logger.info("Redis consumer stopped for topic: {}", topic);
+        connection.close();
+        logger.info("Redis consumer stopped: {}", name);
     }
     
-    private void processMessage(String data) {
+    private void processMessage(String topic, String data) {
         String timestamp = LocalDateTime.now().format(FORMATTER);
         logger.info("[{}] Topic: {} | Data: {}", timestamp, topic, data);
         
-        // 处理设备状态消息
-        try {
-            JsonNode jsonNode = objectMapper.readTree(data);
-            
-            // 检查是否为数组格式的消息 [className, dataObject]
-            JsonNode messageData = null;
-            if (jsonNode.isArray() && jsonNode.size() >= 2) {
-                // 数组格式，取第二个元素作为实际数据
-                messageData = jsonNode.get(1);
-            } else {
-                // 直接的对象格式
-                messageData = jsonNode;
+        DeviceStateMessage message = parseMessage(topic, data);
+        if (message == null) {
+            return;
+        }
+        
+        logger.info("Received device state message: deviceId={}, state={}", 
+                   message.getDeviceId(), message.getState());
+        
+        // 如果设备状态为1（开启）且有传感器数据生成器，则开始生成数据
+        if (stateHandler != null) {
+            stateHandler.startDataGeneration(message.getDeviceId(), message.getState());
+        } else {
+            logger.warn("Device state handler not available for processing device state");
+        }
+    }
+    
+    /**
+     * 逐条解析并生效，单条消息解析或处理失败只记录该条，批内其余消息照常处理
+     */
+    private void processBatch(String topic, List<String> batch) {
+        logger.info("Drained {} messages from topic {}", batch.size(), topic);
+        if (stateHandler == null) {
+            logger.warn("Device state handler not available for processing {} messages", batch.size());
+            return;
+        }
+        
+        int failed = 0;
+        for (String data : batch) {
+            logger.debug("Topic: {} | Data: {}", topic, data);
+            DeviceStateMessage message = parseMessage(topic, data);
+            if (message == null) {
+                continue;
             }
-            
-            // 检查是否为设备状态消息
-            if (messageData != null && messageData.has("deviceId") && messageData.has("state")) {
-                String deviceId = messageData.get("deviceId").asText();
-                int state = messageData.get("state").asInt();
-                
-                logger.info("Received device state message: deviceId={}, state={}", deviceId, state);
-                
-                // 如果设备状态为1（开启）且有传感器数据生成器，则开始生成数据
-                if (sensorDataGenerator != null) {
-                    sensorDataGenerator.startDataGeneration(deviceId, state);
-                } else {
-                    logger.warn("SensorDataGenerator not available for processing device state");
-                }
-            } else {
-                // 处理其他类型的消息
-                logger.info("Received general message on topic {}: {}", topic, data);
+            try {
+                stateHandler.startDataGeneration(message.getDeviceId(), message.getState());
+            } catch (Exception e) {
+                failed++;
+                logger.error("Error applying state {} for device {} from topic {}", 
+                           message.getState(), message.getDeviceId(), topic, e);
+            }
+        }
+        if (failed > 0) {
+            logger.warn("{} of {} messages from topic {} failed", failed, batch.size(), topic);
+        }
+    }
+    
+    /**
+     * 解析设备状态消息，非设备状态消息或解析失败时返回null
+     */
+    private DeviceStateMessage parseMessage(String topic, String data) {
+        try {
+            DeviceStateMessage message = decoder.decode(data);
+            if (message != null) {
+                return message;
             }
             
+            // 处理其他类型的消息
+            logger.info("Received general message on topic {}: {}", topic, data);
+        
         } catch (Exception e) {
             logger.error("Error processing message: {}", data, e);
         }
+        return null;
     }
     
+    /**
+     * 设置起始轮换位置，多个消费者从不同位置开始，减少同时争抢同一队列
+     */
+    public void setRotationOffset(int offset) {
+        rotation.setOffset(offset);
+    }
+    
+    /**
+     * 在 count 个共享同一topic集合的消费者中，只消费哈希落在 index 的topic
+     */
+    public void setPartition(int index, int count) {
+        rotation.setPartition(index, count);
+    }
+    
+    @Override
     public void stop() {
         running.set(false);
-        logger.info("Stopping consumer for topic: {}", topic);
+        logger.info("Stopping consumer: {}", name);
     }
     
+    @Override
     public boolean isRunning() {
         return running.get();
     }
     
-    public String getTopic() {
-        return topic;
+    @Override
+    public String getName() {
+        return name;
+    }
+    
+    @Override
+    public long getMessagesConsumed() {
+        return messagesConsumed.get();
     }
 } 
\ No newline at end of file
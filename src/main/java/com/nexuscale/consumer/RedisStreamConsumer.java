@@ -0,0 +1,378 @@
+package com.nexuscale.consumer;
+
+import com.nexuscale.config.ConfigManager;
+import com.nexuscale.redis.RedisConnectionSource;
+import com.nexuscale.redis.RedisManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.StreamEntryID;
+import redis.clients.jedis.exceptions.JedisDataException;
+import redis.clients.jedis.params.XAutoClaimParams;
+import redis.clients.jedis.params.XPendingParams;
+import redis.clients.jedis.params.XReadGroupParams;
+import redis.clients.jedis.resps.StreamEntry;
+import redis.clients.jedis.resps.StreamPendingEntry;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 基于Redis Stream消费组的设备状态消费者
+ * 每个设备类型对应一个Stream（key = 前缀 + en_name），多个NexusScale实例加入同一个消费组，
+ * 由Redis在实例之间分配消息。消息在数据生成器处理成功后才XACK；
+ * 消费者崩溃后留在PEL中的消息，超过空闲时间后由其它存活的消费者通过XAUTOCLAIM接管。
+ *
+ * 同一节点的多个消费者按topic哈希分区（与列表模式相同），每个stream在节点内只由一个线程读取。
+ * 处理失败时停止该stream本批次的后续消息，下一轮从本消费者的PEL（ID 0）按顺序重读，
+ * 失败的消息不会被更新的状态越过；投递次数（XPENDING）达到上限后写入死信stream（stream + ":dead"）并确认。
+ *
+ * Stream消息字段：直接包含 deviceId、state 字段，或在 message 字段中携带与列表模式相同的JSON。
+ */
+public class RedisStreamConsumer implements DeviceStateConsumer {
+    private static final Logger logger = LoggerFactory.getLogger(RedisStreamConsumer.class);
+    
+    // 所有消费者共享：已确认存在消费组的stream
+    private static final Set<String> initializedStreams = ConcurrentHashMap.newKeySet();
+    
+    private final String consumerName;
+    private final Set<String> topics;
+    private final RedisConnectionSource connection;
+    private final AtomicBoolean running = new AtomicBoolean(true);
+    private final AtomicLong messagesConsumed = new AtomicLong();
+    private final AtomicLong messagesClaimed = new AtomicLong();
+    private final AtomicLong messagesDeadLettered = new AtomicLong();
+    private final DeviceStateMessageDecoder decoder = new DeviceStateMessageDecoder();
+    
+    private final String streamPrefix;
+    private final String groupName;
+    private final int batchSize;
+    private final int blockMillis;
+    private final long claimMinIdleMillis;
+    private final long claimIntervalMillis;
+    private final long pollingInterval;
+    private final int maxDeliveries;
+    private final String deadLetterSuffix;
+    private final TopicRotation rotation;
+    
+    // 需要从本消费者PEL重读的stream：首次读取（重启前未确认的消息）或上一批处理失败
+    private final Set<String> knownStreams = new HashSet<>();
+    private final Set<String> historyStreams = new HashSet<>();
+    
+    private DeviceStateHandler stateHandler;
+    private long lastClaimTime;
+    
+    /**
+     * @param consumerName 消费组内的消费者名称，同一实例重启后应保持一致
+     * @param topics       共享的topic集合（设备类型en_name）
+     */
+    public RedisStreamConsumer(String consumerName, Set<String> topics, RedisManager redisManager) {
+        this.consumerName = consumerName;
+        this.topics = topics;
+        this.connection = redisManager.openConsumerConnection(consumerName);
+        this.streamPrefix = ConfigManager.getProperty("app.consumer.stream.prefix", "stream:");
+        this.groupName = ConfigManager.getProperty("app.consumer.stream.group", "nexuscale-iot");
+        this.batchSize = Math.max(1, ConfigManager.getIntProperty("app.consumer.batch.size", 100));
+        this.blockMillis = ConfigManager.getIntProperty("app.consumer.stream.block.ms", 2000);
+        this.claimMinIdleMillis = ConfigManager.getIntProperty("app.consumer.stream.claim.idle.ms", 60000);
+        this.claimIntervalMillis = ConfigManager.getIntProperty("app.consumer.stream.claim.interval.ms", 30000);
+        this.pollingInterval = ConfigManager.getIntProperty("app.polling.interval", 1000);
+        this.maxDeliveries = Math.max(1, ConfigManager.getIntProperty("app.consumer.stream.max.deliveries", 5));
+        this.deadLetterSuffix = ConfigManager.getProperty("app.consumer.stream.dead.suffix", ":dead");
+        this.rotation = new TopicRotation(topics);
+    }
+    
+    public void setStateHandler(DeviceStateHandler stateHandler) {
+        this.stateHandler = stateHandler;
+    }
+    
+    /**
+     * 与同一节点的其它消费者划分stream，每个stream只由一个消费者读取
+     */
+    public void setPartition(int index, int count) {
+        rotation.setPartition(index, count);
+    }
+    
+    @Override
+    public void run() {
+        logger.info("Starting Redis stream consumer: {} (group: {})", consumerName, groupName);
+        
+        while (running.get() && !Thread.currentThread().isInterrupted()) {
+            String[] streams = currentStreams();
+            if (streams.length == 0) {
+                if (!TopicRotation.sleepQuietly(pollingInterval)) {
+                    break;
+                }
+                continue;
+            }
+            for (String stream : streams) {
+                if (knownStreams.add(stream)) {
+                    historyStreams.add(stream);
+                }
+            }
+            
+            boolean failed = false;
+            
+            Jedis jedis = null;
+            try {
+                jedis = connection.acquire();
+                ensureGroups(jedis, streams);
+                
+                long now = System.currentTimeMillis();
+                if (now - lastClaimTime >= claimIntervalMillis) {
+                    lastClaimTime = now;
+                    failed = claimPending(jedis, streams);
+                }
+                
+                // 有待重读的stream时不阻塞：历史读取立即返回
+                boolean readHistory = false;
+                Map<String, StreamEntryID> offsets = new LinkedHashMap<>();
+                for (String stream : streams) {
+                    if (historyStreams.contains(stream)) {
+                        offsets.put(stream, new StreamEntryID());
+                        readHistory = true;
+                    } else {
+                        offsets.put(stream, StreamEntryID.UNRECEIVED_ENTRY);
+                    }
+                }
+                
+                XReadGroupParams params = XReadGroupParams.xReadGroupParams().count(batchSize);
+                if (!readHistory) {
+                    params.block(blockMillis);
+                }
+                List<Map.Entry<String, List<StreamEntry>>> result = jedis.xreadGroup(groupName, consumerName,
+                        params, offsets);
+                
+                if (result == null) {
+                    logger.debug("No data available for stream consumer: {}", consumerName);
+                    continue;
+                }
+                
+                for (Map.Entry<String, List<StreamEntry>> streamEntries : result) {
+                    String stream = streamEntries.getKey();
+                    List<StreamEntry> entries = streamEntries.getValue();
+                    if (entries == null) {
+                        entries = new ArrayList<>();
+                    }
+                    
+                    if (!processEntries(jedis, stream, entries)) {
+                        historyStreams.add(stream);
+                        failed = true;
+                    } else if (historyStreams.contains(stream) && entries.size() < batchSize) {
+                        // PEL已处理完，回到读取新消息
+                        historyStreams.remove(stream);
+                    }
+                }
+            
+            } catch (Exception e) {
+                connection.reportError(e);
+                if (running.get()) {
+                    logger.error("Error consuming in stream consumer: {}", consumerName, e);
+                    failed = true;
+                }
+            } finally {
+                connection.release(jedis);
+            }
+            
+            // 处理失败后等待一个轮询间隔再重读，避免对持续失败的消息空转
+            if (failed && running.get() && !TopicRotation.sleepQuietly(pollingInterval)) {
+                break;
+            }
+        }
+        
+        connection.close();
+        logger.info("Redis stream consumer stopped: {}", consumerName);
+    }
+    
+    private String[] currentStreams() {
+        String[] snapshot = rotation.nextKeyOrder();
+        for (int i = 0; i < snapshot.length; i++) {
+            snapshot[i] = streamPrefix + snapshot[i];
+        }
+        return snapshot;
+    }
+    
+    private void ensureGroups(Jedis jedis, String[] streams) {
+        for (String stream : streams) {
+            if (initializedStreams.contains(stream)) {
+                continue;
+            }
+            try {
+                // 从头开始读取，确保消费组创建前已写入的消息也会被处理
+                jedis.xgroupCreate(stream, groupName, new StreamEntryID(), true);
+                logger.info("Created consumer group {} on stream {}", groupName, stream);
+            } catch (JedisDataException e) {
+                if (e.getMessage() == null || !e.getMessage().startsWith("BUSYGROUP")) {
+                    throw e;
+                }
+            }
+            initializedStreams.add(stream);
+        }
+    }
+    
+    /**
+     * 接管其它（已宕机）消费者长时间未确认的消息
+     * @return true 表示有stream的消息处理失败
+     */
+    private boolean claimPending(Jedis jedis, String[] streams) {
+        boolean failed = false;
+        for (String stream : streams) {
+            StreamEntryID cursor = new StreamEntryID();
+            do {
+                Map.Entry<StreamEntryID, List<StreamEntry>> claimed = jedis.xautoclaim(stream, groupName,
+                        consumerName, claimMinIdleMillis, cursor, XAutoClaimParams.xAutoClaimParams().count(batchSize));
+                if (claimed == null) {
+                    break;
+                }
+                
+                List<StreamEntry> entries = claimed.getValue();
+                if (entries != null && !entries.isEmpty()) {
+                    messagesClaimed.addAndGet(entries.size());
+                    logger.info("Claimed {} pending entries from stream {}", entries.size(), stream);
+                    if (!processEntries(jedis, stream, entries)) {
+                        // 接管的消息已归本消费者所有，从PEL按顺序重试
+                        historyStreams.add(stream);
+                        failed = true;
+                        break;
+                    }
+                }
+                cursor = claimed.getKey();
+            } while (running.get() && cursor != null && !new StreamEntryID().equals(cursor));
+        }
+        return failed;
+    }
+    
+    /**
+     * 按顺序处理一批消息，确认已处理的部分
+     * @return false 表示处理在某条消息处停止，该消息及其后的消息留在PEL中等待重读
+     */
+    private boolean processEntries(Jedis jedis, String stream, List<StreamEntry> entries) {
+        List<StreamEntryID> acknowledged = new ArrayList<>(entries.size());
+        boolean completed = true;
+        
+        for (StreamEntry entry : entries) {
+            // 被删除的消息在XAUTOCLAIM结果中没有字段，直接确认
+            if (entry.getFields() == null) {
+                acknowledged.add(entry.getID());
+                continue;
+            }
+            
+            DeviceStateMessage message = parseEntry(stream, entry);
+            if (message == null) {
+                // 无法识别的消息，确认后丢弃，避免反复投递
+                acknowledged.add(entry.getID());
+                continue;
+            }
+            
+            if (stateHandler == null) {
+                logger.warn("Device state handler not available, leaving entry {} pending", entry.getID());
+                completed = false;
+                break;
+            }
+            
+            try {
+                stateHandler.startDataGeneration(message.getDeviceId(), message.getState());
+                acknowledged.add(entry.getID());
+            } catch (Exception e) {
+                long deliveries = deliveryCount(jedis, stream, entry.getID());
+                if (deliveries >= maxDeliveries) {
+                    logger.error("Error applying state {} for device {}, entry {} dead-lettered after {} deliveries",
+                                message.getState(), message.getDeviceId(), entry.getID(), deliveries, e);
+                    deadLetter(jedis, stream, entry, e);
+                    acknowledged.add(entry.getID());
+                    continue;
+                }
+                // 不确认，并停止本批次：后续消息不能越过失败的状态变更
+                logger.error("Error applying state {} for device {}, entry {} left pending (delivery {}/{})",
+                            message.getState(), message.getDeviceId(), entry.getID(), deliveries, maxDeliveries, e);
+                completed = false;
+                break;
+            }
+        }
+        
+        messagesConsumed.addAndGet(acknowledged.size());
+        if (!acknowledged.isEmpty()) {
+            jedis.xack(stream, groupName, acknowledged.toArray(new StreamEntryID[0]));
+        }
+        return completed;
+    }
+    
+    /**
+     * 消息被投递给消费者的次数，XREADGROUP重读PEL与XAUTOCLAIM都会递增
+     */
+    private long deliveryCount(Jedis jedis, String stream, StreamEntryID id) {
+        List<StreamPendingEntry> pending = jedis.xpending(stream, groupName,
+                XPendingParams.xPendingParams(id, id, 1));
+        if (pending == null || pending.isEmpty()) {
+            return 0;
+        }
+        return pending.get(0).getDeliveredTimes();
+    }
+    
+    private void deadLetter(Jedis jedis, String stream, StreamEntry entry, Exception cause) {
+        Map<String, String> fields = new LinkedHashMap<>(entry.getFields());
+        fields.put("sourceStream", stream);
+        fields.put("sourceId", entry.getID().toString());
+        fields.put("error", String.valueOf(cause));
+        jedis.xadd(stream + deadLetterSuffix, StreamEntryID.NEW_ENTRY, fields);
+        messagesDeadLettered.incrementAndGet();
+    }
+    
+    private DeviceStateMessage parseEntry(String stream, StreamEntry entry) {
+        Map<String, String> fields = entry.getFields();
+        try {
+            if (fields.containsKey("deviceId") && fields.containsKey("state")) {
+                return new DeviceStateMessage(fields.get("deviceId"), Integer.parseInt(fields.get("state").trim()));
+            }
+            
+            String data = fields.get("message");
+            if (data != null) {
+                DeviceStateMessage message = decoder.decode(data);
+                if (message != null) {
+                    return message;
+                }
+            }
+            
+            logger.info("Received general entry on stream {}: {}", stream, fields);
+        } catch (Exception e) {
+            logger.error("Error processing stream entry {}: {}", entry.getID(), fields, e);
+        }
+        return null;
+    }
+    
+    @Override
+    public void stop() {
+        running.set(false);
+        logger.info("Stopping stream consumer: {}", consumerName);
+    }
+    
+    @Override
+    public boolean isRunning() {
+        return running.get();
+    }
+    
+    @Override
+    public String getName() {
+        return consumerName;
+    }
+    
+    @Override
+    public long getMessagesConsumed() {
+        return messagesConsumed.get();
+    }
+    
+    public long getMessagesClaimed() {
+        return messagesClaimed.get();
+    }
+    
+    public long getMessagesDeadLettered() {
+        return messagesDeadLettered.get();
+    }
+}
@@ -0,0 +1,266 @@
+package com.nexuscale.consumer;
+
+import com.nexuscale.config.ConfigManager;
+import com.nexuscale.redis.RedisConnectionSource;
+import com.nexuscale.redis.RedisManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.args.ListDirection;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 至少一次（at-least-once）语义的Redis列表消费者
+ * 消息通过 LMOVE/BLMOVE 原子地从设备类型队列移动到本消费者的处理中列表，
+ * 处理成功后才从处理中列表删除。进程在处理过程中退出时，消息保留在处理中列表里，
+ * 由 {@link ProcessingListRecovery} 在本节点下次启动时重放，或在本节点心跳过期后由其它节点接管重放。
+ * 多个消费者共享topic集合时按topic分区（见 {@link TopicRotation}），同一topic的消息按顺序处理。
+ *
+ * 处理中列表key：前缀 + topic + ":" + 消费者名称
+ */
+public class ReliableRedisConsumer implements DeviceStateConsumer {
+    private static final Logger logger = LoggerFactory.getLogger(ReliableRedisConsumer.class);
+    private static final double BLOCK_TIMEOUT_SECONDS = 1.0;
+    
+    private final String name;
+    private final TopicRotation rotation;
+    private final RedisConnectionSource connection;
+    private final AtomicBoolean running = new AtomicBoolean(true);
+    private final AtomicLong messagesConsumed = new AtomicLong();
+    private final AtomicLong messagesRetained = new AtomicLong();
+    private final DeviceStateMessageDecoder decoder = new DeviceStateMessageDecoder();
+    private final String processingPrefix;
+    private final int batchSize;
+    private final long pollingInterval;
+    private DeviceStateHandler stateHandler;
+    
+    /**
+     * @param name   消费者名称，同一节点重启后需保持一致，以便找回自己的处理中列表
+     * @param topics 共享的topic集合
+     */
+    public ReliableRedisConsumer(String name, Set<String> topics, RedisManager redisManager) {
+        this.name = name;
+        this.rotation = new TopicRotation(topics);
+        this.connection = redisManager.openConsumerConnection(name);
+        this.processingPrefix = getProcessingPrefix();
+        this.batchSize = Math.max(1, ConfigManager.getIntProperty("app.consumer.batch.size", 100));
+        this.pollingInterval = ConfigManager.getIntProperty("app.polling.interval", 1000);
+    }
+    
+    public static String getProcessingPrefix() {
+        return ConfigManager.getProperty("app.consumer.reliable.prefix", "processing:");
+    }
+    
+    public void setStateHandler(DeviceStateHandler stateHandler) {
+        this.stateHandler = stateHandler;
+    }
+    
+    public void setRotationOffset(int offset) {
+        rotation.setOffset(offset);
+    }
+    
+    /**
+     * 在 count 个共享同一topic集合的消费者中，只消费哈希落在 index 的topic
+     */
+    public void setPartition(int index, int count) {
+        rotation.setPartition(index, count);
+    }
+    
+    @Override
+    public void run() {
+        logger.info("Starting reliable Redis consumer: {}", name);
+        
+        while (running.get() && !Thread.currentThread().isInterrupted()) {
+            String[] keys = rotation.nextKeyOrder();
+            if (keys.length == 0) {
+                if (!TopicRotation.sleepQuietly(pollingInterval)) {
+                    break;
+                }
+                continue;
+            }
+            
+            Jedis jedis = null;
+            try {
+                jedis = connection.acquire();
+                Map<String, List<String>> moved = moveBatch(jedis, keys);
+                
+                if (moved.isEmpty()) {
+                    // 所有队列为空：在本轮排第一的队列上阻塞等待
+                    String topic = keys[0];
+                    String data = jedis.blmove(topic, processingKey(topic),
+                                               ListDirection.LEFT, ListDirection.RIGHT, BLOCK_TIMEOUT_SECONDS);
+                    if (data == null) {
+                        logger.debug("No data available for consumer: {}", name);
+                        continue;
+                    }
+                    List<String> single = new ArrayList<>(1);
+                    single.add(data);
+                    moved.put(topic, single);
+                }
+                
+                for (Map.Entry<String, List<String>> entry : moved.entrySet()) {
+                    processBatch(jedis, entry.getKey(), entry.getValue());
+                }
+            
+            } catch (Exception e) {
+                connection.reportError(e);
+                if (running.get()) {
+                    logger.error("Error consuming in reliable consumer: {}", name, e);
+                    if (!TopicRotation.sleepQuietly(pollingInterval)) {
+                        break;
+                    }
+                }
+            } finally {
+                connection.release(jedis);
+            }
+        }
+        
+        connection.close();
+        logger.info("Reliable Redis consumer stopped: {}", name);
+    }
+    
+    /**
+     * 非阻塞地批量搬运消息到处理中列表
+     * 第一次往返对每个队列各做一次LMOVE，第二次往返只对有数据的队列补足到batchSize条。
+     */
+    private Map<String, List<String>> moveBatch(Jedis jedis, String[] keys) {
+        Map<String, List<String>> moved = new LinkedHashMap<>();
+        
+        Pipeline probe = jedis.pipelined();
+        List<Response<String>> firsts = new ArrayList<>(keys.length);
+        for (String key : keys) {
+            firsts.add(probe.lmove(key, processingKey(key), ListDirection.LEFT, ListDirection.RIGHT));
+        }
+        probe.sync();
+        
+        for (int i = 0; i < keys.length; i++) {
+            String data = firsts.get(i).get();
+            if (data != null) {
+                List<String> batch = new ArrayList<>(batchSize);
+                batch.add(data);
+                moved.put(keys[i], batch);
+            }
+        }
+        
+        if (moved.isEmpty() || batchSize <= 1) {
+            return moved;
+        }
+        
+        Pipeline fill = jedis.pipelined();
+        Map<String, List<Response<String>>> pending = new LinkedHashMap<>();
+        for (String key : moved.keySet()) {
+            List<Response<String>> responses = new ArrayList<>(batchSize - 1);
+            for (int i = 1; i < batchSize; i++) {
+                responses.add(fill.lmove(key, processingKey(key), ListDirection.LEFT, ListDirection.RIGHT));
+            }
+            pending.put(key, responses);
+        }
+        fill.sync();
+        
+        for (Map.Entry<String, List<Response<String>>> entry : pending.entrySet()) {
+            List<String> batch = moved.get(entry.getKey());
+            for (Response<String> response : entry.getValue()) {
+                String data = response.get();
+                if (data == null) {
+                    break;
+                }
+                batch.add(data);
+            }
+        }
+        return moved;
+    }
+    
+    private void processBatch(Jedis jedis, String topic, List<String> batch) {
+        messagesConsumed.addAndGet(batch.size());
+        logger.info("Moved {} messages from topic {} to processing list", batch.size(), topic);
+        
+        List<String> completed = new ArrayList<>(batch.size());
+        for (String data : batch) {
+            if (handle(topic, data)) {
+                completed.add(data);
+            } else {
+                messagesRetained.incrementAndGet();
+            }
+        }
+        
+        // 处理完成的消息从处理中列表删除，失败的保留等待下次启动重放
+        if (!completed.isEmpty()) {
+            String processingKey = processingKey(topic);
+            Pipeline pipeline = jedis.pipelined();
+            for (String data : completed) {
+                pipeline.lrem(processingKey, 1, data);
+            }
+            pipeline.sync();
+        }
+    }
+    
+    /**
+     * @return true 表示消息已处理完毕（包括无法识别而丢弃的消息），可以从处理中列表删除
+     */
+    private boolean handle(String topic, String data) {
+        DeviceStateMessage message;
+        try {
+            message = decoder.decode(data);
+        } catch (Exception e) {
+            logger.error("Error parsing message, dropping: {}", data, e);
+            return true;
+        }
+        
+        if (message == null) {
+            logger.info("Received general message on topic {}: {}", topic, data);
+            return true;
+        }
+        
+        if (stateHandler == null) {
+            logger.warn("Device state handler not available, keeping message in processing list: {}", data);
+            return false;
+        }
+        
+        try {
+            stateHandler.startDataGeneration(message.getDeviceId(), message.getState());
+            return true;
+        } catch (Exception e) {
+            logger.error("Error applying state {} for device {}, keeping message in processing list",
+                        message.getState(), message.getDeviceId(), e);
+            return false;
+        }
+    }
+    
+    private String processingKey(String topic) {
+        return processingPrefix + topic + ":" + name;
+    }
+    
+    @Override
+    public void stop() {
+        running.set(false);
+        logger.info("Stopping reliable consumer: {}", name);
+    }
+    
+    @Override
+    public boolean isRunning() {
+        return running.get();
+    }
+    
+    @Override
+    public String getName() {
+        return name;
+    }
+    
+    @Override
+    public long getMessagesConsumed() {
+        return messagesConsumed.get();
+    }
+    
+    public long getMessagesRetained() {
+        return messagesRetained.get();
+    }
+}
@@ -0,0 +1,80 @@
+package com.nexuscale.consumer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 列表消费者（list / reliable 模式）共用的topic轮换
+ * 每轮从共享topic集合取快照，只保留本消费者分区内的topic，并把起始位置后移一位，
+ * 避免排在前面的队列长期独占消费。
+ * 多个消费者共享同一个集合时按topic哈希分区，每个topic只由一个消费者消费，
+ * 同一topic内的状态消息按入队顺序生效；增删其它topic不会改变已有topic的归属。
+ */
+class TopicRotation {
+    private final Set<String> topics;
+    private int rotation;
+    private int partitionIndex = 0;
+    private int partitionCount = 1;
+    
+    TopicRotation(Set<String> topics) {
+        this.topics = topics;
+    }
+    
+    void setOffset(int offset) {
+        this.rotation = offset;
+    }
+    
+    void setPartition(int index, int count) {
+        if (count < 1 || index < 0 || index >= count) {
+            throw new IllegalArgumentException("Invalid partition " + index + " of " + count);
+        }
+        this.partitionIndex = index;
+        this.partitionCount = count;
+    }
+    
+    /**
+     * 本轮的key顺序，没有可消费的topic时返回空数组
+     */
+    String[] nextKeyOrder() {
+        String[] snapshot = ownedTopics();
+        int size = snapshot.length;
+        if (size <= 1) {
+            return snapshot;
+        }
+        
+        int start = Math.floorMod(rotation++, size);
+        String[] keys = new String[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = snapshot[(start + i) % size];
+        }
+        return keys;
+    }
+    
+    private String[] ownedTopics() {
+        if (partitionCount <= 1) {
+            return topics.toArray(new String[0]);
+        }
+        List<String> owned = new ArrayList<>();
+        for (String topic : topics) {
+            if (Math.floorMod(topic.hashCode(), partitionCount) == partitionIndex) {
+                owned.add(topic);
+            }
+        }
+        return owned.toArray(new String[0]);
+    }
+    
+    /**
+     * 没有可消费的topic或出错后等待一个轮询间隔
+     * @return false 表示等待被中断，消费者应退出
+     */
+    static boolean sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,476 @@
+package com.nexuscale.database;
+
+import com.nexuscale.config.ConfigManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 设备目录：device 和 device_template 的内存副本
+ * 启动时整表加载，之后按 update_time 水位线增量刷新；
+ * 增量刷新后若设备数与数据库不一致（有删除），退化为一次整表加载。
+ * 水位线依赖修改设备时更新 update_time；现有表结构中该列没有 ON UPDATE CURRENT_TIMESTAMP，
+ * 只改其它列的UPDATE对增量刷新不可见，因此每隔 app.catalog.full.reload.ms 做一次整表加载兜底。
+ * 执行 ALTER TABLE device MODIFY update_time TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+ * ON UPDATE CURRENT_TIMESTAMP 之后可以把该间隔设为0。
+ * device_template 只有少量行，每次刷新都整表读取并比较，有变化时通知监听者。
+ * 查询设备（状态消息处理路径）只读内存，不访问数据库。目录以 device_id 的十进制形式为键，
+ * 查询时先把ID规范化（"007"、" 7" 都是设备7），非数字ID直接拒绝。
+ * {@link #inMemory} 创建不连接数据库的目录，供压测模拟器使用。
+ */
+public class DeviceCatalog {
+    private static final Logger logger = LoggerFactory.getLogger(DeviceCatalog.class);
+    
+    private static final String DEVICE_COLUMNS = "SELECT device_id, device_name, state, dt_id, update_time FROM device";
+    private static final String TEMPLATE_QUERY = "SELECT dt_id, en_name, template FROM device_template";
+    
+    private final DatabaseManager databaseManager;
+    private final long refreshIntervalMillis;
+    private final long fullReloadIntervalMillis;
+    private final long missRefreshIntervalNanos;
+    private final Map<String, DeviceEntry> devices = new ConcurrentHashMap<>();
+    private volatile Map<Integer, TemplateEntry> templates = new ConcurrentHashMap<>();
+    private volatile Runnable templateListener;
+    private ScheduledExecutorService refreshScheduler;
+    
+    // 已加载的最大 update_time，增量刷新从这里开始（含等于，秒级精度下同一秒的更新不会漏掉）
+    private Timestamp watermark;
+    private volatile boolean loaded;
+    
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong refreshes = new AtomicLong();
+    private final AtomicLong fullLoads = new AtomicLong();
+    private volatile long lastRefreshStartNanos;
+    private volatile long lastRefreshMillis;
+    private volatile int lastRefreshRows;
+    private volatile long lastFullLoadMillis;
+    private volatile long lastFullLoadTime;
+    // 上次由未命中触发的刷新开始时间
+    private volatile long lastMissRefreshNanos;
+    
+    public DeviceCatalog(DatabaseManager databaseManager) {
+        this.databaseManager = databaseManager;
+        this.refreshIntervalMillis = ConfigManager.getIntProperty("app.catalog.refresh.ms", 30000);
+        this.fullReloadIntervalMillis = ConfigManager.getIntProperty("app.catalog.full.reload.ms", 600000);
+        this.missRefreshIntervalNanos = TimeUnit.MILLISECONDS.toNanos(
+                ConfigManager.getIntProperty("app.catalog.miss.refresh.min.ms", 1000));
+        this.lastMissRefreshNanos = System.nanoTime() - missRefreshIntervalNanos;
+    }
+    
+    /**
+     * 把设备ID规范化为目录中的键（int的十进制形式）
+     * @throws IllegalArgumentException ID不是数字
+     */
+    public static String normalizeDeviceId(String deviceId) {
+        if (deviceId == null) {
+            throw new IllegalArgumentException("Device id is missing");
+        }
+        try {
+            return String.valueOf(Integer.parseInt(deviceId.trim()));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid device id: " + deviceId, e);
+        }
+    }
+    
+    /**
+     * 由调用方直接提供设备和模板的目录，加载和刷新都不访问数据库
+     */
+    public static DeviceCatalog inMemory(Collection<TemplateEntry> templateEntries, Collection<DeviceEntry> deviceEntries) {
+        DeviceCatalog catalog = new DeviceCatalog(null);
+        for (TemplateEntry template : templateEntries) {
+            catalog.templates.put(template.dtId, template);
+        }
+        for (DeviceEntry device : deviceEntries) {
+            catalog.devices.put(device.deviceId, device);
+        }
+        catalog.loaded = true;
+        return catalog;
+    }
+    
+    /**
+     * 模板有变化时回调（在刷新线程中执行）
+     */
+    public void setTemplateListener(Runnable templateListener) {
+        this.templateListener = templateListener;
+    }
+    
+    /**
+     * 启动定时增量刷新，间隔<=0时不启动
+     */
+    public synchronized void startRefresh() {
+        if (refreshScheduler != null || refreshIntervalMillis <= 0 || databaseManager == null) {
+            return;
+        }
+        refreshScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "device-catalog-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        refreshScheduler.scheduleWithFixedDelay(() -> {
+            try {
+                refresh();
+            } catch (Exception e) {
+                logger.error("Error refreshing device catalog", e);
+            }
+        }, refreshIntervalMillis, refreshIntervalMillis, TimeUnit.MILLISECONDS);
+        logger.info("Device catalog refresh scheduled every {} ms", refreshIntervalMillis);
+    }
+    
+    public synchronized void stopRefresh() {
+        if (refreshScheduler != null) {
+            refreshScheduler.shutdownNow();
+            refreshScheduler = null;
+        }
+    }
+    
+    /**
+     * 整表加载设备和模板
+     */
+    public synchronized void loadAll() {
+        if (databaseManager == null) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        lastRefreshStartNanos = System.nanoTime();
+        
+        try (Connection conn = databaseManager.getConnection()) {
+            Map<String, DeviceEntry> loadedDevices = new ConcurrentHashMap<>();
+            Timestamp maxUpdate = null;
+            try (Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery(DEVICE_COLUMNS)) {
+                while (rs.next()) {
+                    DeviceEntry entry = readDevice(rs);
+                    loadedDevices.put(entry.deviceId, entry);
+                    maxUpdate = later(maxUpdate, rs.getTimestamp("update_time"));
+                }
+            }
+            
+            // 先放入新数据再删除已不存在的设备，加载过程中读者不会看到空目录
+            devices.putAll(loadedDevices);
+            devices.keySet().retainAll(loadedDevices.keySet());
+            watermark = maxUpdate;
+            reloadTemplates(conn);
+            loaded = true;
+        
+        } catch (SQLException e) {
+            logger.error("Error loading device catalog", e);
+            throw new RuntimeException("Failed to load device catalog", e);
+        }
+        
+        fullLoads.incrementAndGet();
+        lastFullLoadTime = System.currentTimeMillis();
+        lastFullLoadMillis = lastFullLoadTime - start;
+        logger.info("Device catalog loaded: {} devices, {} templates in {} ms",
+                   devices.size(), templates.size(), lastFullLoadMillis);
+    }
+    
+    /**
+     * 增量刷新：读取 update_time 不早于水位线的设备，并重新读取模板表；
+     * 距上次整表加载超过 app.catalog.full.reload.ms 时改为整表加载
+     */
+    public synchronized void refresh() {
+        if (databaseManager == null) {
+            return;
+        }
+        if (!loaded) {
+            loadAll();
+            return;
+        }
+        if (fullReloadIntervalMillis > 0 && System.currentTimeMillis() - lastFullLoadTime >= fullReloadIntervalMillis) {
+            // 未更新 update_time 的修改只能通过整表加载发现
+            loadAll();
+            return;
+        }
+        
+        long start = System.currentTimeMillis();
+        lastRefreshStartNanos = System.nanoTime();
+        int rows = 0;
+        boolean needFullLoad = false;
+        
+        try (Connection conn = databaseManager.getConnection()) {
+            String sql = DEVICE_COLUMNS + (watermark != null ? " WHERE update_time >= ?" : "");
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                if (watermark != null) {
+                    stmt.setTimestamp(1, watermark);
+                }
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        DeviceEntry entry = readDevice(rs);
+                        devices.put(entry.deviceId, entry);
+                        watermark = later(watermark, rs.getTimestamp("update_time"));
+                        rows++;
+                    }
+                }
+            }
+            
+            // 水位线看不到删除，用行数核对
+            try (Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM device")) {
+                needFullLoad = rs.next() && rs.getInt(1) != devices.size();
+            }
+            
+            if (!needFullLoad) {
+                reloadTemplates(conn);
+            }
+        
+        } catch (SQLException e) {
+            logger.error("Error refreshing device catalog, keeping cached data", e);
+            return;
+        }
+        
+        if (needFullLoad) {
+            logger.info("Device count changed beyond updates, reloading device catalog");
+            loadAll();
+            return;
+        }
+        
+        refreshes.incrementAndGet();
+        lastRefreshRows = rows;
+        lastRefreshMillis = System.currentTimeMillis() - start;
+        logger.debug("Device catalog refreshed: {} changed devices in {} ms", rows, lastRefreshMillis);
+    }
+    
+    /**
+     * 内存中查询设备，不访问数据库
+     * @throws IllegalArgumentException ID不是数字
+     */
+    public DeviceEntry getDevice(String deviceId) {
+        DeviceEntry entry = devices.get(normalizeDeviceId(deviceId));
+        if (entry != null) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+        }
+        return entry;
+    }
+    
+    /**
+     * 未命中时的补救：若本次未命中之后还没有开始过刷新，则做一次增量刷新再查一次。
+     * 多个线程同时未命中同一批新设备时只会触发一次刷新；未命中触发的刷新之间至少间隔
+     * app.catalog.miss.refresh.min.ms，间隔内的未命中先等待到间隔结束，不存在的ID不会让刷新频繁执行。
+     * 只应在后台线程调用（可能等待）。
+     * @throws IllegalArgumentException ID不是数字
+     */
+    public DeviceEntry getDeviceRefreshingOnMiss(String deviceId) {
+        String key = normalizeDeviceId(deviceId);
+        DeviceEntry entry = getDevice(key);
+        if (entry != null || databaseManager == null) {
+            return entry;
+        }
+        
+        long missedAt = System.nanoTime();
+        long waitNanos = lastMissRefreshNanos + missRefreshIntervalNanos - missedAt;
+        if (waitNanos > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return devices.get(key);
+            }
+        }
+        synchronized (this) {
+            if (lastRefreshStartNanos - missedAt < 0) {
+                lastMissRefreshNanos = System.nanoTime();
+                refresh();
+            }
+        }
+        return devices.get(key);
+    }
+    
+    public List<DeviceEntry> getActiveDevices() {
+        List<DeviceEntry> active = new ArrayList<>();
+        for (DeviceEntry entry : devices.values()) {
+            if (entry.state == 1) {
+                active.add(entry);
+            }
+        }
+        return active;
+    }
+    
+    public TemplateEntry getTemplate(int dtId) {
+        return templates.get(dtId);
+    }
+    
+    public Collection<TemplateEntry> getTemplates() {
+        return templates.values();
+    }
+    
+    /**
+     * 设备类型（模板的 en_name，去重，忽略空值），与 DatabaseManager.getDeviceTypes 一致
+     */
+    public List<String> getDeviceTypes() {
+        Set<String> deviceTypes = new LinkedHashSet<>();
+        for (TemplateEntry template : templates.values()) {
+            if (template.enName != null && !template.enName.isEmpty()) {
+                deviceTypes.add(template.enName);
+            }
+        }
+        return new ArrayList<>(deviceTypes);
+    }
+    
+    private void reloadTemplates(Connection conn) throws SQLException {
+        Map<Integer, TemplateEntry> loadedTemplates = new ConcurrentHashMap<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(TEMPLATE_QUERY)) {
+            while (rs.next()) {
+                int dtId = rs.getInt("dt_id");
+                loadedTemplates.put(dtId, new TemplateEntry(dtId, rs.getString("en_name"), rs.getString("template")));
+            }
+        }
+        
+        if (loadedTemplates.equals(templates)) {
+            return;
+        }
+        templates = loadedTemplates;
+        logger.info("Device templates changed: {} templates", loadedTemplates.size());
+        
+        Runnable listener = templateListener;
+        if (listener != null) {
+            listener.run();
+        }
+    }
+    
+    private static DeviceEntry readDevice(ResultSet rs) throws SQLException {
+        return new DeviceEntry(String.valueOf(rs.getInt("device_id")), rs.getString("device_name"),
+                               rs.getInt("state"), rs.getInt("dt_id"));
+    }
+    
+    private static Timestamp later(Timestamp current, Timestamp candidate) {
+        if (candidate == null) {
+            return current;
+        }
+        return current == null || candidate.after(current) ? candidate : current;
+    }
+    
+    public boolean isLoaded() {
+        return loaded;
+    }
+    
+    public int size() {
+        return devices.size();
+    }
+    
+    public long getHits() {
+        return hits.get();
+    }
+    
+    public long getMisses() {
+        return misses.get();
+    }
+    
+    public long getRefreshCount() {
+        return refreshes.get();
+    }
+    
+    public long getFullLoadCount() {
+        return fullLoads.get();
+    }
+    
+    public long getLastRefreshMillis() {
+        return lastRefreshMillis;
+    }
+    
+    public int getLastRefreshRows() {
+        return lastRefreshRows;
+    }
+    
+    public long getLastFullLoadMillis() {
+        return lastFullLoadMillis;
+    }
+    
+    /**
+     * 设备行（只保留数据生成需要的列）
+     */
+    public static final class DeviceEntry {
+        private final String deviceId;
+        private final String deviceName;
+        private final int state;
+        private final int dtId;
+        
+        public DeviceEntry(String deviceId, String deviceName, int state, int dtId) {
+            this.deviceId = deviceId;
+            this.deviceName = deviceName;
+            this.state = state;
+            this.dtId = dtId;
+        }
+        
+        public String getDeviceId() {
+            return deviceId;
+        }
+        
+        public String getDeviceName() {
+            return deviceName;
+        }
+        
+        public int getState() {
+            return state;
+        }
+        
+        public int getDtId() {
+            return dtId;
+        }
+    }
+    
+    /**
+     * 模板行
+     */
+    public static final class TemplateEntry {
+        private final int dtId;
+        private final String enName;
+        private final String template;
+        
+        public TemplateEntry(int dtId, String enName, String template) {
+            this.dtId = dtId;
+            this.enName = enName;
+            this.template = template;
+        }
+        
+        public int getDtId() {
+            return dtId;
+        }
+        
+        public String getEnName() {
+            return enName;
+        }
+        
+        public String getTemplate() {
+            return template;
+        }
+        
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof TemplateEntry)) {
+                return false;
+            }
+            TemplateEntry that = (TemplateEntry) o;
+            return dtId == that.dtId && Objects.equals(enName, that.enName) && Objects.equals(template, that.template);
+        }
+        
+        @Override
+        public int hashCode() {
+            return Objects.hash(dtId, enName, template);
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package com.nexuscale.generator;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 预编译的设备模板
+ * 模板JSON只在编译时解析一次，range字符串拆成每个字段的 min / max / 精度，
+ * 同一模板的所有设备共享同一个实例，生成数据时只做算术运算。
+ *
+ * 生成结果与原 generateCompleteJsonByType 一致：
+ * - 单值类型：{enName: {value: x}}
+ * - air_component / soil_npk / soil_trace_elements：{enName: {co2_value: x, ...}}
+ *
+ * 模板可以用 "interval_ms" 指定采样间隔（设备类型节点内或模板顶层），未指定时为0。
+ */
+public final class CompiledTemplate {
+    private static final Logger logger = LoggerFactory.getLogger(CompiledTemplate.class);
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    
+    // 多元素类型：输出字段名为 元素名 + "_value"，元素定义位于模板顶层
+    private static final Map<String, String[]> COMPOSITE_ELEMENTS = new HashMap<>();
+    
+    static {
+        COMPOSITE_ELEMENTS.put("air_component", new String[]{"co2", "o2", "pm25"});
+        COMPOSITE_ELEMENTS.put("soil_npk", new String[]{"nitrogen", "phosphorus", "potassium"});
+        COMPOSITE_ELEMENTS.put("soil_trace_elements", new String[]{"iron", "zinc", "copper", "manganese"});
+    }
+    
+    private final int dtId;
+    private final String enName;
+    private final Field[] fields;
+    // 模板中没有该设备类型的定义时不生成任何数据
+    private final boolean empty;
+    // 模板指定的采样间隔（毫秒），0表示未指定
+    private final long intervalMillis;
+    
+    private CompiledTemplate(int dtId, String enName, Field[] fields, boolean empty, long intervalMillis) {
+        this.dtId = dtId;
+        this.enName = enName;
+        this.fields = fields;
+        this.empty = empty;
+        this.intervalMillis = intervalMillis;
+    }
+    
+    /**
+     * 编译模板，解析失败时退化为 0~100 的随机值
+     */
+    public static CompiledTemplate compile(int dtId, String enName, String template) {
+        try {
+            JsonNode templateNode = objectMapper.readTree(template);
+            
+            // 根据设备类型获取对应的模板节点
+            JsonNode deviceTypeNode = templateNode.get(enName);
+            if (deviceTypeNode == null) {
+                logger.warn("No template found for device type: {}", enName);
+                return new CompiledTemplate(dtId, enName, new Field[0], true, 0);
+            }
+            
+            List<Field> fields = new ArrayList<>();
+            String[] elements = COMPOSITE_ELEMENTS.get(enName.toLowerCase());
+            if (elements != null) {
+                for (String element : elements) {
+                    if (templateNode.has(element)) {
+                        fields.add(Field.fromRange(element + "_value", templateNode.get(element).get("range")));
+                    }
+                }
+            } else {
+                // 单值类型（包括未知类型）都从自身节点的range字段生成，没有range时为0~100随机值
+                fields.add(Field.fromRange("value", deviceTypeNode.get("range")));
+            }
+            
+            JsonNode interval = deviceTypeNode.has("interval_ms") ? deviceTypeNode.get("interval_ms") 
+                                                                  : templateNode.get("interval_ms");
+            long intervalMillis = interval != null && interval.asLong() > 0 ? interval.asLong() : 0;
+            
+            return new CompiledTemplate(dtId, enName, fields.toArray(new Field[0]), false, intervalMillis);
+        
+        } catch (Exception e) {
+            logger.error("Error parsing template for device type {}: {}", enName, e.getMessage());
+            return new CompiledTemplate(dtId, enName, new Field[]{Field.unbounded("value")}, false, 0);
+        }
+    }
+    
+    /**
+     * 生成一条完整的传感器数据
+     */
+    public Map<String, Object> generate(ValueEngine engine, DeviceSignal signal, long timestamp) {
+        Map<String, Object> data = new HashMap<>();
+        if (empty) {
+            return data;
+        }
+        
+        signal.ensureFields(fields.length);
+        Map<String, Object> generatedData = new HashMap<>();
+        for (int i = 0; i < fields.length; i++) {
+            generatedData.put(fields[i].name, fields[i].next(engine, signal, i, timestamp));
+        }
+        data.put(enName, generatedData);
+        return data;
+    }
+    
+    /**
+     * 把各字段取值写入调用方提供的数组（按字段顺序），不分配对象
+     * @return 写入的字段数
+     */
+    public int fill(ValueEngine engine, DeviceSignal signal, long timestamp, double[] values) {
+        if (empty) {
+            return 0;
+        }
+        signal.ensureFields(fields.length);
+        for (int i = 0; i < fields.length; i++) {
+            values[i] = fields[i].next(engine, signal, i, timestamp);
+        }
+        return fields.length;
+    }
+    
+    public int getFieldCount() {
+        return fields.length;
+    }
+    
+    public String getFieldName(int index) {
+        return fields[index].name;
+    }
+    
+    public int getDtId() {
+        return dtId;
+    }
+    
+    public String getEnName() {
+        return enName;
+    }
+    
+    public long getIntervalMillis() {
+        return intervalMillis;
+    }
+    
+    /**
+     * 单个字段的取值规则
+     * 支持的range格式：
+     * - "0~100" -> 在0到100之间生成随机值，按范围大小保留1~3位小数
+     * - "37" -> 固定值37
+     * - 缺失或无法解析 -> 0~100随机值，不取整
+     */
+    static final class Field {
+        final String name;
+        final double min;
+        final double span;
+        // 取整倍数：10表示保留1位小数，0表示不取整
+        final double scale;
+        
+        private Field(String name, double min, double span, double scale) {
+            this.name = name;
+            this.min = min;
+            this.span = span;
+            this.scale = scale;
+        }
+        
+        static Field unbounded(String name) {
+            return new Field(name, 0.0, 100.0, 0);
+        }
+        
+        static Field fromRange(String name, JsonNode rangeNode) {
+            if (rangeNode == null || rangeNode.isNull()) {
+                return unbounded(name);
+            }
+            
+            String range = rangeNode.asText();
+            try {
+                if (range.contains("~")) {
+                    String[] parts = range.split("~");
+                    if (parts.length == 2) {
+                        double min = Double.parseDouble(parts[0].trim());
+                        double max = Double.parseDouble(parts[1].trim());
+                        double span = max - min;
+                        
+                        // 根据数值大小决定保留的小数位数
+                        double scale = span > 100 ? 10.0 : span > 10 ? 100.0 : 1000.0;
+                        return new Field(name, min, span, scale);
+                    }
+                } else {
+                    // 固定值
+                    return new Field(name, Double.parseDouble(range.trim()), 0.0, 0);
+                }
+            } catch (NumberFormatException e) {
+                logger.warn("Invalid range format: {}, using random value", range);
+            }
+            return unbounded(name);
+        }
+        
+        double next(ValueEngine engine, DeviceSignal signal, int index, long timestamp) {
+            if (span == 0.0 && scale == 0) {
+                return min;
+            }
+            double value = engine.next(signal, index, min, span, timestamp);
+            return scale == 0 ? value : Math.round(value * scale) / scale;
+        }
+    }
+}
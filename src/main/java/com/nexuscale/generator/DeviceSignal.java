@@ -0,0 +1,39 @@
+package com.nexuscale.generator;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * 单个设备的数值生成状态
+ * 随机数流由全局种子和deviceId确定，同一设备每次运行得到相同的序列；
+ * 每个设备独占自己的流，不同设备之间不共享任何可变状态。
+ * 本类不是线程安全的：由生成服务保证同一个DeviceSignal同一时刻只被一个工作线程使用——
+ * 时间轮对每个周期任务单次执行（上一次未结束时跳过到期），调整采样间隔时的替换任务与旧任务共用执行中标记；
+ * 相邻两次执行之间通过该标记建立happens-before，不需要额外同步。
+ * 设备重新开启时会创建新的DeviceSignal，旧任务尚未结束的最后一次执行只使用旧对象。
+ */
+public final class DeviceSignal {
+    final SplittableRandom random;
+    // 随机游走模式下每个字段的上一次取值，NaN表示尚未初始化
+    double[] last;
+    
+    DeviceSignal(long seed, int fieldCount) {
+        this.random = new SplittableRandom(seed);
+        this.last = newState(fieldCount);
+    }
+    
+    /**
+     * 模板字段数变化（模板被修改）时重置状态
+     */
+    void ensureFields(int fieldCount) {
+        if (last.length != fieldCount) {
+            last = newState(fieldCount);
+        }
+    }
+    
+    private static double[] newState(int fieldCount) {
+        double[] state = new double[fieldCount];
+        Arrays.fill(state, Double.NaN);
+        return state;
+    }
+}
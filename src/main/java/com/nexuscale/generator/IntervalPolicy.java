@@ -0,0 +1,61 @@
+package com.nexuscale.generator;
+
+import com.nexuscale.config.ConfigManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 设备采样间隔的取值规则，优先级从高到低：
+ * 1. app.generator.interval.device.&lt;deviceId&gt;  单个设备
+ * 2. app.generator.interval.&lt;en_name&gt;          设备类型
+ * 3. 模板中的 interval_ms
+ * 4. app.generator.interval.ms                    全局默认（60000）
+ * 间隔支持小于1秒，但不会小于时间轮的刻度。
+ */
+public class IntervalPolicy {
+    private static final Logger logger = LoggerFactory.getLogger(IntervalPolicy.class);
+    
+    private final long defaultIntervalMillis;
+    private final long minIntervalMillis;
+    
+    /**
+     * @param minIntervalMillis 可调度的最小间隔，即时间轮刻度
+     */
+    public IntervalPolicy(long minIntervalMillis) {
+        this.defaultIntervalMillis = ConfigManager.getIntProperty("app.generator.interval.ms", 60000);
+        this.minIntervalMillis = minIntervalMillis;
+    }
+    
+    public long intervalFor(String deviceId, CompiledTemplate template) {
+        long interval = configured("app.generator.interval.device." + deviceId);
+        if (interval <= 0 && template != null) {
+            interval = configured("app.generator.interval." + template.getEnName());
+            if (interval <= 0) {
+                interval = template.getIntervalMillis();
+            }
+        }
+        if (interval <= 0) {
+            interval = defaultIntervalMillis;
+        }
+        
+        if (interval < minIntervalMillis) {
+            logger.warn("Interval {} ms for device {} is below the scheduler tick, using {} ms",
+                       interval, deviceId, minIntervalMillis);
+            return minIntervalMillis;
+        }
+        return interval;
+    }
+    
+    private static long configured(String key) {
+        String value = ConfigManager.getProperty(key);
+        if (value == null || value.trim().isEmpty()) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            logger.warn("Invalid interval {}={}, ignoring", key, value);
+            return 0;
+        }
+    }
+}
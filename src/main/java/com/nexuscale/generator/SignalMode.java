@@ -0,0 +1,20 @@
+package com.nexuscale.generator;
+
+/**
+ * 传感器数值的变化方式
+ */
+public enum SignalMode {
+    // 每次在模板范围内独立均匀取值（原行为）
+    UNIFORM,
+    // 在上一次读数基础上随机游走，碰到范围边界时反射
+    RANDOM_WALK,
+    // 以24小时为周期的正弦曲线（14:00最高），叠加少量噪声
+    DIURNAL;
+    
+    public static SignalMode fromConfig(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return UNIFORM;
+        }
+        return valueOf(value.trim().toUpperCase().replace('-', '_'));
+    }
+}
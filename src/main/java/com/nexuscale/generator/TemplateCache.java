@@ -0,0 +1,40 @@
+package com.nexuscale.generator;
+
+import com.nexuscale.database.DeviceCatalog;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 按 dt_id 缓存的预编译模板
+ * 设备只保存 dt_id，生成数据时从这里取共享的 {@link CompiledTemplate}。
+ * reload() 整体重建后一次性替换，替换期间正在生成的刻度仍能读到旧模板。
+ */
+public class TemplateCache {
+    private static final Logger logger = LoggerFactory.getLogger(TemplateCache.class);
+    
+    private volatile Map<Integer, CompiledTemplate> templates = new ConcurrentHashMap<>();
+    
+    public CompiledTemplate get(int dtId) {
+        return templates.get(dtId);
+    }
+    
+    /**
+     * 丢弃所有已编译模板，按设备目录中的模板重新编译
+     */
+    public void reload(Collection<DeviceCatalog.TemplateEntry> entries) {
+        Map<Integer, CompiledTemplate> reloaded = new ConcurrentHashMap<>();
+        for (DeviceCatalog.TemplateEntry entry : entries) {
+            reloaded.put(entry.getDtId(), CompiledTemplate.compile(entry.getDtId(), entry.getEnName(), entry.getTemplate()));
+        }
+        templates = reloaded;
+        logger.info("Compiled {} device templates", reloaded.size());
+    }
+    
+    public int size() {
+        return templates.size();
+    }
+}
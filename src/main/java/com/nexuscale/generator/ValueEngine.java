@@ -0,0 +1,128 @@
+package com.nexuscale.generator;
+
+import com.nexuscale.config.ConfigManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 传感器数值生成引擎
+ * - 每个设备一个 SplittableRandom 流，种子 = mix(全局种子, deviceId)，无竞争且可复现
+ * - 支持均匀随机、随机游走、日周期曲线三种信号，取值始终落在模板范围内
+ * - 生成单个数值不分配对象
+ *
+ * 配置：app.generator.seed（为空时随机生成并打印，便于复现）、
+ *      app.generator.signal（uniform | random_walk | diurnal）、
+ *      app.generator.walk.step（随机游走每步最大幅度占范围的比例）
+ */
+public class ValueEngine {
+    private static final Logger logger = LoggerFactory.getLogger(ValueEngine.class);
+    private static final long DAY_MILLIS = TimeUnit.DAYS.toMillis(1);
+    // 日周期曲线峰值时刻：14:00
+    private static final long PEAK_MILLIS = TimeUnit.HOURS.toMillis(14);
+    private static final double DIURNAL_NOISE = 0.05;
+    
+    private final long seed;
+    private final SignalMode mode;
+    private final double walkStep;
+    private final long zoneOffsetMillis;
+    
+    public ValueEngine() {
+        this(resolveSeed(ConfigManager.getProperty("app.generator.seed", "")),
+             SignalMode.fromConfig(ConfigManager.getProperty("app.generator.signal", "uniform")),
+             ConfigManager.getDoubleProperty("app.generator.walk.step", 0.05));
+    }
+    
+    public ValueEngine(long seed, SignalMode mode, double walkStep) {
+        this.seed = seed;
+        this.mode = mode;
+        this.walkStep = walkStep;
+        this.zoneOffsetMillis = TimeZone.getDefault().getRawOffset();
+        logger.info("Value engine initialized: seed={}, signal={}, walkStep={}", seed, mode, walkStep);
+    }
+    
+    private static long resolveSeed(String configured) {
+        if (configured != null && !configured.trim().isEmpty()) {
+            return Long.parseLong(configured.trim());
+        }
+        return System.nanoTime() ^ System.currentTimeMillis();
+    }
+    
+    /**
+     * 为设备创建独立的随机数流
+     */
+    public DeviceSignal newSignal(String deviceId, int fieldCount) {
+        return new DeviceSignal(mix(seed ^ deviceKey(deviceId)), fieldCount);
+    }
+    
+    private static long deviceKey(String deviceId) {
+        try {
+            return mix(Long.parseLong(deviceId));
+        } catch (NumberFormatException e) {
+            return mix(deviceId.hashCode());
+        }
+    }
+    
+    /**
+     * SplitMix64 混合函数，让相邻的deviceId得到不相关的种子
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+    
+    /**
+     * 生成字段在 timestamp 时刻的取值（未取整）
+     */
+    double next(DeviceSignal signal, int fieldIndex, double min, double span, long timestamp) {
+        switch (mode) {
+            case RANDOM_WALK:
+                return walk(signal, fieldIndex, min, span);
+            case DIURNAL:
+                return diurnal(signal, min, span, timestamp);
+            default:
+                return min + signal.random.nextDouble() * span;
+        }
+    }
+    
+    private double walk(DeviceSignal signal, int fieldIndex, double min, double span) {
+        double previous = signal.last[fieldIndex];
+        double value;
+        if (Double.isNaN(previous)) {
+            value = min + signal.random.nextDouble() * span;
+        } else {
+            value = previous + (signal.random.nextDouble() * 2 - 1) * walkStep * span;
+            // 越界时反射回范围内
+            double max = min + span;
+            if (value > max) {
+                value = max - (value - max);
+            } else if (value < min) {
+                value = min + (min - value);
+            }
+            value = Math.max(min, Math.min(max, value));
+        }
+        signal.last[fieldIndex] = value;
+        return value;
+    }
+    
+    private double diurnal(DeviceSignal signal, double min, double span, long timestamp) {
+        long timeOfDay = Math.floorMod(timestamp + zoneOffsetMillis - PEAK_MILLIS, DAY_MILLIS);
+        double phase = 2 * Math.PI * timeOfDay / DAY_MILLIS;
+        // cos在峰值时刻为1，对应范围上限附近；噪声占范围的 ±5%
+        double level = 0.5 + 0.45 * Math.cos(phase);
+        double noise = (signal.random.nextDouble() * 2 - 1) * DIURNAL_NOISE;
+        double ratio = Math.max(0.0, Math.min(1.0, level + noise));
+        return min + ratio * span;
+    }
+    
+    public long getSeed() {
+        return seed;
+    }
+    
+    public SignalMode getMode() {
+        return mode;
+    }
+}
@@ -2,16 +2,32 @@ package com.nexuscale.hbase;
 
 import com.nexuscale.config.ConfigManager;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.DoNotRetryIOException;
 import org.apache.hadoop.hbase.HBaseConfiguration;
 import org.apache.hadoop.hbase.TableName;
 import org.apache.hadoop.hbase.client.*;
+import org.apache.hadoop.hbase.filter.ColumnPrefixFilter;
 import org.apache.hadoop.hbase.util.Bytes;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class HBaseManager {
     private static final Logger logger = LoggerFactory.getLogger(HBaseManager.class);
@@ -19,11 +35,72 @@ public class HBaseManager {
     private Connection connection;
     private final String tableName;
     private final String columnFamily;
+    private final AtomicLong putRequests = new AtomicLong();
+    private final AtomicLong rowsWritten = new AtomicLong();
+    
+    // 异步写入：共享的 BufferedMutator，失败的行进入重试队列，超过重试次数或不可重试时进入错误路径
+    private static final String RETRY_ATTRIBUTE = "nexuscale.retry";
+    private final HBaseWriteMode writeMode;
+    private BufferedMutator mutator;
+    private ScheduledExecutorService retryExecutor;
+    private final Queue<Mutation> retryQueue = new ConcurrentLinkedQueue<>();
+    private final int maxRetries;
+    private final AtomicLong retriedMutations = new AtomicLong();
+    private final AtomicLong failedMutations = new AtomicLong();
+    private final AtomicLong lastFailureLogTime = new AtomicLong();
+    
+    // 行键格式：salted = RowKeyCodec 定长二进制行键；legacy = 字符串 deviceId_timestamp
+    private final RowKeyCodec rowKeyCodec;
+    // 存储布局：每条读数一行，或每个设备每个时间桶一行
+    private final StorageLayout storageLayout;
+    // 按盐值桶扇出读取的线程池（仅salted格式）
+    private final ExecutorService readExecutor;
+    // salted格式下读取时同时查找legacy字符串行键，切换格式前写入的数据仍然可读
+    private final boolean legacyReadFallback;
+    // 范围查询每次RPC返回的行数，以及宽行每个Result的最大列数
+    private final int scanCaching;
+    private final int scanBatch;
     
     public HBaseManager() {
+        this(HBaseWriteMode.fromConfig(ConfigManager.getProperty("hbase.write.mode", "sync")));
+    }
+    
+    public HBaseManager(HBaseWriteMode writeMode) {
+        this(writeMode, StorageLayout.fromConfig());
+    }
+    
+    public HBaseManager(HBaseWriteMode writeMode, StorageLayout storageLayout) {
         this.tableName = ConfigManager.getProperty("hbase.table.name");
         this.columnFamily = ConfigManager.getProperty("hbase.column.family");
+        this.writeMode = writeMode;
+        this.storageLayout = storageLayout;
+        this.maxRetries = ConfigManager.getIntProperty("hbase.mutator.retry.max", 3);
+        this.scanCaching = ConfigManager.getIntProperty("hbase.query.scan.caching", 500);
+        this.scanBatch = ConfigManager.getIntProperty("hbase.query.scan.batch", 1000);
+        if (!"salted".equalsIgnoreCase(ConfigManager.getProperty("hbase.rowkey.format", "legacy").trim())) {
+            if (storageLayout.isBucketed()) {
+                throw new IllegalArgumentException("Bucketed storage layout requires hbase.rowkey.format=salted");
+            }
+            this.rowKeyCodec = null;
+            this.readExecutor = null;
+            this.legacyReadFallback = false;
+        } else {
+            this.legacyReadFallback = Boolean.parseBoolean(
+                    ConfigManager.getProperty("hbase.rowkey.legacy.read", "true").trim());
+            this.rowKeyCodec = new RowKeyCodec(storageLayout.rowKeyVersion());
+            this.readExecutor = Executors.newFixedThreadPool(Math.min(rowKeyCodec.getBuckets(), 8), r -> {
+                Thread thread = new Thread(r, "hbase-read-fanout");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
         initializeConnection();
+        logger.info("HBase storage layout: {}, row keys: {}", storageLayout.describe(), 
+                   rowKeyCodec == null ? "legacy" : "salted (" + rowKeyCodec.getBuckets() + " buckets"
+                           + (legacyReadFallback ? ", legacy read fallback)" : ")"));
+        if (writeMode == HBaseWriteMode.ASYNC) {
+            initializeMutator();
+        }
     }
     
     private void initializeConnection() {
@@ -56,12 +133,94 @@ public class HBaseManager {
         }
     }
     
+    private void initializeMutator() {
+        long bufferBytes = ConfigManager.getIntProperty("hbase.mutator.buffer.bytes", 4 * 1024 * 1024);
+        long flushMillis = ConfigManager.getIntProperty("hbase.mutator.flush.ms", 1000);
+        long retryDelayMillis = ConfigManager.getIntProperty("hbase.mutator.retry.delay.ms", 1000);
+        try {
+            BufferedMutatorParams params = new BufferedMutatorParams(TableName.valueOf(tableName))
+                    .writeBufferSize(bufferBytes)
+                    .setWriteBufferPeriodicFlushTimeoutMs(flushMillis)
+                    .listener(this::onMutationFailure);
+            this.mutator = connection.getBufferedMutator(params);
+        } catch (IOException e) {
+            logger.error("Failed to create BufferedMutator for table {}", tableName, e);
+            throw new RuntimeException("HBase BufferedMutator creation failed", e);
+        }
+        
+        this.retryExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "hbase-mutator-retry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        retryExecutor.scheduleWithFixedDelay(this::resubmitRetries, retryDelayMillis, retryDelayMillis, TimeUnit.MILLISECONDS);
+        logger.info("HBase async write mode: buffer {} bytes, periodic flush {} ms, max retries {}", 
+                   bufferBytes, flushMillis, maxRetries);
+    }
+    
+    /**
+     * BufferedMutator 后台flush失败时的回调（在flush线程上执行，不能抛出异常，也不能在这里直接mutate）
+     * 可重试的行记录重试次数后放入重试队列，由重试线程稍后重新提交；
+     * 不可重试或重试次数用尽的行计入失败数并记录错误日志（每秒最多一条）。
+     */
+    private void onMutationFailure(RetriesExhaustedWithDetailsException e, BufferedMutator failedMutator) {
+        for (int i = 0; i < e.getNumExceptions(); i++) {
+            if (!(e.getRow(i) instanceof Mutation)) {
+                continue;
+            }
+            Mutation mutation = (Mutation) e.getRow(i);
+            Throwable cause = e.getCause(i);
+            byte[] attribute = mutation.getAttribute(RETRY_ATTRIBUTE);
+            int attempts = attribute != null ? Bytes.toInt(attribute) : 0;
+            
+            if (cause instanceof DoNotRetryIOException || attempts >= maxRetries) {
+                failedMutations.incrementAndGet();
+                logMutationFailure(mutation, attempts, e.getHostnamePort(i), cause);
+            } else {
+                mutation.setAttribute(RETRY_ATTRIBUTE, Bytes.toBytes(attempts + 1));
+                retryQueue.add(mutation);
+                retriedMutations.incrementAndGet();
+            }
+        }
+    }
+    
+    private void logMutationFailure(Mutation mutation, int attempts, String server, Throwable cause) {
+        long now = System.currentTimeMillis();
+        long last = lastFailureLogTime.get();
+        if (now - last >= 1000 && lastFailureLogTime.compareAndSet(last, now)) {
+            logger.error("Dropping HBase row {} after {} retries (server {}), {} rows failed so far", 
+                        describeRowKey(mutation.getRow()), attempts, server, failedMutations.get(), cause);
+        }
+    }
+    
+    private void resubmitRetries() {
+        List<Mutation> retries = new ArrayList<>();
+        Mutation mutation;
+        while ((mutation = retryQueue.poll()) != null) {
+            retries.add(mutation);
+        }
+        if (retries.isEmpty()) {
+            return;
+        }
+        try {
+            mutator.mutate(retries);
+            logger.debug("Resubmitted {} failed HBase mutations", retries.size());
+        } catch (Exception e) {
+            // mutate本身失败（例如mutator已关闭）时这些行不再重试
+            failedMutations.addAndGet(retries.size());
+            logger.error("Failed to resubmit {} HBase mutations", retries.size(), e);
+        }
+    }
+    
     public boolean testConnection() {
         try {
             Admin admin = connection.getAdmin();
             boolean exists = admin.tableExists(TableName.valueOf(tableName));
             admin.close();
             logger.info("HBase connection test successful. Table {} exists: {}", tableName, exists);
+            if (!exists) {
+                logger.warn("Table {} is missing, create it with com.nexuscale.hbase.TableProvisioner", tableName);
+            }
             return true;
         } catch (Exception e) {
             logger.error("HBase connection test failed", e);
@@ -69,13 +228,20 @@ public class HBaseManager {
         }
     }
     
+    /**
+     * 管理接口，调用方负责关闭
+     */
+    public Admin getAdmin() throws IOException {
+        return connection.getAdmin();
+    }
+    
     public void createColumnsIfNotExists(List<String> columnNames) {
         try {
             Admin admin = connection.getAdmin();
             TableName tableNameObj = TableName.valueOf(tableName);
             
             if (!admin.tableExists(tableNameObj)) {
-                logger.error("Table {} does not exist", tableName);
+                logger.error("Table {} does not exist, create it with com.nexuscale.hbase.TableProvisioner", tableName);
                 admin.close();
                 return;
             }
@@ -83,44 +249,196 @@ public class HBaseManager {
             // HBase中列是动态的，不需要预先创建列，这里只是记录日志
             logger.info("Columns to be used in table {}: {}", tableName, columnNames);
             admin.close();
-            
+        
         } catch (IOException e) {
             logger.error("Error checking table columns", e);
         }
     }
     
     public void putSensorData(String deviceId, long timestamp, Map<String, String> sensorData) {
+        if (mutator != null) {
+            putSensorDataBatch(Collections.singletonList(buildSensorPut(deviceId, timestamp, sensorData)));
+            return;
+        }
         try {
             Table table = connection.getTable(TableName.valueOf(tableName));
             
-            String rowKey = deviceId + "_" + timestamp;
-            Put put = new Put(Bytes.toBytes(rowKey));
-            
-            // 只添加传感器数据，不添加timestamp和device_id（它们已经在行键中体现）
-            for (Map.Entry<String, String> entry : sensorData.entrySet()) {
-                put.addColumn(Bytes.toBytes(columnFamily), 
-                            Bytes.toBytes(entry.getKey()), 
-                            Bytes.toBytes(entry.getValue()));
-            }
-            
-            table.put(put);
+            table.put(buildSensorPut(deviceId, timestamp, sensorData));
             table.close();
+            putRequests.incrementAndGet();
+            rowsWritten.incrementAndGet();
             
             logger.info("Successfully stored sensor data for device {} at timestamp {}", deviceId, timestamp);
-            
+        
         } catch (IOException e) {
             logger.error("Failed to store sensor data for device {}", deviceId, e);
             throw new RuntimeException("HBase put operation failed", e);
         }
     }
     
+    /**
+     * 构造一条读数的Put，供批量写入使用
+     * 时间桶布局下写入设备当前时间桶的宽行，每个字段一列；单元格时间戳为读数时间，范围查询据此按时间过滤
+     */
+    public Put buildSensorPut(String deviceId, long timestamp, Map<String, String> sensorData) {
+        Put put = new Put(rowKey(deviceId, storageLayout.rowTimestamp(timestamp)));
+        
+        // 只添加传感器数据，不添加timestamp和device_id（它们已经在行键/列名中体现）
+        for (Map.Entry<String, String> entry : sensorData.entrySet()) {
+            put.addColumn(Bytes.toBytes(columnFamily), 
+                        storageLayout.qualifier(timestamp, entry.getKey()), 
+                        timestamp,
+                        Bytes.toBytes(entry.getValue()));
+        }
+        return put;
+    }
+    
+    /**
+     * 一次 table.put(List) 写入一批行，客户端按RegionServer合并为multi请求
+     * 异步模式下交给共享的 BufferedMutator 后立即返回，写入结果由异常监听器处理
+     */
+    public void putSensorDataBatch(List<Put> puts) {
+        if (puts.isEmpty()) {
+            return;
+        }
+        
+        if (mutator != null) {
+            try {
+                mutator.mutate(puts);
+                putRequests.incrementAndGet();
+                rowsWritten.addAndGet(puts.size());
+            } catch (IOException e) {
+                logger.error("Failed to buffer sensor data batch of {} rows", puts.size(), e);
+                throw new RuntimeException("HBase buffered mutate failed", e);
+            }
+            return;
+        }
+        
+        try {
+            Table table = connection.getTable(TableName.valueOf(tableName));
+            
+            table.put(puts);
+            table.close();
+            putRequests.incrementAndGet();
+            rowsWritten.addAndGet(puts.size());
+            
+            logger.info("Successfully stored sensor data batch of {} rows", puts.size());
+        
+        } catch (IOException e) {
+            logger.error("Failed to store sensor data batch of {} rows", puts.size(), e);
+            throw new RuntimeException("HBase batch put operation failed", e);
+        }
+    }
+    
+    /**
+     * 立即发出缓冲区中的所有行（仅异步模式）
+     */
+    public void flush() {
+        if (mutator == null) {
+            return;
+        }
+        try {
+            mutator.flush();
+        } catch (IOException e) {
+            logger.error("Failed to flush HBase BufferedMutator", e);
+        }
+    }
+    
+    public HBaseWriteMode getWriteMode() {
+        return writeMode;
+    }
+    
+    /**
+     * 异步模式下进入重试队列的行数（同一行每次重试各计一次）
+     */
+    public long getRetriedMutations() {
+        return retriedMutations.get();
+    }
+    
+    /**
+     * 异步模式下最终写入失败、已放弃的行数
+     */
+    public long getFailedMutations() {
+        return failedMutations.get();
+    }
+    
+    public int getPendingRetries() {
+        return retryQueue.size();
+    }
+    
+    /**
+     * table.put 调用次数（单行或批量各计一次；异步模式下为提交给 BufferedMutator 的批次数）
+     */
+    public long getPutRequests() {
+        return putRequests.get();
+    }
+    
+    public long getRowsWritten() {
+        return rowsWritten.get();
+    }
+    
+    private byte[] rowKey(String deviceId, long timestamp) {
+        if (rowKeyCodec == null) {
+            return Bytes.toBytes(deviceId + "_" + timestamp);
+        }
+        return rowKeyCodec.encode(parseDeviceId(deviceId), timestamp);
+    }
+    
+    private static int parseDeviceId(String deviceId) {
+        try {
+            return Integer.parseInt(deviceId);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Device id is not numeric: " + deviceId);
+        }
+    }
+    
+    public RowKeyCodec getRowKeyCodec() {
+        return rowKeyCodec;
+    }
+    
+    public StorageLayout getStorageLayout() {
+        return storageLayout;
+    }
+    
+    /**
+     * 行键的可读形式，用于日志
+     */
+    public static String describeRowKey(byte[] rowKey) {
+        if (RowKeyCodec.isEncoded(rowKey)) {
+            String bucket = RowKeyCodec.decodeVersion(rowKey) == RowKeyCodec.VERSION_BUCKETED ? ", bucket" : "";
+            return RowKeyCodec.decodeDeviceId(rowKey) + "@" + RowKeyCodec.decodeTimestamp(rowKey) 
+                    + " (salt " + RowKeyCodec.decodeSalt(rowKey) + bucket + ")";
+        }
+        return Bytes.toString(rowKey);
+    }
+    
     public Map<String, String> getSensorData(String deviceId, long timestamp) {
         try {
             Table table = connection.getTable(TableName.valueOf(tableName));
             
-            String rowKey = deviceId + "_" + timestamp;
-            Get get = new Get(Bytes.toBytes(rowKey));
-            Result result = table.get(get);
+            long rowTimestamp = storageLayout.rowTimestamp(timestamp);
+            Result result = table.get(readingGet(rowKey(deviceId, rowTimestamp), timestamp));
+            if (result.isEmpty() && rowKeyCodec != null) {
+                // 按当前盐值计算的桶中没有时，扇出到其他桶查找（盐值窗口或桶数调整前写入的行）
+                int id = parseDeviceId(deviceId);
+                int expectedSalt = rowKeyCodec.salt(id, rowTimestamp);
+                List<Get> gets = new ArrayList<>(rowKeyCodec.getBuckets() - 1);
+                for (int salt = 0; salt < rowKeyCodec.getBuckets(); salt++) {
+                    if (salt != expectedSalt) {
+                        gets.add(readingGet(rowKeyCodec.encode(salt, id, rowTimestamp), timestamp));
+                    }
+                }
+                for (Result candidate : table.get(gets)) {
+                    if (!candidate.isEmpty()) {
+                        result = candidate;
+                        break;
+                    }
+                }
+            }
+            if (result.isEmpty() && legacyReadFallback) {
+                // 切换到salted格式之前以字符串行键写入的读数
+                result = table.get(new Get(Bytes.toBytes(deviceId + "_" + timestamp)));
+            }
             
             if (result.isEmpty()) {
                 logger.warn("No data found for device {} at timestamp {}", deviceId, timestamp);
@@ -128,62 +446,264 @@ public class HBaseManager {
                 return null;
             }
             
-            Map<String, String> data = new java.util.HashMap<>();
-            result.getFamilyMap(Bytes.toBytes(columnFamily)).forEach((qualifier, value) -> {
-                data.put(Bytes.toString(qualifier), Bytes.toString(value));
-            });
+            Map<String, String> data = toReadings(result).get(0).getData();
             
             table.close();
             logger.info("Retrieved sensor data for device {} at timestamp {}: {} fields", 
                        deviceId, timestamp, data.size());
             
             return data;
-            
+        
         } catch (IOException e) {
             logger.error("Failed to retrieve sensor data for device {}", deviceId, e);
             throw new RuntimeException("HBase get operation failed", e);
         }
     }
     
-    public void scanDeviceData(String deviceId, int limit) {
+    /**
+     * 关闭前显式flush：先停止定时重试，再反复 flush + 提交重试队列直到没有待重试的行或重试次数用尽
+     */
+    private void closeMutator() {
+        retryExecutor.shutdown();
         try {
-            Table table = connection.getTable(TableName.valueOf(tableName));
-            
-            Scan scan = new Scan();
-            scan.setRowPrefixFilter(Bytes.toBytes(deviceId + "_"));
-            if (limit > 0) {
-                scan.setLimit(limit);
+            retryExecutor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        
+        try {
+            for (int round = 0; round <= maxRetries; round++) {
+                mutator.flush();
+                if (retryQueue.isEmpty()) {
+                    break;
+                }
+                resubmitRetries();
             }
-            
-            ResultScanner scanner = table.getScanner(scan);
-            
+            mutator.close();
+        } catch (IOException e) {
+            logger.error("Error flushing HBase BufferedMutator on shutdown", e);
+        }
+        
+        int abandoned = retryQueue.size();
+        if (abandoned > 0) {
+            failedMutations.addAndGet(abandoned);
+            retryQueue.clear();
+        }
+        logger.info("HBase BufferedMutator closed: {} rows submitted, {} retried, {} failed", 
+                   rowsWritten.get(), retriedMutations.get(), failedMutations.get());
+    }
+    
+    /**
+     * 读取一条读数的Get；时间桶布局下只取该读数偏移前缀的列
+     */
+    private Get readingGet(byte[] rowKey, long timestamp) {
+        Get get = new Get(rowKey);
+        if (storageLayout.isBucketed()) {
+            get.setFilter(new ColumnPrefixFilter(storageLayout.offsetPrefix(timestamp)));
+        }
+        return get;
+    }
+    
+    /**
+     * 把一行还原为读数（按时间从新到旧），行键格式和布局由行键本身决定，可以读取混合布局的表
+     */
+    public List<StoredReading> toReadings(Result result) {
+        byte[] row = result.getRow();
+        NavigableMap<byte[], byte[]> columns = result.getFamilyMap(Bytes.toBytes(columnFamily));
+        String deviceId;
+        long timestamp;
+        if (RowKeyCodec.isEncoded(row)) {
+            deviceId = String.valueOf(RowKeyCodec.decodeDeviceId(row));
+            timestamp = RowKeyCodec.decodeTimestamp(row);
+            if (RowKeyCodec.decodeVersion(row) == RowKeyCodec.VERSION_BUCKETED) {
+                return StorageLayout.decodeBucket(deviceId, timestamp, columns);
+            }
+        } else {
+            String rowKey = Bytes.toString(row);
+            int separator = rowKey.lastIndexOf('_');
+            deviceId = rowKey.substring(0, separator);
+            timestamp = Long.parseLong(rowKey.substring(separator + 1));
+        }
+        
+        Map<String, String> data = new HashMap<>();
+        columns.forEach((qualifier, value) -> data.put(Bytes.toString(qualifier), Bytes.toString(value)));
+        return Collections.singletonList(new StoredReading(deviceId, timestamp, data));
+    }
+    
+    /**
+     * 某设备最新的若干条读数，按时间从新到旧
+     * @param limit 最多返回的读数条数，0表示全部
+     */
+    public List<StoredReading> scanLatest(String deviceId, int limit) throws IOException {
+        List<StoredReading> readings = new ArrayList<>();
+        try (ReadingCursor cursor = queryRange(new SensorQuery(deviceId, 0, Long.MAX_VALUE).limit(limit))) {
+            cursor.forEachRemaining(readings::add);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return readings;
+    }
+    
+    /**
+     * 按时间范围查询某设备的读数，按时间从新到旧流式返回
+     * salted格式下每个盐值桶一个范围扫描（行键中时间倒序，正向扫描即从新到旧），并行打开后按时间归并；
+     * legacy格式为单个反向扫描。扫描只取需要的列，每批 hbase.query.scan.caching 行，
+     * 宽行每个Result最多 hbase.query.scan.batch 列。
+     * 调用方负责关闭返回的 ReadingCursor（读完或读到limit条时会自动关闭）。
+     */
+    public ReadingCursor queryRange(SensorQuery query) throws IOException {
+        long from = query.getFromTimestamp();
+        long to = query.getToTimestamp();
+        if (to < from) {
+            // 续读标记已经越过范围起点
+            return ReadingCursor.empty(query.getDeviceId());
+        }
+        
+        List<Scan> scans = new ArrayList<>();
+        if (rowKeyCodec != null) {
+            int id = parseDeviceId(query.getDeviceId());
+            for (int salt = 0; salt < rowKeyCodec.getBuckets(); salt++) {
+                Scan scan = new Scan()
+                        .withStartRow(rowKeyCodec.startRow(salt, id, storageLayout.rowTimestamp(to)))
+                        .withStopRow(rowKeyCodec.stopRow(salt, id, storageLayout.rowTimestamp(from)));
+                configureRangeScan(scan, query, storageLayout.isBucketed());
+                scans.add(scan);
+            }
+        }
+        if (rowKeyCodec == null || legacyReadFallback) {
+            // 字符串行键中时间正序，反向扫描得到从新到旧的顺序；与盐值桶的扫描一起按时间归并
+            Scan scan = new Scan()
+                    .withStartRow(Bytes.toBytes(query.getDeviceId() + "_" + to), true)
+                    .withStopRow(Bytes.toBytes(query.getDeviceId() + "_" + from), true)
+                    .setReversed(true);
+            configureRangeScan(scan, query, false);
+            scans.add(scan);
+        }
+        return new ReadingCursor(query.getDeviceId(), openStreams(scans, query), query.getLimit());
+    }
+    
+    /**
+     * 列名是设备类型、值是整条读数的JSON，查询字段无法映射到列，读取整个列族后在客户端解码并筛选字段
+     * @param bucketedRows 扫描的是时间桶宽行（列名带偏移前缀）；legacy行键总是每条读数一行
+     */
+    private void configureRangeScan(Scan scan, SensorQuery query, boolean bucketedRows) throws IOException {
+        scan.addFamily(Bytes.toBytes(columnFamily));
+        
+        // 单元格时间戳为读数时间；较早版本写入的单元格为写入时间，不早于读数时间。
+        // 两者都满足下界，只用下界过滤（可以跳过整个早于范围的HFile）
+        scan.setTimeRange(query.getFromTimestamp(), Long.MAX_VALUE);
+        
+        int limit = query.getLimit();
+        // 多取一条用于判断是否还有下一页
+        scan.setCaching(limit > 0 ? Math.min(scanCaching, limit + 1) : scanCaching);
+        if (bucketedRows) {
+            scan.setBatch(scanBatch);
+        } else if (limit > 0 && query.getFields().isEmpty()) {
+            // 按字段筛选时部分行会在客户端被跳过，不能在服务端限制行数
+            scan.setLimit(limit + 1);
+        }
+        if (limit == 0) {
+            // 不限条数的范围扫描通常是历史数据导出，不占用块缓存
+            scan.setCacheBlocks(false);
+        }
+    }
+    
+    /**
+     * 打开各盐值桶的扫描并读到第一条读数（salted格式下并行执行）；任何一个失败时关闭已打开的扫描
+     */
+    private List<ReadingCursor.ScanStream> openStreams(List<Scan> scans, SensorQuery query) throws IOException {
+        if (readExecutor == null) {
+            List<ReadingCursor.ScanStream> streams = new ArrayList<>(scans.size());
+            for (Scan scan : scans) {
+                streams.add(openStream(scan, query));
+            }
+            return streams;
+        }
+        
+        List<Future<ReadingCursor.ScanStream>> futures = new ArrayList<>(scans.size());
+        for (Scan scan : scans) {
+            futures.add(readExecutor.submit(() -> openStream(scan, query)));
+        }
+        
+        List<ReadingCursor.ScanStream> streams = new ArrayList<>(scans.size());
+        Throwable failure = null;
+        boolean interrupted = false;
+        for (Future<ReadingCursor.ScanStream> future : futures) {
+            // 等待全部完成（打开扫描受RPC超时限制），保证成功打开的扫描都能被关闭
+            while (true) {
+                try {
+                    streams.add(future.get());
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    failure = failure == null ? e.getCause() : failure;
+                    break;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (failure != null) {
+            for (ReadingCursor.ScanStream stream : streams) {
+                stream.close();
+            }
+            throw failure instanceof IOException ? (IOException) failure 
+                                                 : new IOException("Salt bucket scan failed", failure);
+        }
+        return streams;
+    }
+    
+    private ReadingCursor.ScanStream openStream(Scan scan, SensorQuery query) throws IOException {
+        Table table = connection.getTable(TableName.valueOf(tableName));
+        ResultScanner scanner;
+        try {
+            scanner = table.getScanner(scan);
+        } catch (IOException | RuntimeException e) {
+            table.close();
+            throw e;
+        }
+        ReadingCursor.ScanStream stream = new ReadingCursor.ScanStream(table, scanner, this::toReadings, 
+                                                                       query.getFromTimestamp(), query.getToTimestamp(),
+                                                                       query.getFields());
+        try {
+            stream.advance();
+        } catch (IOException | RuntimeException e) {
+            stream.close();
+            throw e;
+        }
+        return stream;
+    }
+    
+    public void scanDeviceData(String deviceId, int limit) {
+        try {
             logger.info("=== Scanning data for device: {} ===", deviceId);
             int count = 0;
-            for (Result result : scanner) {
+            for (StoredReading reading : scanLatest(deviceId, limit)) {
                 count++;
-                String rowKey = Bytes.toString(result.getRow());
-                logger.info("Row Key: {}", rowKey);
+                logger.info("Device {} at {}", reading.getDeviceId(), reading.getTimestamp());
                 
-                Map<byte[], byte[]> familyMap = result.getFamilyMap(Bytes.toBytes(columnFamily));
-                for (Map.Entry<byte[], byte[]> entry : familyMap.entrySet()) {
-                    String qualifier = Bytes.toString(entry.getKey());
-                    String value = Bytes.toString(entry.getValue());
-                    logger.info("  {}: {}", qualifier, value);
+                for (Map.Entry<String, Object> entry : reading.getFields().entrySet()) {
+                    logger.info("  {}: {}", entry.getKey(), entry.getValue());
                 }
                 logger.info("---");
             }
             
-            scanner.close();
-            table.close();
-            
             logger.info("=== Scan completed. Total records found: {} ===", count);
-            
+        
         } catch (IOException e) {
             logger.error("Failed to scan data for device {}", deviceId, e);
         }
     }
     
     public void close() {
+        if (mutator != null) {
+            closeMutator();
+        }
+        if (readExecutor != null) {
+            readExecutor.shutdownNow();
+        }
         try {
             if (connection != null && !connection.isClosed()) {
                 connection.close();
@@ -0,0 +1,18 @@
+package com.nexuscale.hbase;
+
+/**
+ * 传感器数据写入HBase的方式
+ */
+public enum HBaseWriteMode {
+    // 每次调用 table.put 同步等待写入完成
+    SYNC,
+    // 写入共享的 BufferedMutator 后立即返回，按缓冲区大小和定时flush批量发出
+    ASYNC;
+    
+    public static HBaseWriteMode fromConfig(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return SYNC;
+        }
+        return valueOf(value.trim().toUpperCase());
+    }
+}
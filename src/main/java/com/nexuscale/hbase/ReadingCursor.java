@@ -0,0 +1,205 @@
+package com.nexuscale.hbase;
+
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Table;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * 时间范围查询的结果，按时间从新到旧逐条读取
+ * 每个盐值桶一个打开的扫描器，各自只缓存一批 (scan caching) 行，按当前读数的时间归并输出，
+ * 内存占用与查询范围大小无关。读到limit条或范围读完后自动关闭扫描器；提前放弃时需要调用 close()。
+ * 读取过程中的HBase错误以 UncheckedIOException 抛出。
+ */
+public class ReadingCursor implements Iterator<StoredReading>, Closeable {
+    private final String deviceId;
+    private final List<ScanStream> sources;
+    private final PriorityQueue<ScanStream> streams = 
+            new PriorityQueue<>(Comparator.comparingLong((ScanStream stream) -> stream.head.getTimestamp()).reversed());
+    // 剩余可返回的条数，-1表示不限
+    private int remaining;
+    private long lastTimestamp;
+    private boolean hasMore;
+    private boolean closed;
+    
+    /**
+     * @param sources 已读到第一条读数（或已读完）的扫描流
+     */
+    ReadingCursor(String deviceId, List<ScanStream> sources, int limit) {
+        this.deviceId = deviceId;
+        this.sources = sources;
+        this.remaining = limit > 0 ? limit : -1;
+        for (ScanStream source : sources) {
+            if (source.head != null) {
+                streams.add(source);
+            } else {
+                source.close();
+            }
+        }
+        finishIfDone();
+    }
+    
+    static ReadingCursor empty(String deviceId) {
+        return new ReadingCursor(deviceId, Collections.<ScanStream>emptyList(), 0);
+    }
+    
+    @Override
+    public boolean hasNext() {
+        return !closed && remaining != 0 && !streams.isEmpty();
+    }
+    
+    @Override
+    public StoredReading next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        ScanStream stream = streams.poll();
+        StoredReading reading = stream.head;
+        try {
+            stream.advance();
+        } catch (IOException e) {
+            close();
+            throw new UncheckedIOException("Failed to read sensor data for device " + deviceId, e);
+        }
+        if (stream.head != null) {
+            streams.add(stream);
+        } else {
+            stream.close();
+        }
+        
+        lastTimestamp = reading.getTimestamp();
+        if (remaining > 0) {
+            remaining--;
+        }
+        finishIfDone();
+        return reading;
+    }
+    
+    /**
+     * 下一页的续读标记，传给 SensorQuery.resumeFrom；本页读完后调用，范围内没有更多读数时为null
+     */
+    public String getContinuationToken() {
+        return hasMore ? SensorQuery.continuationToken(deviceId, lastTimestamp - 1) : null;
+    }
+    
+    public Stream<StoredReading> stream() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL), 
+                                    false).onClose(this::close);
+    }
+    
+    private void finishIfDone() {
+        if (remaining == 0 || streams.isEmpty()) {
+            hasMore = remaining == 0 && !streams.isEmpty();
+            close();
+        }
+    }
+    
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        for (ScanStream source : sources) {
+            source.close();
+        }
+    }
+    
+    /**
+     * 一个盐值桶内的读数（已按时间从新到旧）
+     * 时间桶宽行按列分批返回时，一条读数的多个字段可能被拆到相邻两批中，这里合并回一条。
+     * 指定了查询字段时只保留这些字段，不含其中任何字段的读数被跳过。
+     */
+    static class ScanStream implements Closeable {
+        private final Table table;
+        private final ResultScanner scanner;
+        private final Function<Result, List<StoredReading>> decoder;
+        private final long fromTimestamp;
+        private final long toTimestamp;
+        private final Collection<String> fields;
+        private Iterator<StoredReading> pending = Collections.emptyIterator();
+        private StoredReading lookahead;
+        private boolean closed;
+        StoredReading head;
+        
+        ScanStream(Table table, ResultScanner scanner, Function<Result, List<StoredReading>> decoder,
+                   long fromTimestamp, long toTimestamp, Collection<String> fields) {
+            this.table = table;
+            this.scanner = scanner;
+            this.decoder = decoder;
+            this.fromTimestamp = fromTimestamp;
+            this.toTimestamp = toTimestamp;
+            this.fields = fields;
+        }
+        
+        void advance() throws IOException {
+            while (true) {
+                StoredReading current = lookahead != null ? lookahead : nextRaw();
+                lookahead = null;
+                if (current == null) {
+                    head = null;
+                    return;
+                }
+                StoredReading following;
+                while ((following = nextRaw()) != null && following.getTimestamp() == current.getTimestamp()) {
+                    Map<String, String> data = new HashMap<>(current.getData());
+                    data.putAll(following.getData());
+                    current = new StoredReading(current.getDeviceId(), current.getTimestamp(), data);
+                }
+                lookahead = following;
+                head = current.select(fields);
+                if (head != null) {
+                    return;
+                }
+            }
+        }
+        
+        private StoredReading nextRaw() throws IOException {
+            while (true) {
+                while (pending.hasNext()) {
+                    StoredReading reading = pending.next();
+                    // 行键范围按时间桶对齐，边界桶中范围之外的读数在这里去掉
+                    if (reading.getTimestamp() >= fromTimestamp && reading.getTimestamp() <= toTimestamp) {
+                        return reading;
+                    }
+                }
+                Result result = scanner.next();
+                if (result == null) {
+                    return null;
+                }
+                pending = decoder.apply(result).iterator();
+            }
+        }
+        
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            scanner.close();
+            try {
+                table.close();
+            } catch (IOException e) {
+                // Table实例是轻量的，关闭失败不影响结果
+            }
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.nexuscale.hbase;
+
+import com.nexuscale.config.ConfigManager;
+
+/**
+ * 传感器数据的定长二进制行键
+ * <pre>
+ *   偏移  长度  内容
+ *   0     1     版本号：1 = 每条读数一行，2 = 时间桶宽行（见 StorageLayout）；旧的字符串行键以数字字符开头，不会与之冲突
+ *   1     1     盐值桶 0 ~ buckets-1
+ *   2     4     deviceId (int, 大端)
+ *   6     8     Long.MAX_VALUE - timestamp (大端)，同一设备最新的读数排在最前，"最近N条"是正向扫描
+ *               （宽行中为时间桶的起始时间）
+ * </pre>
+ * 盐值由 deviceId 和时间窗口共同决定：同一设备在一个窗口内的读数落在同一个桶，
+ * 窗口切换时轮换到下一个桶，写入按设备和时间均匀分布到各桶（各region）。
+ * 读取某设备的时间范围或最近N条时需要按桶扇出扫描后合并。
+ */
+public class RowKeyCodec {
+    public static final byte VERSION = 1;
+    public static final byte VERSION_BUCKETED = 2;
+    public static final int KEY_LENGTH = 14;
+    // 版本 + 盐值 + deviceId
+    public static final int PREFIX_LENGTH = 6;
+    
+    private final int buckets;
+    private final long saltWindowMillis;
+    private final byte version;
+    
+    public RowKeyCodec() {
+        this(VERSION);
+    }
+    
+    public RowKeyCodec(byte version) {
+        this(ConfigManager.getIntProperty("hbase.rowkey.salt.buckets", 16),
+             ConfigManager.getIntProperty("hbase.rowkey.salt.window.ms", 3600000), version);
+    }
+    
+    public RowKeyCodec(int buckets, long saltWindowMillis) {
+        this(buckets, saltWindowMillis, VERSION);
+    }
+    
+    /**
+     * @param buckets          盐值桶数量，1 ~ 256
+     * @param saltWindowMillis 盐值轮换窗口，0表示盐值只由deviceId决定（同一设备始终在同一个桶）
+     * @param version          VERSION 或 VERSION_BUCKETED
+     */
+    public RowKeyCodec(int buckets, long saltWindowMillis, byte version) {
+        if (buckets < 1 || buckets > 256) {
+            throw new IllegalArgumentException("Salt buckets must be between 1 and 256: " + buckets);
+        }
+        if (version != VERSION && version != VERSION_BUCKETED) {
+            throw new IllegalArgumentException("Unknown row key version: " + version);
+        }
+        this.buckets = buckets;
+        this.saltWindowMillis = saltWindowMillis;
+        this.version = version;
+    }
+    
+    public int getBuckets() {
+        return buckets;
+    }
+    
+    public byte getVersion() {
+        return version;
+    }
+    
+    public int salt(int deviceId, long timestamp) {
+        long window = saltWindowMillis > 0 ? Math.floorDiv(timestamp, saltWindowMillis) : 0;
+        return (int) Math.floorMod(mix(deviceId) + window, (long) buckets);
+    }
+    
+    public byte[] encode(int deviceId, long timestamp) {
+        return encode(salt(deviceId, timestamp), deviceId, timestamp);
+    }
+    
+    /**
+     * 指定盐值编码，用于在其他桶中查找盐值配置变化前写入的行
+     */
+    public byte[] encode(int salt, int deviceId, long timestamp) {
+        byte[] key = new byte[KEY_LENGTH];
+        writePrefix(key, version, salt, deviceId);
+        writeLong(key, PREFIX_LENGTH, Long.MAX_VALUE - timestamp);
+        return key;
+    }
+    
+    /**
+     * 某个桶中某设备所有行的公共前缀
+     */
+    public byte[] prefix(int salt, int deviceId) {
+        byte[] prefix = new byte[PREFIX_LENGTH];
+        writePrefix(prefix, version, salt, deviceId);
+        return prefix;
+    }
+    
+    /**
+     * 某个桶中 [fromTimestamp, toTimestamp] 的扫描起点（含），即 toTimestamp 对应的行键
+     */
+    public byte[] startRow(int salt, int deviceId, long toTimestamp) {
+        return encode(salt, deviceId, toTimestamp);
+    }
+    
+    /**
+     * 某个桶中 [fromTimestamp, toTimestamp] 的扫描终点（不含）
+     */
+    public byte[] stopRow(int salt, int deviceId, long fromTimestamp) {
+        byte[] key = new byte[KEY_LENGTH];
+        writePrefix(key, version, salt, deviceId);
+        writeLong(key, PREFIX_LENGTH, Long.MAX_VALUE - fromTimestamp + 1);
+        return key;
+    }
+    
+    /**
+     * 预分区的分割点：每个盐值桶的起始键（第一个桶除外）
+     */
+    public byte[][] splitKeys() {
+        byte[][] splits = new byte[buckets - 1][];
+        for (int salt = 1; salt < buckets; salt++) {
+            splits[salt - 1] = new byte[]{version, (byte) salt};
+        }
+        return splits;
+    }
+    
+    public static boolean isEncoded(byte[] key) {
+        return key != null && key.length == KEY_LENGTH && (key[0] == VERSION || key[0] == VERSION_BUCKETED);
+    }
+    
+    public static byte decodeVersion(byte[] key) {
+        checkVersion(key);
+        return key[0];
+    }
+    
+    public static int decodeDeviceId(byte[] key) {
+        checkVersion(key);
+        return ((key[2] & 0xFF) << 24) | ((key[3] & 0xFF) << 16) | ((key[4] & 0xFF) << 8) | (key[5] & 0xFF);
+    }
+    
+    public static long decodeTimestamp(byte[] key) {
+        checkVersion(key);
+        long reversed = 0;
+        for (int i = PREFIX_LENGTH; i < KEY_LENGTH; i++) {
+            reversed = (reversed << 8) | (key[i] & 0xFF);
+        }
+        return Long.MAX_VALUE - reversed;
+    }
+    
+    public static int decodeSalt(byte[] key) {
+        checkVersion(key);
+        return key[1] & 0xFF;
+    }
+    
+    private static void checkVersion(byte[] key) {
+        if (!isEncoded(key)) {
+            throw new IllegalArgumentException("Not an encoded sensor row key");
+        }
+    }
+    
+    private static void writePrefix(byte[] key, byte version, int salt, int deviceId) {
+        key[0] = version;
+        key[1] = (byte) salt;
+        key[2] = (byte) (deviceId >>> 24);
+        key[3] = (byte) (deviceId >>> 16);
+        key[4] = (byte) (deviceId >>> 8);
+        key[5] = (byte) deviceId;
+    }
+    
+    private static void writeLong(byte[] key, int offset, long value) {
+        for (int i = 7; i >= 0; i--) {
+            key[offset + i] = (byte) value;
+            value >>>= 8;
+        }
+    }
+    
+    // murmur3 32位finalizer，连续的deviceId分散到不同的桶
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h & 0x7fffffff;
+    }
+}
@@ -0,0 +1,105 @@
+package com.nexuscale.hbase;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * 某设备在时间范围内的读数查询，结果按时间从新到旧
+ * 用法: new SensorQuery("13", from, to).fields("temperature").limit(500).resumeFrom(token)
+ * 分页时把上一页 ReadingCursor.getContinuationToken() 的结果传给 resumeFrom，从上一页最后一条之前继续。
+ */
+public class SensorQuery {
+    private final String deviceId;
+    private final long fromTimestamp;
+    private long toTimestamp;
+    private Set<String> fields = Collections.emptySet();
+    private int limit;
+    
+    /**
+     * @param fromTimestamp 起始时间（含）
+     * @param toTimestamp   结束时间（含）
+     */
+    public SensorQuery(String deviceId, long fromTimestamp, long toTimestamp) {
+        if (fromTimestamp > toTimestamp) {
+            throw new IllegalArgumentException("Query range is empty: " + fromTimestamp + " > " + toTimestamp);
+        }
+        this.deviceId = deviceId;
+        this.fromTimestamp = fromTimestamp;
+        this.toTimestamp = toTimestamp;
+    }
+    
+    /**
+     * 只返回这些字段（读数JSON中的字段，如 co2），不含其中任何字段的读数被跳过；不设置时返回全部字段
+     * 结果通过 StoredReading.getFields() 读取
+     */
+    public SensorQuery fields(String... names) {
+        return fields(Arrays.asList(names));
+    }
+    
+    public SensorQuery fields(Collection<String> names) {
+        this.fields = Collections.unmodifiableSet(new LinkedHashSet<>(names));
+        return this;
+    }
+    
+    /**
+     * 本页最多返回的读数条数，0表示不限（流式读取整个范围）
+     */
+    public SensorQuery limit(int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Limit must not be negative: " + limit);
+        }
+        this.limit = limit;
+        return this;
+    }
+    
+    /**
+     * 从上一页的续读标记继续；token为null时从范围的最新一端开始
+     */
+    public SensorQuery resumeFrom(String token) {
+        if (token == null) {
+            return this;
+        }
+        String decoded;
+        try {
+            decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Malformed continuation token: " + token, e);
+        }
+        int separator = decoded.lastIndexOf(':');
+        if (separator < 0 || !decoded.substring(0, separator).equals(deviceId)) {
+            throw new IllegalArgumentException("Continuation token does not belong to device " + deviceId);
+        }
+        this.toTimestamp = Math.min(toTimestamp, Long.parseLong(decoded.substring(separator + 1)));
+        return this;
+    }
+    
+    static String continuationToken(String deviceId, long nextToTimestamp) {
+        return Base64.getUrlEncoder().withoutPadding()
+                     .encodeToString((deviceId + ":" + nextToTimestamp).getBytes(StandardCharsets.UTF_8));
+    }
+    
+    public String getDeviceId() {
+        return deviceId;
+    }
+    
+    public long getFromTimestamp() {
+        return fromTimestamp;
+    }
+    
+    public long getToTimestamp() {
+        return toTimestamp;
+    }
+    
+    public Set<String> getFields() {
+        return fields;
+    }
+    
+    public int getLimit() {
+        return limit;
+    }
+}
@@ -0,0 +1,122 @@
+package com.nexuscale.hbase;
+
+import com.nexuscale.config.ConfigManager;
+import org.apache.hadoop.hbase.util.Bytes;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+
+/**
+ * 传感器数据在HBase中的存储布局
+ * - reading：每条读数一行，行键含读数时间戳，列名为字段名（原布局）
+ * - bucketed：每个设备每个时间桶一行，行键含桶的起始时间（RowKeyCodec.VERSION_BUCKETED），
+ *   每条读数的每个字段一列，列名为 [4字节 Integer.MAX_VALUE - 桶内偏移毫秒, 大端][字段名]。
+ *   偏移倒序存放，与行键中的时间一样新读数在前：正向扫描（包括按列分批返回的宽行）按时间从新到旧输出，
+ *   同一读数的各列相邻。
+ */
+public class StorageLayout {
+    public static final StorageLayout ROW_PER_READING = new StorageLayout(0);
+    private static final int OFFSET_LENGTH = 4;
+    
+    // 0表示每条读数一行
+    private final long bucketMillis;
+    
+    private StorageLayout(long bucketMillis) {
+        this.bucketMillis = bucketMillis;
+    }
+    
+    /**
+     * @param bucketMillis 时间桶长度，1毫秒 ~ Integer.MAX_VALUE毫秒（约24天）
+     */
+    public static StorageLayout bucketed(long bucketMillis) {
+        if (bucketMillis < 1 || bucketMillis > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Bucket length must be between 1 and " + Integer.MAX_VALUE + " ms: " 
+                                               + bucketMillis);
+        }
+        return new StorageLayout(bucketMillis);
+    }
+    
+    public static StorageLayout fromConfig() {
+        String layout = ConfigManager.getProperty("hbase.storage.layout", "reading").trim().toLowerCase();
+        switch (layout) {
+            case "reading":
+                return ROW_PER_READING;
+            case "bucketed":
+                return bucketed(ConfigManager.getIntProperty("hbase.storage.bucket.ms", 3600000));
+            default:
+                throw new IllegalArgumentException("Unknown HBase storage layout: " + layout);
+        }
+    }
+    
+    public boolean isBucketed() {
+        return bucketMillis > 0;
+    }
+    
+    public long getBucketMillis() {
+        return bucketMillis;
+    }
+    
+    public byte rowKeyVersion() {
+        return isBucketed() ? RowKeyCodec.VERSION_BUCKETED : RowKeyCodec.VERSION;
+    }
+    
+    /**
+     * 行键中的时间：读数时间或所在时间桶的起始时间
+     */
+    public long rowTimestamp(long timestamp) {
+        return isBucketed() ? Math.floorDiv(timestamp, bucketMillis) * bucketMillis : timestamp;
+    }
+    
+    public byte[] qualifier(long timestamp, String field) {
+        if (!isBucketed()) {
+            return Bytes.toBytes(field);
+        }
+        byte[] name = field.getBytes(StandardCharsets.UTF_8);
+        byte[] qualifier = Arrays.copyOf(offsetPrefix(timestamp), OFFSET_LENGTH + name.length);
+        System.arraycopy(name, 0, qualifier, OFFSET_LENGTH, name.length);
+        return qualifier;
+    }
+    
+    /**
+     * 宽行中某条读数所有列的公共前缀（倒序的桶内偏移）
+     */
+    public byte[] offsetPrefix(long timestamp) {
+        int reversed = Integer.MAX_VALUE - (int) (timestamp - rowTimestamp(timestamp));
+        return new byte[]{(byte) (reversed >>> 24), (byte) (reversed >>> 16), (byte) (reversed >>> 8), (byte) reversed};
+    }
+    
+    public String describe() {
+        return isBucketed() ? "bucketed (" + bucketMillis + " ms per row)" : "row per reading";
+    }
+    
+    /**
+     * 把一个时间桶宽行（或按列分批返回的一部分）的列还原为读数，按时间从新到旧
+     */
+    static List<StoredReading> decodeBucket(String deviceId, long bucketStart, NavigableMap<byte[], byte[]> columns) {
+        List<StoredReading> readings = new ArrayList<>();
+        int currentOffset = -1;
+        Map<String, String> data = null;
+        // 列名按字节序排列，倒序偏移为非负大端int，同一读数的列连续出现
+        for (Map.Entry<byte[], byte[]> column : columns.entrySet()) {
+            byte[] qualifier = column.getKey();
+            if (qualifier.length < OFFSET_LENGTH) {
+                continue;
+            }
+            int offset = Integer.MAX_VALUE - (((qualifier[0] & 0xFF) << 24) | ((qualifier[1] & 0xFF) << 16) 
+                                             | ((qualifier[2] & 0xFF) << 8) | (qualifier[3] & 0xFF));
+            if (data == null || offset != currentOffset) {
+                currentOffset = offset;
+                data = new HashMap<>();
+                readings.add(new StoredReading(deviceId, bucketStart + offset, data));
+            }
+            data.put(new String(qualifier, OFFSET_LENGTH, qualifier.length - OFFSET_LENGTH, StandardCharsets.UTF_8),
+                     Bytes.toString(column.getValue()));
+        }
+        return readings;
+    }
+}
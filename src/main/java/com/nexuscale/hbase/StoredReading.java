@@ -0,0 +1,93 @@
+package com.nexuscale.hbase;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 从HBase读出的一条读数：设备、读数时间和各列的值（与存储布局无关）
+ */
+public class StoredReading {
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final TypeReference<Map<String, Object>> FIELDS_TYPE = new TypeReference<Map<String, Object>>() {};
+    
+    private final String deviceId;
+    private final long timestamp;
+    private final Map<String, String> data;
+    private Map<String, Object> fields;
+    
+    public StoredReading(String deviceId, long timestamp, Map<String, String> data) {
+        this.deviceId = deviceId;
+        this.timestamp = timestamp;
+        this.data = data;
+    }
+    
+    private StoredReading(String deviceId, long timestamp, Map<String, String> data, Map<String, Object> fields) {
+        this(deviceId, timestamp, data);
+        this.fields = fields;
+    }
+    
+    public String getDeviceId() {
+        return deviceId;
+    }
+    
+    public long getTimestamp() {
+        return timestamp;
+    }
+    
+    /**
+     * 原始列：列名（HBaseSensorSink写入时为设备类型）-> 存储的字符串
+     */
+    public Map<String, String> getData() {
+        return data;
+    }
+    
+    /**
+     * 解码后的字段值：值为JSON对象的列展开为其中的字段，数值和布尔保持JSON中的类型；
+     * 其它列（按字段逐列写入的数据）以列名为字段名、字符串为值
+     */
+    public Map<String, Object> getFields() {
+        if (fields == null) {
+            fields = decodeFields(data);
+        }
+        return fields;
+    }
+    
+    /**
+     * 只保留指定的字段；names为空时返回自身，一个字段都没有时返回null
+     */
+    StoredReading select(Collection<String> names) {
+        if (names.isEmpty()) {
+            return this;
+        }
+        Map<String, Object> decoded = getFields();
+        Map<String, Object> selected = new LinkedHashMap<>();
+        for (String name : names) {
+            if (decoded.containsKey(name)) {
+                selected.put(name, decoded.get(name));
+            }
+        }
+        return selected.isEmpty() ? null : new StoredReading(deviceId, timestamp, data, selected);
+    }
+    
+    private static Map<String, Object> decodeFields(Map<String, String> data) {
+        Map<String, Object> decoded = new LinkedHashMap<>();
+        for (Map.Entry<String, String> column : data.entrySet()) {
+            String value = column.getValue();
+            if (value != null && value.startsWith("{")) {
+                try {
+                    decoded.putAll(objectMapper.readValue(value, FIELDS_TYPE));
+                    continue;
+                } catch (JsonProcessingException e) {
+                    // 不是合法的JSON对象，按普通字符串列处理
+                }
+            }
+            decoded.put(column.getKey(), value);
+        }
+        return decoded;
+    }
+}
@@ -0,0 +1,259 @@
+package com.nexuscale.hbase;
+
+import com.nexuscale.config.ConfigManager;
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Admin;
+import org.apache.hadoop.hbase.client.ColumnFamilyDescriptor;
+import org.apache.hadoop.hbase.client.ColumnFamilyDescriptorBuilder;
+import org.apache.hadoop.hbase.client.RegionInfo;
+import org.apache.hadoop.hbase.client.TableDescriptor;
+import org.apache.hadoop.hbase.client.TableDescriptorBuilder;
+import org.apache.hadoop.hbase.io.compress.Compression;
+import org.apache.hadoop.hbase.io.encoding.DataBlockEncoding;
+import org.apache.hadoop.hbase.regionserver.BloomType;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 传感器数据表的建表/调整工具，可重复执行
+ * 表不存在时按行键分布预分区后创建；表已存在时只修改与期望不一致的列族属性，
+ * 并对缺失的分区边界发起split。每次执行先输出当前与期望结构的差异。
+ * salted行键按盐值桶预分区，legacy字符串行键按设备ID首位数字 "1" ~ "9" 预分区。
+ *
+ * 用法: TableProvisioner [--apply]
+ *   默认只输出差异，不做修改；--apply 才执行差异中的修改。
+ *   缩短TTL会让已有数据在下次major compaction时被删除，差异中会单独标出。
+ *   执行失败时以非0状态退出。
+ *
+ * 期望结构由 hbase.table.* 配置决定；SNAPPY/ZSTD 压缩需要RegionServer上有对应的本地库，
+ * 否则建表或修改列族会失败。
+ */
+public class TableProvisioner {
+    private static final Logger logger = LoggerFactory.getLogger(TableProvisioner.class);
+    
+    private final Admin admin;
+    private final TableName tableName;
+    private final byte[] columnFamily;
+    private final FamilySchema desired;
+    private final byte[][] splitKeys;
+    
+    public TableProvisioner(Admin admin, RowKeyCodec rowKeyCodec) {
+        this.admin = admin;
+        this.tableName = TableName.valueOf(ConfigManager.getProperty("hbase.table.name"));
+        this.columnFamily = Bytes.toBytes(ConfigManager.getProperty("hbase.column.family"));
+        this.desired = FamilySchema.fromConfig();
+        this.splitKeys = rowKeyCodec != null ? rowKeyCodec.splitKeys() : legacySplitKeys();
+    }
+    
+    public static void main(String[] args) {
+        boolean apply = args.length > 0 && "--apply".equals(args[0]);
+        boolean failed = false;
+        HBaseManager hbaseManager = new HBaseManager(HBaseWriteMode.SYNC);
+        try (Admin admin = hbaseManager.getAdmin()) {
+            TableProvisioner provisioner = new TableProvisioner(admin, hbaseManager.getRowKeyCodec());
+            List<String> changes = provisioner.diff();
+            if (changes.isEmpty()) {
+                logger.info("Table {} is up to date", provisioner.tableName);
+            } else {
+                logger.info("Schema changes for table {}:", provisioner.tableName);
+                for (String change : changes) {
+                    logger.info("  {}", change);
+                }
+                if (apply) {
+                    provisioner.apply();
+                } else {
+                    logger.info("Dry run, no changes applied; rerun with --apply to apply them");
+                }
+            }
+        } catch (IOException e) {
+            logger.error("Table provisioning failed", e);
+            failed = true;
+        } finally {
+            hbaseManager.close();
+        }
+        if (failed) {
+            System.exit(1);
+        }
+    }
+    
+    /**
+     * 当前结构与期望结构的差异，每项一行；为空表示无需修改
+     */
+    public List<String> diff() throws IOException {
+        List<String> changes = new ArrayList<>();
+        if (!admin.tableExists(tableName)) {
+            changes.add("create table " + tableName + " with " + (splitKeys.length + 1) + " regions");
+            changes.addAll(FamilySchema.NONE.diff(desired, "family " + Bytes.toString(columnFamily)));
+            return changes;
+        }
+        
+        TableDescriptor table = admin.getDescriptor(tableName);
+        if (!table.hasColumnFamily(columnFamily)) {
+            changes.add("add family " + Bytes.toString(columnFamily));
+            changes.addAll(FamilySchema.NONE.diff(desired, "family " + Bytes.toString(columnFamily)));
+        } else {
+            FamilySchema current = FamilySchema.of(table.getColumnFamily(columnFamily));
+            changes.addAll(current.diff(desired, "family " + Bytes.toString(columnFamily)));
+            if (desired.ttlSeconds < current.ttlSeconds) {
+                changes.add("WARNING: TTL reduction deletes cells older than " + desired.ttlSeconds
+                        + "s at the next major compaction");
+            }
+        }
+        
+        List<byte[]> missing = missingSplitKeys();
+        if (!missing.isEmpty()) {
+            changes.add("regions: " + admin.getRegions(tableName).size() + ", missing " + missing.size()
+                    + " of " + splitKeys.length + " split points " + formatKeys(missing));
+        }
+        return changes;
+    }
+    
+    /**
+     * 把表调整到期望结构；已经一致的部分不做任何操作
+     */
+    public void apply() throws IOException {
+        if (!admin.tableExists(tableName)) {
+            TableDescriptor table = TableDescriptorBuilder.newBuilder(tableName)
+                    .setColumnFamily(desired.applyTo(ColumnFamilyDescriptorBuilder.newBuilder(columnFamily)).build())
+                    .build();
+            admin.createTable(table, splitKeys);
+            logger.info("Created table {} with {} regions", tableName, splitKeys.length + 1);
+            return;
+        }
+        
+        TableDescriptor table = admin.getDescriptor(tableName);
+        if (!table.hasColumnFamily(columnFamily)) {
+            admin.addColumnFamily(tableName,
+                    desired.applyTo(ColumnFamilyDescriptorBuilder.newBuilder(columnFamily)).build());
+            logger.info("Added family {} to table {}", Bytes.toString(columnFamily), tableName);
+        } else {
+            ColumnFamilyDescriptor family = table.getColumnFamily(columnFamily);
+            if (!FamilySchema.of(family).diff(desired, "").isEmpty()) {
+                // 基于现有描述修改，保留未由本工具管理的列族属性
+                admin.modifyColumnFamily(tableName, desired.applyTo(ColumnFamilyDescriptorBuilder.newBuilder(family)).build());
+                logger.info("Modified family {} of table {}", Bytes.toString(columnFamily), tableName);
+            }
+        }
+        
+        // split是异步的，完成前再次执行仍会显示缺失的分割点（再次请求split是安全的）
+        for (byte[] splitKey : missingSplitKeys()) {
+            try {
+                admin.split(tableName, splitKey);
+                logger.info("Requested split of table {} at {}", tableName, Bytes.toStringBinary(splitKey));
+            } catch (IOException e) {
+                logger.warn("Split of table {} at {} failed: {}", tableName, Bytes.toStringBinary(splitKey), e.getMessage());
+            }
+        }
+    }
+    
+    private List<byte[]> missingSplitKeys() throws IOException {
+        List<RegionInfo> regions = admin.getRegions(tableName);
+        List<byte[]> missing = new ArrayList<>();
+        for (byte[] splitKey : splitKeys) {
+            boolean present = false;
+            for (RegionInfo region : regions) {
+                if (Bytes.equals(region.getStartKey(), splitKey)) {
+                    present = true;
+                    break;
+                }
+            }
+            if (!present) {
+                missing.add(splitKey);
+            }
+        }
+        return missing;
+    }
+    
+    private static String formatKeys(List<byte[]> keys) {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < keys.size(); i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(Bytes.toStringBinary(keys.get(i)));
+        }
+        return sb.append(']').toString();
+    }
+    
+    // 字符串行键 deviceId_timestamp 以deviceId的首位数字开头，按 "1" ~ "9" 分割
+    private static byte[][] legacySplitKeys() {
+        byte[][] splits = new byte[9][];
+        for (int digit = 1; digit <= 9; digit++) {
+            splits[digit - 1] = Bytes.toBytes(String.valueOf(digit));
+        }
+        return splits;
+    }
+    
+    /**
+     * 本工具管理的列族属性
+     */
+    static class FamilySchema {
+        // 未创建的列族，与HBase默认值相同
+        static final FamilySchema NONE = new FamilySchema(Compression.Algorithm.NONE, DataBlockEncoding.NONE,
+                                                          BloomType.ROW, HConstants.FOREVER, 1);
+        
+        final Compression.Algorithm compression;
+        final DataBlockEncoding encoding;
+        final BloomType bloom;
+        final int ttlSeconds;
+        final int maxVersions;
+        
+        FamilySchema(Compression.Algorithm compression, DataBlockEncoding encoding, BloomType bloom,
+                     int ttlSeconds, int maxVersions) {
+            this.compression = compression;
+            this.encoding = encoding;
+            this.bloom = bloom;
+            this.ttlSeconds = ttlSeconds;
+            this.maxVersions = maxVersions;
+        }
+        
+        static FamilySchema of(ColumnFamilyDescriptor family) {
+            return new FamilySchema(family.getCompressionType(), family.getDataBlockEncoding(),
+                                    family.getBloomFilterType(), family.getTimeToLive(), family.getMaxVersions());
+        }
+        
+        static FamilySchema fromConfig() {
+            int ttlSeconds = ConfigManager.getIntProperty("hbase.table.ttl.seconds", 0);
+            return new FamilySchema(
+                    Compression.Algorithm.valueOf(ConfigManager.getProperty("hbase.table.compression", "snappy").trim().toUpperCase()),
+                    DataBlockEncoding.valueOf(ConfigManager.getProperty("hbase.table.data.block.encoding", "fast_diff").trim().toUpperCase()),
+                    BloomType.valueOf(ConfigManager.getProperty("hbase.table.bloom.filter", "row").trim().toUpperCase()),
+                    ttlSeconds > 0 ? ttlSeconds : HConstants.FOREVER,
+                    ConfigManager.getIntProperty("hbase.table.max.versions", 1));
+        }
+        
+        ColumnFamilyDescriptorBuilder applyTo(ColumnFamilyDescriptorBuilder builder) {
+            return builder.setCompressionType(compression)
+                          .setDataBlockEncoding(encoding)
+                          .setBloomFilterType(bloom)
+                          .setTimeToLive(ttlSeconds)
+                          .setMaxVersions(maxVersions);
+        }
+        
+        List<String> diff(FamilySchema target, String scope) {
+            List<String> changes = new ArrayList<>();
+            addChange(changes, scope, "COMPRESSION", compression, target.compression);
+            addChange(changes, scope, "DATA_BLOCK_ENCODING", encoding, target.encoding);
+            addChange(changes, scope, "BLOOMFILTER", bloom, target.bloom);
+            addChange(changes, scope, "TTL", formatTtl(ttlSeconds), formatTtl(target.ttlSeconds));
+            addChange(changes, scope, "VERSIONS", maxVersions, target.maxVersions);
+            return changes;
+        }
+        
+        private static void addChange(List<String> changes, String scope, String attribute, Object from, Object to) {
+            if (!from.equals(to)) {
+                changes.add(scope + " " + attribute + ": " + from + " -> " + to);
+            }
+        }
+        
+        private static String formatTtl(int ttlSeconds) {
+            return ttlSeconds == HConstants.FOREVER ? "FOREVER" : ttlSeconds + "s";
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package com.nexuscale.kafka;
+
+import com.nexuscale.config.ConfigManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 按观测到的发送速率和消息大小在生产者配置之间切换
+ * 每个采样窗口统计记录数和字节数；取最近若干窗口中的峰值速率判断负载，
+ * 这样整分钟的突发不会因为两次突发之间的空闲窗口被判为低负载。
+ * - 峰值速率 &gt;= high 阈值：切换到高吞吐配置，平均消息 &gt;= zstd阈值时用zstd，否则lz4
+ * - 峰值速率 &lt; low 阈值：切回低延迟配置
+ * 两次切换之间至少间隔 min.dwell，避免在阈值附近来回切换。
+ *
+ * 同时按配置累计每种配置下的记录数、应用字节、网络字节（压缩后）和请求数，用于比较切换效果。
+ */
+public class AdaptiveProducerController {
+    private static final Logger logger = LoggerFactory.getLogger(AdaptiveProducerController.class);
+    
+    private final KafkaProducerManager producerManager;
+    private final long intervalMillis;
+    private final double highRecordsPerSec;
+    private final double lowRecordsPerSec;
+    private final int zstdMinRecordBytes;
+    private final long minDwellMillis;
+    private final double[] windowRates;
+    private final ScheduledExecutorService scheduler;
+    
+    private int windowIndex;
+    private long lastSampleTime;
+    private long lastRecords;
+    private long lastBytes;
+    private long lastWireBytes;
+    private long lastRequests;
+    private long lastSwitchTime;
+    private int switches;
+    
+    // 最近一个窗口的观测值
+    private volatile double recordsPerSec;
+    private volatile double bytesPerSec;
+    private volatile double wireBytesPerSec;
+    private volatile double requestsPerSec;
+    private final Map<ProducerProfile, ProfileStats> profileStats = new EnumMap<>(ProducerProfile.class);
+    
+    public AdaptiveProducerController(KafkaProducerManager producerManager) {
+        this.producerManager = producerManager;
+        this.intervalMillis = ConfigManager.getIntProperty("kafka.adaptive.interval.ms", 10000);
+        this.highRecordsPerSec = ConfigManager.getDoubleProperty("kafka.adaptive.high.records.per.sec", 5000);
+        this.lowRecordsPerSec = ConfigManager.getDoubleProperty("kafka.adaptive.low.records.per.sec", 1000);
+        this.zstdMinRecordBytes = ConfigManager.getIntProperty("kafka.adaptive.zstd.min.record.bytes", 256);
+        this.minDwellMillis = ConfigManager.getIntProperty("kafka.adaptive.min.dwell.ms", 60000);
+        this.windowRates = new double[Math.max(1, ConfigManager.getIntProperty("kafka.adaptive.window.count", 6))];
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "kafka-adaptive-controller");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    public void start() {
+        lastSampleTime = System.currentTimeMillis();
+        lastSwitchTime = lastSampleTime;
+        lastRecords = producerManager.getRecordsSent();
+        lastBytes = producerManager.getBytesSent();
+        lastWireBytes = producerManager.getOutgoingBytes();
+        lastRequests = producerManager.getRequestCount();
+        scheduler.scheduleWithFixedDelay(this::evaluateSafely, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        logger.info("Adaptive producer controller started: interval={}ms, high={} rec/s, low={} rec/s, zstd >= {} B/record",
+                   intervalMillis, highRecordsPerSec, lowRecordsPerSec, zstdMinRecordBytes);
+    }
+    
+    public void stop() {
+        scheduler.shutdownNow();
+    }
+    
+    private void evaluateSafely() {
+        try {
+            evaluate();
+        } catch (Exception e) {
+            logger.error("Adaptive producer evaluation failed", e);
+        }
+    }
+    
+    synchronized void evaluate() {
+        long now = System.currentTimeMillis();
+        long records = producerManager.getRecordsSent();
+        long bytes = producerManager.getBytesSent();
+        long wireBytes = producerManager.getOutgoingBytes();
+        long requests = producerManager.getRequestCount();
+        double seconds = Math.max(1, now - lastSampleTime) / 1000.0;
+        
+        long deltaRecords = records - lastRecords;
+        long deltaBytes = bytes - lastBytes;
+        recordsPerSec = deltaRecords / seconds;
+        bytesPerSec = deltaBytes / seconds;
+        wireBytesPerSec = (wireBytes - lastWireBytes) / seconds;
+        requestsPerSec = (requests - lastRequests) / seconds;
+        
+        ProducerProfile current = producerManager.getProfile();
+        profileStats.computeIfAbsent(current, p -> new ProfileStats())
+                .add(seconds, deltaRecords, deltaBytes, wireBytes - lastWireBytes, requests - lastRequests);
+        
+        windowRates[windowIndex] = recordsPerSec;
+        windowIndex = (windowIndex + 1) % windowRates.length;
+        lastSampleTime = now;
+        lastRecords = records;
+        lastBytes = bytes;
+        lastWireBytes = wireBytes;
+        lastRequests = requests;
+        
+        double peakRate = 0;
+        for (double rate : windowRates) {
+            peakRate = Math.max(peakRate, rate);
+        }
+        ProducerProfile target = choose(current, peakRate, deltaRecords > 0 ? (double) deltaBytes / deltaRecords : 0);
+        if (target != current && now - lastSwitchTime >= minDwellMillis) {
+            logger.info("Switching producer profile {} -> {}: peak {} rec/s, {} B/record", current, target,
+                       String.format("%.0f", peakRate), deltaRecords > 0 ? deltaBytes / deltaRecords : 0);
+            if (producerManager.switchProfile(target)) {
+                lastSwitchTime = now;
+                switches++;
+            }
+        }
+    }
+    
+    private ProducerProfile choose(ProducerProfile current, double peakRate, double avgRecordBytes) {
+        if (peakRate >= highRecordsPerSec || (current.isThroughput() && peakRate >= lowRecordsPerSec)) {
+            if (avgRecordBytes == 0 && current.isThroughput()) {
+                return current;
+            }
+            return avgRecordBytes >= zstdMinRecordBytes ? ProducerProfile.THROUGHPUT_ZSTD : ProducerProfile.THROUGHPUT_LZ4;
+        }
+        return ProducerProfile.LOW_LATENCY;
+    }
+    
+    public int getSwitches() {
+        return switches;
+    }
+    
+    public double getRecordsPerSec() {
+        return recordsPerSec;
+    }
+    
+    public double getBytesPerSec() {
+        return bytesPerSec;
+    }
+    
+    public double getWireBytesPerSec() {
+        return wireBytesPerSec;
+    }
+    
+    public double getRequestsPerSec() {
+        return requestsPerSec;
+    }
+    
+    /**
+     * 最近窗口的速率，以及每种配置下累计的平均速率、每请求记录数和压缩比
+     */
+    public synchronized String formatStatus() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("switches=%d, last window: %.0f rec/s, %.1f KB/s app, %.1f KB/s wire, %.1f req/s",
+                                switches, recordsPerSec, bytesPerSec / 1024, wireBytesPerSec / 1024, requestsPerSec));
+        for (Map.Entry<ProducerProfile, ProfileStats> entry : profileStats.entrySet()) {
+            sb.append("; ").append(entry.getKey()).append(": ").append(entry.getValue());
+        }
+        return sb.toString();
+    }
+    
+    private static final class ProfileStats {
+        double seconds;
+        long records;
+        long bytes;
+        long wireBytes;
+        long requests;
+        
+        void add(double seconds, long records, long bytes, long wireBytes, long requests) {
+            this.seconds += seconds;
+            this.records += records;
+            this.bytes += bytes;
+            this.wireBytes += wireBytes;
+            this.requests += requests;
+        }
+        
+        @Override
+        public String toString() {
+            return String.format("%.0fs, %.0f rec/s, %.1f req/s, %.1f rec/req, wire/app %.2f",
+                                 seconds, records / seconds, requests / seconds,
+                                 requests > 0 ? (double) records / requests : 0,
+                                 bytes > 0 ? (double) wireBytes / bytes : 0);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.nexuscale.kafka;
+
+/**
+ * 传感器消息的key
+ * 只有deviceId被序列化（4字节int）；设备类型只在生产者进程内供 DevicePartitioner 选择分区范围，不进入消息。
+ */
+public final class DeviceKey {
+    private final int deviceId;
+    private final String deviceType;
+    
+    public DeviceKey(int deviceId, String deviceType) {
+        this.deviceId = deviceId;
+        this.deviceType = deviceType;
+    }
+    
+    public static DeviceKey of(String deviceId, String deviceType) {
+        try {
+            return new DeviceKey(Integer.parseInt(deviceId), deviceType);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Device id is not numeric: " + deviceId);
+        }
+    }
+    
+    public int getDeviceId() {
+        return deviceId;
+    }
+    
+    public String getDeviceType() {
+        return deviceType;
+    }
+}
@@ -0,0 +1,39 @@
+package com.nexuscale.kafka;
+
+import org.apache.kafka.common.serialization.Serializer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * 把 DeviceKey 写成4字节大端int，与Kafka IntegerSerializer的格式相同，消费端可直接用 IntegerDeserializer 读取
+ * 生产者配置 nexuscale.key.format=string 时写成旧格式的字符串 "device_" + deviceId（UTF-8），
+ * 供仍按字符串解析key的消费端使用。
+ */
+public class DeviceKeySerializer implements Serializer<DeviceKey> {
+    public static final String KEY_FORMAT_CONFIG = "nexuscale.key.format";
+    
+    private volatile boolean stringKeys;
+    
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        stringKeys = isStringFormat(configs);
+    }
+    
+    static boolean isStringFormat(Map<String, ?> configs) {
+        Object format = configs.get(KEY_FORMAT_CONFIG);
+        return format != null && "string".equalsIgnoreCase(format.toString().trim());
+    }
+    
+    @Override
+    public byte[] serialize(String topic, DeviceKey key) {
+        if (key == null) {
+            return null;
+        }
+        int id = key.getDeviceId();
+        if (stringKeys) {
+            return ("device_" + id).getBytes(StandardCharsets.UTF_8);
+        }
+        return new byte[]{(byte) (id >>> 24), (byte) (id >>> 16), (byte) (id >>> 8), (byte) id};
+    }
+}
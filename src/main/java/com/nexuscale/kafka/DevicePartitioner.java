@@ -0,0 +1,45 @@
+package com.nexuscale.kafka;
+
+import org.apache.kafka.clients.producer.Partitioner;
+import org.apache.kafka.common.Cluster;
+import org.apache.kafka.common.utils.Utils;
+
+import java.util.Map;
+
+/**
+ * 按deviceId确定分区的Partitioner，可选按设备类型划分分区范围（见 TypePartitionRanges）
+ * 分区范围通过生产者配置 nexuscale.partition.type.ranges 传入。
+ * key不是 DeviceKey 时（例如连接测试消息）按key字节的murmur2哈希选择分区，没有key时写入分区0。
+ * 使用旧的字符串key格式且没有配置类型分区范围时，同样按key字节的murmur2哈希选择分区，
+ * 与改用int key之前（Kafka默认分区器）的设备到分区映射一致。
+ */
+public class DevicePartitioner implements Partitioner {
+    public static final String TYPE_RANGES_CONFIG = "nexuscale.partition.type.ranges";
+    
+    private volatile TypePartitionRanges ranges = new TypePartitionRanges(null);
+    private volatile boolean legacyHashing;
+    
+    @Override
+    public void configure(Map<String, ?> configs) {
+        Object spec = configs.get(TYPE_RANGES_CONFIG);
+        ranges = new TypePartitionRanges(spec != null ? spec.toString() : null);
+        legacyHashing = DeviceKeySerializer.isStringFormat(configs) && ranges.isEmpty();
+    }
+    
+    @Override
+    public int partition(String topic, Object key, byte[] keyBytes, Object value, byte[] valueBytes, Cluster cluster) {
+        int numPartitions = cluster.partitionCountForTopic(topic);
+        if (key instanceof DeviceKey && !legacyHashing) {
+            DeviceKey deviceKey = (DeviceKey) key;
+            return ranges.partition(deviceKey.getDeviceType(), deviceKey.getDeviceId(), numPartitions);
+        }
+        if (keyBytes == null) {
+            return 0;
+        }
+        return Utils.toPositive(Utils.murmur2(keyBytes)) % numPartitions;
+    }
+    
+    @Override
+    public void close() {
+    }
+}
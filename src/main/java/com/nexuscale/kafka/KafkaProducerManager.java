@@ -5,38 +5,69 @@ import org.apache.kafka.clients.producer.KafkaProducer;
 import org.apache.kafka.clients.producer.Producer;
 import org.apache.kafka.clients.producer.ProducerConfig;
 import org.apache.kafka.clients.producer.ProducerRecord;
-import org.apache.kafka.common.serialization.StringSerializer;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 public class KafkaProducerManager {
     private static final Logger logger = LoggerFactory.getLogger(KafkaProducerManager.class);
     
-    private Producer<String, String> producer;
+    // 消息值统一按字节发送，编码格式（JSON / 二进制）由调用方按topic决定
+    private Producer<DeviceKey, byte[]> producer;
+    // 发送持有读锁，切换生产者实例持有写锁
+    private final ReentrantReadWriteLock producerLock = new ReentrantReadWriteLock();
+    private volatile ProducerProfile profile;
+    private final AdaptiveProducerController adaptiveController;
     private final String topicName;
+    private final ProducerMetrics metrics = new ProducerMetrics();
+    private final AtomicLong batchesSent = new AtomicLong();
+    private final AtomicLong recordsSent = new AtomicLong();
+    private final AtomicLong bytesSent = new AtomicLong();
+    // 已关闭的生产者实例的累计指标，切换后计数不归零
+    private final AtomicLong retiredRequests = new AtomicLong();
+    private final AtomicLong retiredOutgoingBytes = new AtomicLong();
     
     public KafkaProducerManager() {
         this.topicName = ConfigManager.getProperty("kafka.topic.sensor.data");
-        initializeProducer();
+        // fixed = 使用 kafka.producer.* 固定配置；adaptive = 按负载在低延迟/高吞吐配置之间切换
+        boolean adaptive = "adaptive".equalsIgnoreCase(ConfigManager.getProperty("kafka.producer.mode", "fixed"));
+        this.profile = adaptive ? ProducerProfile.LOW_LATENCY : ProducerProfile.CONFIGURED;
+        this.producer = createProducer(profile);
+        logger.info("Kafka producer initialized successfully. Topic: {}, profile: {}", topicName, profile.describe());
+        
+        if (adaptive) {
+            adaptiveController = new AdaptiveProducerController(this);
+            adaptiveController.start();
+        } else {
+            adaptiveController = null;
+        }
     }
     
-    private void initializeProducer() {
+    private Producer<DeviceKey, byte[]> createProducer(ProducerProfile producerProfile) {
         Properties props = new Properties();
         props.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, 
                  ConfigManager.getProperty("kafka.bootstrap.servers"));
-        props.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class.getName());
-        props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, StringSerializer.class.getName());
+        // key为4字节deviceId（或旧格式字符串），分区由deviceId（及可选的类型分区范围）确定
+        props.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, DeviceKeySerializer.class.getName());
+        props.put(DeviceKeySerializer.KEY_FORMAT_CONFIG, ConfigManager.getProperty("kafka.key.format", "int"));
+        props.put(ProducerConfig.PARTITIONER_CLASS_CONFIG, DevicePartitioner.class.getName());
+        props.put(DevicePartitioner.TYPE_RANGES_CONFIG, ConfigManager.getProperty("kafka.partition.type.ranges", ""));
+        props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class.getName());
         
         // 生产者配置优化
         props.put(ProducerConfig.RETRIES_CONFIG, 
                  ConfigManager.getIntProperty("kafka.producer.retries", 3));
-        props.put(ProducerConfig.BATCH_SIZE_CONFIG, 
-                 ConfigManager.getIntProperty("kafka.producer.batch.size", 16384));
-        props.put(ProducerConfig.LINGER_MS_CONFIG, 
-                 ConfigManager.getIntProperty("kafka.producer.linger.ms", 1));
         props.put(ProducerConfig.BUFFER_MEMORY_CONFIG, 
                  ConfigManager.getIntProperty("kafka.producer.buffer.memory", 33554432));
         
@@ -44,15 +75,64 @@ public class KafkaProducerManager {
         props.put(ProducerConfig.ACKS_CONFIG, "all");
         props.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
         
-        this.producer = new KafkaProducer<>(props);
-        logger.info("Kafka producer initialized successfully. Topic: {}", topicName);
+        // linger.ms / batch.size / compression.type 由配置组合决定
+        producerProfile.apply(props);
+        return new KafkaProducer<>(props);
+    }
+    
+    /**
+     * 切换到新的配置组合
+     * 先在锁外创建新实例；写锁只用于等待发送中的调用结束并替换引用，
+     * 之后在锁外flush并关闭旧实例，切换期间发送线程最多等待一次引用替换，不会等待旧实例的网络往返。
+     * 代价是切换瞬间旧实例中尚未发出的批次可能晚于新实例的消息到达，同一设备的消息在切换点附近可能乱序。
+     * @return 是否发生了切换
+     */
+    public boolean switchProfile(ProducerProfile newProfile) {
+        if (newProfile == profile) {
+            return false;
+        }
+        
+        Producer<DeviceKey, byte[]> newProducer;
+        try {
+            newProducer = createProducer(newProfile);
+        } catch (Exception e) {
+            logger.error("Failed to create producer for profile {}, keeping {}", newProfile, profile, e);
+            return false;
+        }
+        
+        Producer<DeviceKey, byte[]> oldProducer;
+        ProducerProfile oldProfile;
+        producerLock.writeLock().lock();
+        try {
+            oldProducer = producer;
+            oldProfile = profile;
+            producer = newProducer;
+            profile = newProfile;
+        } finally {
+            producerLock.writeLock().unlock();
+        }
+        
+        // 已没有线程能拿到旧实例，flush后它的计数不再变化
+        oldProducer.flush();
+        retiredRequests.addAndGet(readMetric(oldProducer, "request-total"));
+        retiredOutgoingBytes.addAndGet(readMetric(oldProducer, "outgoing-byte-total"));
+        oldProducer.close(Duration.ofSeconds(30));
+        logger.info("Kafka producer switched {} -> {}", oldProfile, newProfile.describe());
+        return true;
     }
     
     public boolean testConnection() {
         try {
             // 发送一个测试消息
             String testMessage = "{\"test\":\"connection\",\"timestamp\":" + System.currentTimeMillis() + "}";
-            Future<?> future = producer.send(new ProducerRecord<>(topicName, "test", testMessage));
+            Future<?> future;
+            producerLock.readLock().lock();
+            try {
+                future = producer.send(new ProducerRecord<>(topicName, null, 
+                                                            testMessage.getBytes(StandardCharsets.UTF_8)));
+            } finally {
+                producerLock.readLock().unlock();
+            }
             future.get(); // 等待发送完成
             
             logger.info("Kafka connection test successful");
@@ -63,19 +143,23 @@ public class KafkaProducerManager {
         }
     }
     
-    public void sendSensorData(String deviceId, String jsonData) {
+    /**
+     * @param deviceType 设备类型，决定类型分区范围，并用于按类型统计确认结果
+     */
+    public void sendSensorData(String deviceId, String deviceType, String jsonData) {
         try {
-            String key = "device_" + deviceId;
-            ProducerRecord<String, String> record = new ProducerRecord<>(topicName, key, jsonData);
+            ProducerRecord<DeviceKey, byte[]> record = new ProducerRecord<>(topicName, DeviceKey.of(deviceId, deviceType), 
+                                                                            jsonData.getBytes(StandardCharsets.UTF_8));
             
-            producer.send(record, (metadata, exception) -> {
-                if (exception == null) {
-                    logger.info("Successfully sent message for device {} to partition {} at offset {}", 
-                               deviceId, metadata.partition(), metadata.offset());
-                } else {
-                    logger.error("Failed to send message for device {}", deviceId, exception);
-                }
-            });
+            producerLock.readLock().lock();
+            try {
+                producer.send(record, metrics.track(deviceId, deviceType));
+            } catch (Exception e) {
+                metrics.untrack(deviceType);
+                throw e;
+            } finally {
+                producerLock.readLock().unlock();
+            }
             
         } catch (Exception e) {
             logger.error("Error sending sensor data for device {}", deviceId, e);
@@ -83,13 +167,60 @@ public class KafkaProducerManager {
         }
     }
     
-    public void sendSensorDataSync(String deviceId, String jsonData) {
+    /**
+     * 批量发送同一刻度生成的传感器数据
+     * 所有记录连续写入生产者缓冲区，由生产者按分区合并成批次发出；
+     * 确认结果只进入 ProducerMetrics 统计，不逐条记录日志。
+     */
+    public void sendSensorDataBatch(List<SensorMessage> messages) {
+        if (messages.isEmpty()) {
+            return;
+        }
+        
+        int total = messages.size();
+        SensorMessage current = null;
+        producerLock.readLock().lock();
         try {
-            String key = "device_" + deviceId;
-            ProducerRecord<String, String> record = new ProducerRecord<>(topicName, key, jsonData);
+            long bytes = 0;
+            for (SensorMessage message : messages) {
+                current = message;
+                DeviceKey key = DeviceKey.of(message.getDeviceId(), message.getDeviceType());
+                producer.send(new ProducerRecord<>(topicName, key, message.getValue()), 
+                             metrics.track(message.getDeviceId(), message.getDeviceType()));
+                current = null;
+                bytes += message.getValue().length;
+            }
+            batchesSent.incrementAndGet();
+            recordsSent.addAndGet(total);
+            bytesSent.addAndGet(bytes);
             
-            producer.send(record).get(); // 同步发送
-            logger.info("Successfully sent message for device {} synchronously", deviceId);
+        } catch (Exception e) {
+            if (current != null) {
+                metrics.untrack(current.getDeviceType());
+            }
+            logger.error("Error sending sensor data batch of {} records", total, e);
+            throw new RuntimeException("Kafka batch send operation failed", e);
+        } finally {
+            producerLock.readLock().unlock();
+        }
+    }
+    
+    public void sendSensorDataSync(String deviceId, String deviceType, String jsonData) {
+        try {
+            ProducerRecord<DeviceKey, byte[]> record = new ProducerRecord<>(topicName, DeviceKey.of(deviceId, deviceType), 
+                                                                            jsonData.getBytes(StandardCharsets.UTF_8));
+            
+            Future<?> future;
+            producerLock.readLock().lock();
+            try {
+                future = producer.send(record, metrics.track(deviceId, deviceType));
+            } catch (Exception e) {
+                metrics.untrack(deviceType);
+                throw e;
+            } finally {
+                producerLock.readLock().unlock();
+            }
+            future.get(); // 同步发送
             
         } catch (Exception e) {
             logger.error("Error sending sensor data synchronously for device {}", deviceId, e);
@@ -97,15 +228,99 @@ public class KafkaProducerManager {
         }
     }
     
+    public String getTopicName() {
+        return topicName;
+    }
+    
+    public ProducerMetrics getMetrics() {
+        return metrics;
+    }
+    
+    public long getBatchesSent() {
+        return batchesSent.get();
+    }
+    
+    public long getRecordsSent() {
+        return recordsSent.get();
+    }
+    
+    /**
+     * 交给生产者的消息值字节数（压缩前）
+     */
+    public long getBytesSent() {
+        return bytesSent.get();
+    }
+    
+    /**
+     * 生产者实际发出的请求数（produce请求 + 元数据等），取自客户端的 request-total 指标
+     */
+    public long getRequestCount() {
+        return retiredRequests.get() + readCurrentMetric("request-total");
+    }
+    
+    /**
+     * 生产者发往broker的字节数（压缩后，含协议开销），取自 outgoing-byte-total 指标
+     */
+    public long getOutgoingBytes() {
+        return retiredOutgoingBytes.get() + readCurrentMetric("outgoing-byte-total");
+    }
+    
+    public ProducerProfile getProfile() {
+        return profile;
+    }
+    
+    /**
+     * 当前配置组合；自适应模式下附带最近窗口的速率和各配置的累计效果
+     */
+    public String formatProfileStatus() {
+        if (adaptiveController == null) {
+            return profile.describe();
+        }
+        return profile.describe() + ", " + adaptiveController.formatStatus();
+    }
+    
+    private long readCurrentMetric(String metricName) {
+        producerLock.readLock().lock();
+        try {
+            return readMetric(producer, metricName);
+        } finally {
+            producerLock.readLock().unlock();
+        }
+    }
+    
+    private static long readMetric(Producer<DeviceKey, byte[]> producer, String metricName) {
+        for (Map.Entry<MetricName, ? extends Metric> entry : producer.metrics().entrySet()) {
+            MetricName name = entry.getKey();
+            if (metricName.equals(name.name()) && "producer-metrics".equals(name.group())) {
+                Object value = entry.getValue().metricValue();
+                return value instanceof Number ? ((Number) value).longValue() : 0;
+            }
+        }
+        return 0;
+    }
+    
     public void flush() {
-        producer.flush();
+        producerLock.readLock().lock();
+        try {
+            producer.flush();
+        } finally {
+            producerLock.readLock().unlock();
+        }
         logger.debug("Kafka producer flushed");
     }
     
     public void close() {
-        if (producer != null) {
-            producer.close();
-            logger.info("Kafka producer closed");
+        if (adaptiveController != null) {
+            adaptiveController.stop();
+        }
+        producerLock.writeLock().lock();
+        try {
+            if (producer != null) {
+                producer.close();
+                logger.info("Kafka producer closed");
+            }
+        } finally {
+            producerLock.writeLock().unlock();
         }
     }
 } 
\ No newline at end of file
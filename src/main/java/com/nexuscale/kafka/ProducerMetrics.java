@@ -0,0 +1,224 @@
+package com.nexuscale.kafka;
+
+import com.nexuscale.config.ConfigManager;
+import com.nexuscale.metrics.LatencyHistogram;
+import com.nexuscale.metrics.MetricsSource;
+import org.apache.kafka.clients.producer.Callback;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 生产者发送结果的内存统计，替代逐条确认日志
+ * 按分区和设备类型统计确认数、失败数、发送到确认的延迟分布，按类型统计在途数。
+ * 热路径上只有采样日志（每 kafka.metrics.log.sample 条确认记录一条）和限速的错误日志。
+ */
+public class ProducerMetrics implements MetricsSource {
+    private static final Logger logger = LoggerFactory.getLogger(ProducerMetrics.class);
+    private static final String UNKNOWN_TYPE = "unknown";
+    // 错误日志最小间隔，期间的其他错误只计数
+    private static final long ERROR_LOG_INTERVAL_MS = 1000;
+    
+    private final int logSampleEvery;
+    private final Stats total = new Stats();
+    private final Map<Integer, Stats> partitions = new ConcurrentHashMap<>();
+    private final Map<String, Stats> types = new ConcurrentHashMap<>();
+    private final AtomicLong lastErrorLogTime = new AtomicLong();
+    private final AtomicLong suppressedErrors = new AtomicLong();
+    
+    public ProducerMetrics() {
+        this.logSampleEvery = ConfigManager.getIntProperty("kafka.metrics.log.sample", 10000);
+    }
+    
+    /**
+     * 登记一条即将发送的消息，返回发送回调
+     */
+    public Callback track(String deviceId, String deviceType) {
+        Stats typeStats = typeStats(deviceType);
+        total.sent.incrementAndGet();
+        typeStats.sent.incrementAndGet();
+        return new AckCallback(deviceId, typeStats, System.nanoTime());
+    }
+    
+    /**
+     * send调用本身抛出异常（回调不会执行）时撤销登记
+     */
+    public void untrack(String deviceType) {
+        total.sent.decrementAndGet();
+        typeStats(deviceType).sent.decrementAndGet();
+    }
+    
+    private Stats typeStats(String deviceType) {
+        return types.computeIfAbsent(deviceType != null ? deviceType : UNKNOWN_TYPE, t -> new Stats());
+    }
+    
+    public long getSent() {
+        return total.sent.get();
+    }
+    
+    public long getAcked() {
+        return total.acked.get();
+    }
+    
+    public long getFailed() {
+        return total.failed.get();
+    }
+    
+    public long getInFlight() {
+        return total.inFlight();
+    }
+    
+    public String formatSummary() {
+        return String.format("sent %d, acked %d, failed %d, in-flight %d, ack latency %s",
+                             total.sent.get(), total.acked.get(), total.failed.get(), total.inFlight(),
+                             total.latency.formatPercentiles());
+    }
+    
+    public String formatByType() {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, Stats> entry : new TreeMap<>(types).entrySet()) {
+            Stats stats = entry.getValue();
+            if (sb.length() > 0) {
+                sb.append("; ");
+            }
+            sb.append(String.format("%s: acked %d, failed %d, in-flight %d, %s", entry.getKey(), 
+                                    stats.acked.get(), stats.failed.get(), stats.inFlight(), 
+                                    stats.latency.formatPercentiles()));
+        }
+        return sb.toString();
+    }
+    
+    public String formatByPartition() {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<Integer, Stats> entry : new TreeMap<>(partitions).entrySet()) {
+            Stats stats = entry.getValue();
+            if (sb.length() > 0) {
+                sb.append("; ");
+            }
+            sb.append(String.format("p%d: acked %d, failed %d, p99<=%s ms", entry.getKey(), 
+                                    stats.acked.get(), stats.failed.get(), stats.latency.percentile(0.99)));
+        }
+        return sb.toString();
+    }
+    
+    @Override
+    public void writePrometheus(StringBuilder out) {
+        out.append("# TYPE nexuscale_kafka_records_sent_total counter\n");
+        out.append("nexuscale_kafka_records_sent_total ").append(total.sent.get()).append('\n');
+        out.append("# TYPE nexuscale_kafka_records_in_flight gauge\n");
+        out.append("nexuscale_kafka_records_in_flight ").append(total.inFlight()).append('\n');
+        
+        Map<String, Stats> byType = new TreeMap<>(types);
+        writeCounters(out, "nexuscale_kafka_type_records_acked_total", "counter", "device_type", byType, Field.ACKED);
+        writeCounters(out, "nexuscale_kafka_type_records_failed_total", "counter", "device_type", byType, Field.FAILED);
+        writeCounters(out, "nexuscale_kafka_type_records_in_flight", "gauge", "device_type", byType, Field.IN_FLIGHT);
+        writeHistograms(out, "nexuscale_kafka_type_ack_latency_ms", "device_type", byType);
+        
+        Map<Integer, Stats> byPartition = new TreeMap<>(partitions);
+        writeCounters(out, "nexuscale_kafka_partition_records_acked_total", "counter", "partition", byPartition, Field.ACKED);
+        writeCounters(out, "nexuscale_kafka_partition_records_failed_total", "counter", "partition", byPartition, Field.FAILED);
+        writeHistograms(out, "nexuscale_kafka_partition_ack_latency_ms", "partition", byPartition);
+    }
+    
+    private static void writeCounters(StringBuilder out, String name, String type, String label, 
+                                      Map<?, Stats> stats, Field field) {
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+        for (Map.Entry<?, Stats> entry : stats.entrySet()) {
+            out.append(name).append('{').append(label).append("=\"").append(entry.getKey()).append("\"} ")
+               .append(field.read(entry.getValue())).append('\n');
+        }
+    }
+    
+    private static void writeHistograms(StringBuilder out, String name, String label, Map<?, Stats> stats) {
+        out.append("# TYPE ").append(name).append(" histogram\n");
+        for (Map.Entry<?, Stats> entry : stats.entrySet()) {
+            entry.getValue().latency.writePrometheus(out, name, label + "=\"" + entry.getKey() + "\"");
+        }
+    }
+    
+    private void logError(String deviceId, Exception exception) {
+        long now = System.currentTimeMillis();
+        long last = lastErrorLogTime.get();
+        if (now - last < ERROR_LOG_INTERVAL_MS || !lastErrorLogTime.compareAndSet(last, now)) {
+            suppressedErrors.incrementAndGet();
+            return;
+        }
+        logger.error("Failed to send message for device {} ({} similar errors suppressed)", 
+                    deviceId, suppressedErrors.getAndSet(0), exception);
+    }
+    
+    private enum Field {
+        ACKED, FAILED, IN_FLIGHT;
+        
+        long read(Stats stats) {
+            switch (this) {
+                case ACKED:
+                    return stats.acked.get();
+                case FAILED:
+                    return stats.failed.get();
+                default:
+                    return stats.inFlight();
+            }
+        }
+    }
+    
+    private static final class Stats {
+        // 分区在确认时才知道，sent只在总计和按类型统计中使用
+        final AtomicLong sent = new AtomicLong();
+        final AtomicLong acked = new AtomicLong();
+        final AtomicLong failed = new AtomicLong();
+        final LatencyHistogram latency = new LatencyHistogram();
+        
+        long inFlight() {
+            return sent.get() - acked.get() - failed.get();
+        }
+    }
+    
+    private final class AckCallback implements Callback {
+        private final String deviceId;
+        private final Stats typeStats;
+        private final long sendNanos;
+        
+        AckCallback(String deviceId, Stats typeStats, long sendNanos) {
+            this.deviceId = deviceId;
+            this.typeStats = typeStats;
+            this.sendNanos = sendNanos;
+        }
+        
+        @Override
+        public void onCompletion(RecordMetadata metadata, Exception exception) {
+            long latency = System.nanoTime() - sendNanos;
+            Stats partitionStats = metadata != null && metadata.partition() >= 0
+                    ? partitions.computeIfAbsent(metadata.partition(), p -> new Stats()) : null;
+            
+            if (exception != null) {
+                total.failed.incrementAndGet();
+                typeStats.failed.incrementAndGet();
+                if (partitionStats != null) {
+                    partitionStats.failed.incrementAndGet();
+                }
+                logError(deviceId, exception);
+                return;
+            }
+            
+            long acked = total.acked.incrementAndGet();
+            typeStats.acked.incrementAndGet();
+            total.latency.record(latency);
+            typeStats.latency.record(latency);
+            if (partitionStats != null) {
+                partitionStats.acked.incrementAndGet();
+                partitionStats.latency.record(latency);
+            }
+            
+            if (logSampleEvery > 0 && acked % logSampleEvery == 0) {
+                logger.info("Sampled ack #{}: device {} -> partition {} offset {}, {} ms", acked, deviceId, 
+                           metadata.partition(), metadata.offset(), latency / 1_000_000);
+            }
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.nexuscale.kafka;
+
+import com.nexuscale.config.ConfigManager;
+import org.apache.kafka.clients.producer.ProducerConfig;
+
+import java.util.Properties;
+
+/**
+ * 生产者批处理参数组合
+ * 每个参数都可以通过 &lt;prefix&gt;.linger.ms / &lt;prefix&gt;.batch.size / &lt;prefix&gt;.compression.type 覆盖。
+ */
+public enum ProducerProfile {
+    // 固定模式：沿用 kafka.producer.* 配置
+    CONFIGURED("kafka.producer", 1, 16384, "none"),
+    // 低负载时尽快发出，不压缩
+    LOW_LATENCY("kafka.profile.low_latency", 1, 16384, "none"),
+    // 高负载时攒大批次，lz4压缩CPU开销低
+    THROUGHPUT_LZ4("kafka.profile.throughput_lz4", 20, 262144, "lz4"),
+    // 高负载且单条消息较大时，zstd压缩率更高
+    THROUGHPUT_ZSTD("kafka.profile.throughput_zstd", 50, 524288, "zstd");
+    
+    private final String prefix;
+    private final int defaultLingerMs;
+    private final int defaultBatchSize;
+    private final String defaultCompression;
+    
+    ProducerProfile(String prefix, int defaultLingerMs, int defaultBatchSize, String defaultCompression) {
+        this.prefix = prefix;
+        this.defaultLingerMs = defaultLingerMs;
+        this.defaultBatchSize = defaultBatchSize;
+        this.defaultCompression = defaultCompression;
+    }
+    
+    public boolean isThroughput() {
+        return this == THROUGHPUT_LZ4 || this == THROUGHPUT_ZSTD;
+    }
+    
+    void apply(Properties props) {
+        props.put(ProducerConfig.LINGER_MS_CONFIG, 
+                 ConfigManager.getIntProperty(prefix + ".linger.ms", defaultLingerMs));
+        props.put(ProducerConfig.BATCH_SIZE_CONFIG, 
+                 ConfigManager.getIntProperty(prefix + ".batch.size", defaultBatchSize));
+        props.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, 
+                 ConfigManager.getProperty(prefix + ".compression.type", defaultCompression));
+    }
+    
+    public String describe() {
+        return String.format("%s(linger=%sms, batch=%s, compression=%s)", name(),
+                             ConfigManager.getIntProperty(prefix + ".linger.ms", defaultLingerMs),
+                             ConfigManager.getIntProperty(prefix + ".batch.size", defaultBatchSize),
+                             ConfigManager.getProperty(prefix + ".compression.type", defaultCompression));
+    }
+}
@@ -0,0 +1,28 @@
+package com.nexuscale.kafka;
+
+/**
+ * 一条已编码、待发送的传感器消息；设备类型用于选择分区范围（见 TypePartitionRanges）和按类型统计，不进入消息
+ */
+public final class SensorMessage {
+    private final String deviceId;
+    private final String deviceType;
+    private final byte[] value;
+    
+    public SensorMessage(String deviceId, String deviceType, byte[] value) {
+        this.deviceId = deviceId;
+        this.deviceType = deviceType;
+        this.value = value;
+    }
+    
+    public String getDeviceId() {
+        return deviceId;
+    }
+    
+    public String getDeviceType() {
+        return deviceType;
+    }
+    
+    public byte[] getValue() {
+        return value;
+    }
+}
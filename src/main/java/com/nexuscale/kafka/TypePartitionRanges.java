@@ -0,0 +1,143 @@
+package com.nexuscale.kafka;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 设备到分区的确定性映射
+ * 分区 = 范围起点 + mix(deviceId) mod 范围大小，同一设备总是落在同一分区，消费端可以用本类直接计算。
+ * mix 为 murmur3 的32位finalizer，避免deviceId按类型成步长分布时集中到少数分区。
+ *
+ * 可选按类型划分分区范围，格式 "temperature:0-3,humidity:4-5,wind_speed:6"：
+ * - 配置了范围的类型只写入自己的范围，下游可以只订阅这些分区
+ * - 其余类型写入未被任何范围占用的分区；全部被占用时使用整个topic
+ * - 范围超出topic实际分区数时该类型退回默认分区
+ * - 各类型的范围不能重叠，同一类型不能重复配置
+ */
+public class TypePartitionRanges {
+    private final Map<String, int[]> ranges = new HashMap<>();
+    // 按分区数缓存的未占用分区，分区数变化（扩容）时整体替换
+    private volatile UnclaimedPartitions unclaimed = new UnclaimedPartitions(-1, new int[0]);
+    
+    public TypePartitionRanges(String spec) {
+        if (spec == null || spec.trim().isEmpty()) {
+            return;
+        }
+        for (String part : spec.split(",")) {
+            String[] typeAndRange = part.trim().split(":");
+            if (typeAndRange.length != 2) {
+                throw new IllegalArgumentException("Invalid partition range: " + part);
+            }
+            String[] bounds = typeAndRange[1].trim().split("-");
+            int from = Integer.parseInt(bounds[0].trim());
+            int to = bounds.length > 1 ? Integer.parseInt(bounds[1].trim()) : from;
+            if (from < 0 || to < from) {
+                throw new IllegalArgumentException("Invalid partition range: " + part);
+            }
+            String type = typeAndRange[0].trim();
+            if (ranges.containsKey(type)) {
+                throw new IllegalArgumentException("Duplicate partition range for type " + type + ": " + part);
+            }
+            for (Map.Entry<String, int[]> existing : ranges.entrySet()) {
+                int[] other = existing.getValue();
+                if (from <= other[1] && other[0] <= to) {
+                    throw new IllegalArgumentException("Partition range " + part.trim() + " overlaps "
+                            + existing.getKey() + ":" + other[0] + "-" + other[1]);
+                }
+            }
+            ranges.put(type, new int[]{from, to});
+        }
+    }
+    
+    public boolean isEmpty() {
+        return ranges.isEmpty();
+    }
+    
+    public int partition(String deviceType, int deviceId, int numPartitions) {
+        int[] range = deviceType != null ? ranges.get(deviceType) : null;
+        if (range != null && range[1] < numPartitions) {
+            return range[0] + Math.floorMod(mix(deviceId), range[1] - range[0] + 1);
+        }
+        int[] defaults = unclaimedPartitions(numPartitions);
+        if (defaults.length == 0) {
+            return Math.floorMod(mix(deviceId), numPartitions);
+        }
+        return defaults[Math.floorMod(mix(deviceId), defaults.length)];
+    }
+    
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+    
+    /**
+     * 某类型的消息可能出现的分区，供只关心该类型的消费者 assign
+     */
+    public List<Integer> partitionsFor(String deviceType, int numPartitions) {
+        List<Integer> partitions = new ArrayList<>();
+        int[] range = ranges.get(deviceType);
+        if (range != null && range[1] < numPartitions) {
+            for (int p = range[0]; p <= range[1]; p++) {
+                partitions.add(p);
+            }
+            return partitions;
+        }
+        int[] defaults = unclaimedPartitions(numPartitions);
+        if (defaults.length == 0) {
+            for (int p = 0; p < numPartitions; p++) {
+                partitions.add(p);
+            }
+        } else {
+            for (int p : defaults) {
+                partitions.add(p);
+            }
+        }
+        return partitions;
+    }
+    
+    private int[] unclaimedPartitions(int numPartitions) {
+        UnclaimedPartitions cached = unclaimed;
+        if (cached.numPartitions == numPartitions) {
+            return cached.partitions;
+        }
+        boolean[] claimed = new boolean[numPartitions];
+        for (int[] range : ranges.values()) {
+            if (range[1] < numPartitions) {
+                for (int p = range[0]; p <= range[1]; p++) {
+                    claimed[p] = true;
+                }
+            }
+        }
+        List<Integer> free = new ArrayList<>();
+        for (int p = 0; p < numPartitions; p++) {
+            if (!claimed[p]) {
+                free.add(p);
+            }
+        }
+        int[] result = new int[free.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = free.get(i);
+        }
+        unclaimed = new UnclaimedPartitions(numPartitions, result);
+        return result;
+    }
+    
+    /**
+     * 分区数和对应的未占用分区一起发布，读者不会拿到与分区数不匹配的数组
+     */
+    private static final class UnclaimedPartitions {
+        final int numPartitions;
+        final int[] partitions;
+        
+        UnclaimedPartitions(int numPartitions, int[] partitions) {
+            this.numPartitions = numPartitions;
+            this.partitions = partitions;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.nexuscale.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 固定分桶的无锁延迟直方图（毫秒）
+ * 桶边界与Prometheus histogram的le一致，分位数取所在桶的上界，精度足够观察数量级变化。
+ */
+public class LatencyHistogram {
+    // 各桶上界（毫秒），最后一个桶为 +Inf
+    private static final long[] BOUNDS = {1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000, 10000, 30000};
+    
+    private final AtomicLongArray counts = new AtomicLongArray(BOUNDS.length + 1);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sumMicros = new AtomicLong();
+    
+    public void record(long nanos) {
+        long micros = nanos / 1000;
+        int bucket = BOUNDS.length;
+        for (int i = 0; i < BOUNDS.length; i++) {
+            if (micros <= BOUNDS[i] * 1000) {
+                bucket = i;
+                break;
+            }
+        }
+        counts.incrementAndGet(bucket);
+        count.incrementAndGet();
+        sumMicros.addAndGet(micros);
+    }
+    
+    public long getCount() {
+        return count.get();
+    }
+    
+    /**
+     * @param quantile 0~1
+     * @return 该分位数所在桶的上界（毫秒），超出最大边界时返回-1（表示 +Inf），无样本时返回0
+     */
+    public long percentile(double quantile) {
+        long total = count.get();
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(total * quantile);
+        long seen = 0;
+        for (int i = 0; i < BOUNDS.length; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return BOUNDS[i];
+            }
+        }
+        return -1;
+    }
+    
+    /**
+     * p50/p95/p99 的简短描述
+     */
+    public String formatPercentiles() {
+        return String.format("p50<=%s p95<=%s p99<=%s ms",
+                             formatBound(percentile(0.50)), formatBound(percentile(0.95)), formatBound(percentile(0.99)));
+    }
+    
+    private static String formatBound(long bound) {
+        return bound < 0 ? "inf" : String.valueOf(bound);
+    }
+    
+    /**
+     * 以Prometheus histogram格式写出（_bucket / _sum / _count，单位毫秒）
+     * @param labels 不带花括号的标签串，例如 device_type="temperature"，可以为空
+     */
+    public void writePrometheus(StringBuilder out, String name, String labels) {
+        String prefix = labels.isEmpty() ? "" : labels + ",";
+        long cumulative = 0;
+        for (int i = 0; i < BOUNDS.length; i++) {
+            cumulative += counts.get(i);
+            out.append(name).append("_bucket{").append(prefix).append("le=\"").append(BOUNDS[i]).append("\"} ")
+               .append(cumulative).append('\n');
+        }
+        cumulative += counts.get(BOUNDS.length);
+        out.append(name).append("_bucket{").append(prefix).append("le=\"+Inf\"} ").append(cumulative).append('\n');
+        String braces = labels.isEmpty() ? "" : "{" + labels + "}";
+        out.append(name).append("_sum").append(braces).append(' ').append(sumMicros.get() / 1000.0).append('\n');
+        out.append(name).append("_count").append(braces).append(' ').append(cumulative).append('\n');
+    }
+}
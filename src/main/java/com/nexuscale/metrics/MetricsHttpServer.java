@@ -0,0 +1,74 @@
+package com.nexuscale.metrics;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+
+/**
+ * 以Prometheus文本格式在 GET /metrics 上输出已注册来源的指标
+ * 使用JDK自带的HttpServer，单线程处理请求，不引入额外依赖。
+ */
+public class MetricsHttpServer {
+    private static final Logger logger = LoggerFactory.getLogger(MetricsHttpServer.class);
+    
+    private final List<MetricsSource> sources = new CopyOnWriteArrayList<>();
+    private final HttpServer server;
+    
+    public MetricsHttpServer(int port) throws IOException {
+        this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        this.server.createContext("/metrics", this::handle);
+        this.server.setExecutor(Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "metrics-http");
+            thread.setDaemon(true);
+            return thread;
+        }));
+    }
+    
+    public void register(MetricsSource source) {
+        sources.add(source);
+    }
+    
+    public void start() {
+        server.start();
+        logger.info("Metrics endpoint listening on http://0.0.0.0:{}/metrics", server.getAddress().getPort());
+    }
+    
+    public void stop() {
+        server.stop(0);
+        logger.info("Metrics endpoint stopped");
+    }
+    
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            StringBuilder out = new StringBuilder(4096);
+            for (MetricsSource source : sources) {
+                try {
+                    source.writePrometheus(out);
+                } catch (Exception e) {
+                    logger.error("Failed to collect metrics from {}", source.getClass().getSimpleName(), e);
+                }
+            }
+            byte[] body = out.toString().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(body);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.nexuscale.metrics;
+
+/**
+ * 可以输出到 /metrics 的指标来源
+ */
+public interface MetricsSource {
+    
+    /**
+     * 以Prometheus文本格式追加指标
+     */
+    void writePrometheus(StringBuilder out);
+}
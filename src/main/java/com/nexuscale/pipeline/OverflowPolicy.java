@@ -0,0 +1,18 @@
+package com.nexuscale.pipeline;
+
+/**
+ * 环形缓冲区满时生产者的处理方式
+ */
+public enum OverflowPolicy {
+    // 等待最慢的阶段腾出空间（反压传导到生成线程）
+    BLOCK,
+    // 放不下的读数直接丢弃并计数，生成线程不等待
+    DROP;
+    
+    public static OverflowPolicy fromConfig(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return BLOCK;
+        }
+        return valueOf(value.trim().toUpperCase());
+    }
+}
@@ -0,0 +1,260 @@
+package com.nexuscale.pipeline;
+
+import com.nexuscale.config.ConfigManager;
+import com.nexuscale.sink.SensorDataSink;
+import com.nexuscale.sink.SensorReading;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 生成与写出解耦的分阶段流水线
+ * 生成线程把读数放入预分配的有界环形缓冲区后立即返回；每个下游sink（Kafka、HBase……）
+ * 是一个独立阶段，有自己的线程和读取序号，按批从缓冲区取出读数写出。
+ * 慢的sink只会让自己的阶段落后，不会占用生成线程。
+ *
+ * 缓冲区按最慢阶段的序号回收，满时按 {@link OverflowPolicy} 阻塞生产者或丢弃读数。
+ * 实现上是多生产者、多消费者的序号环（每个槽位记录已发布的序号），不使用锁。
+ */
+public class SensorPipeline implements SensorDataSink {
+    private static final Logger logger = LoggerFactory.getLogger(SensorPipeline.class);
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long FULL_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+    
+    private final int capacity;
+    private final int mask;
+    private final SensorReading[] slots;
+    // 每个槽位最近一次发布的序号，消费者据此判断槽位是否已写好
+    private final AtomicLongArray published;
+    // 已分配出去的最大序号
+    private final AtomicLong cursor = new AtomicLong(-1);
+    private final OverflowPolicy policy;
+    private final List<Stage> stages = new ArrayList<>();
+    private volatile boolean running = true;
+    
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong blockedNanos = new AtomicLong();
+    
+    public SensorPipeline(List<SensorDataSink> sinks) {
+        this(sinks,
+             ConfigManager.getIntProperty("app.pipeline.capacity", 65536),
+             OverflowPolicy.fromConfig(ConfigManager.getProperty("app.pipeline.policy", "block")),
+             ConfigManager.getIntProperty("app.pipeline.stage.batch", 500));
+    }
+    
+    /**
+     * @param capacity       环形缓冲区槽位数，会向上取整为2的幂
+     * @param stageBatchSize 每个阶段一次最多写出的读数
+     */
+    public SensorPipeline(List<SensorDataSink> sinks, int capacity, OverflowPolicy policy, int stageBatchSize) {
+        int size = 1;
+        while (size < capacity) {
+            size <<= 1;
+        }
+        this.capacity = size;
+        this.mask = size - 1;
+        this.slots = new SensorReading[size];
+        this.published = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            published.set(i, -1);
+        }
+        this.policy = policy;
+        
+        for (SensorDataSink sink : sinks) {
+            stages.add(new Stage(sink, Math.max(1, stageBatchSize)));
+        }
+        for (Stage stage : stages) {
+            stage.thread.start();
+        }
+        logger.info("Sensor pipeline started: capacity={}, policy={}, stages={}", size, policy, getStageNames());
+    }
+    
+    /**
+     * 生产者入口：把一批读数放入缓冲区
+     * 多个生成线程可以并发调用，每次通过CAS分配一段连续序号后写入槽位并逐个发布。
+     */
+    @Override
+    public void write(List<SensorReading> readings) {
+        int offset = 0;
+        int remaining = readings.size();
+        
+        while (remaining > 0) {
+            if (!running) {
+                dropped.addAndGet(remaining);
+                return;
+            }
+            
+            long current = cursor.get();
+            long free = capacity - (current - minimumStageSequence());
+            if (free <= 0) {
+                if (policy == OverflowPolicy.DROP) {
+                    dropped.addAndGet(remaining);
+                    return;
+                }
+                long waitStart = System.nanoTime();
+                LockSupport.parkNanos(FULL_PARK_NANOS);
+                blockedNanos.addAndGet(System.nanoTime() - waitStart);
+                continue;
+            }
+            
+            int count = (int) Math.min(remaining, free);
+            if (!cursor.compareAndSet(current, current + count)) {
+                continue;
+            }
+            
+            for (long sequence = current + 1; sequence <= current + count; sequence++) {
+                int index = (int) (sequence & mask);
+                slots[index] = readings.get(offset++);
+                published.set(index, sequence);
+            }
+            accepted.addAndGet(count);
+            remaining -= count;
+        }
+    }
+    
+    private long minimumStageSequence() {
+        long minimum = cursor.get();
+        for (Stage stage : stages) {
+            minimum = Math.min(minimum, stage.sequence.get());
+        }
+        return minimum;
+    }
+    
+    /**
+     * 停止接收新读数，等待各阶段写完缓冲区中剩余的读数后关闭下游sink
+     */
+    @Override
+    public void close() {
+        running = false;
+        for (Stage stage : stages) {
+            try {
+                stage.thread.join(TimeUnit.SECONDS.toMillis(30));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (stage.thread.isAlive()) {
+                logger.warn("Pipeline stage {} did not drain in time, {} readings left", 
+                           stage.sink.getName(), getDepth(stage));
+                stage.thread.interrupt();
+            }
+            stage.sink.close();
+        }
+        logger.info("Sensor pipeline closed: accepted={}, dropped={}", accepted.get(), dropped.get());
+    }
+    
+    @Override
+    public String getName() {
+        return "pipeline" + getStageNames();
+    }
+    
+    private List<String> getStageNames() {
+        List<String> names = new ArrayList<>();
+        for (Stage stage : stages) {
+            names.add(stage.sink.getName());
+        }
+        return names;
+    }
+    
+    private long getDepth(Stage stage) {
+        return cursor.get() - stage.sequence.get();
+    }
+    
+    public long getAccepted() {
+        return accepted.get();
+    }
+    
+    public long getDropped() {
+        return dropped.get();
+    }
+    
+    public long getBlockedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(blockedNanos.get());
+    }
+    
+    public int getCapacity() {
+        return capacity;
+    }
+    
+    /**
+     * 各阶段队列深度（已进入缓冲区但该阶段尚未写出的读数）、写出量和失败数
+     */
+    public String formatStatus() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("capacity=%d, policy=%s, accepted=%d, dropped=%d, blocked=%dms",
+                                capacity, policy, accepted.get(), dropped.get(), getBlockedMillis()));
+        for (Stage stage : stages) {
+            sb.append(String.format("; %s: depth=%d, written=%d, batches=%d, failed=%d",
+                                    stage.sink.getName(), getDepth(stage), stage.written.get(),
+                                    stage.batches.get(), stage.failed.get()));
+        }
+        return sb.toString();
+    }
+    
+    /**
+     * 一个下游sink对应的消费阶段
+     */
+    private final class Stage implements Runnable {
+        final SensorDataSink sink;
+        final int batchSize;
+        final AtomicLong sequence = new AtomicLong(-1);
+        final Thread thread;
+        final AtomicLong written = new AtomicLong();
+        final AtomicLong batches = new AtomicLong();
+        final AtomicLong failed = new AtomicLong();
+        
+        Stage(SensorDataSink sink, int batchSize) {
+            this.sink = sink;
+            this.batchSize = batchSize;
+            this.thread = new Thread(this, "pipeline-" + sink.getName());
+            this.thread.setDaemon(true);
+        }
+        
+        @Override
+        public void run() {
+            List<SensorReading> batch = new ArrayList<>(batchSize);
+            
+            while (true) {
+                long next = sequence.get() + 1;
+                long limit = Math.min(cursor.get(), next + batchSize - 1);
+                long last = next - 1;
+                for (long s = next; s <= limit; s++) {
+                    int index = (int) (s & mask);
+                    // 序号已分配但生产者还没写完时停在这里，保证按序消费
+                    if (published.get(index) != s) {
+                        break;
+                    }
+                    batch.add(slots[index]);
+                    last = s;
+                }
+                
+                if (batch.isEmpty()) {
+                    if (!running && next > cursor.get()) {
+                        break;
+                    }
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                    continue;
+                }
+                
+                try {
+                    sink.write(batch);
+                    written.addAndGet(batch.size());
+                } catch (Exception e) {
+                    failed.addAndGet(batch.size());
+                    logger.error("Pipeline stage {} failed to write {} readings", sink.getName(), batch.size(), e);
+                }
+                batches.incrementAndGet();
+                batch.clear();
+                // 推进序号后槽位才可被生产者复用
+                sequence.set(last);
+            }
+            logger.info("Pipeline stage {} stopped", sink.getName());
+        }
+    }
+}
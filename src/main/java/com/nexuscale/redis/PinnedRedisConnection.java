@@ -0,0 +1,92 @@
+package com.nexuscale.redis;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.HostAndPort;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisClientConfig;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 阻塞消费者独占的长连接，不经过共享连接池
+ * 正常路径上不做任何借还和PING，每条命令只有一次网络往返；
+ * 只有出错时才检查连接健康，连接不可用则关闭，下次acquire时透明重连。
+ * 只能由单个消费者线程使用。
+ */
+public class PinnedRedisConnection implements RedisConnectionSource {
+    private static final Logger logger = LoggerFactory.getLogger(PinnedRedisConnection.class);
+    
+    private final String name;
+    private final HostAndPort address;
+    private final JedisClientConfig clientConfig;
+    private final AtomicLong reconnects = new AtomicLong();
+    private Jedis jedis;
+    private boolean everConnected;
+    
+    PinnedRedisConnection(String name, HostAndPort address, JedisClientConfig clientConfig) {
+        this.name = name;
+        this.address = address;
+        this.clientConfig = clientConfig;
+    }
+    
+    @Override
+    public Jedis acquire() {
+        if (jedis == null) {
+            jedis = new Jedis(address, clientConfig);
+            if (everConnected) {
+                reconnects.incrementAndGet();
+                logger.info("Pinned Redis connection {} reconnected to {}", name, address);
+            }
+            everConnected = true;
+        }
+        return jedis;
+    }
+    
+    @Override
+    public void release(Jedis jedis) {
+        // 连接由本消费者独占，不归还
+    }
+    
+    @Override
+    public void reportError(Exception cause) {
+        if (jedis == null) {
+            return;
+        }
+        
+        boolean healthy = false;
+        if (!(cause instanceof JedisConnectionException) && !jedis.isBroken()) {
+            try {
+                healthy = "PONG".equals(jedis.ping());
+            } catch (Exception e) {
+                logger.debug("Health check failed on pinned connection {}", name, e);
+            }
+        }
+        
+        if (!healthy) {
+            logger.warn("Pinned Redis connection {} is unhealthy, will reconnect: {}", name, cause.getMessage());
+            disconnect();
+        }
+    }
+    
+    @Override
+    public void close() {
+        disconnect();
+    }
+    
+    private void disconnect() {
+        if (jedis != null) {
+            try {
+                jedis.close();
+            } catch (Exception e) {
+                logger.debug("Error closing pinned connection {}", name, e);
+            }
+            jedis = null;
+        }
+    }
+    
+    public long getReconnectCount() {
+        return reconnects.get();
+    }
+}
@@ -0,0 +1,27 @@
+package com.nexuscale.redis;
+
+import redis.clients.jedis.Jedis;
+
+import java.io.Closeable;
+
+/**
+ * 阻塞消费者使用的Redis连接来源
+ * 每轮消费调用 acquire()，结束后在finally中调用 release()，出错时调用 reportError()。
+ */
+public interface RedisConnectionSource extends Closeable {
+    
+    Jedis acquire();
+    
+    /**
+     * 归还本轮使用的连接，jedis可以为null（acquire失败时）
+     */
+    void release(Jedis jedis);
+    
+    /**
+     * 本轮消费出错时调用，由实现决定是否检查/重建连接
+     */
+    void reportError(Exception cause);
+    
+    @Override
+    void close();
+}
@@ -3,7 +3,10 @@ package com.nexuscale.redis;
 import com.nexuscale.config.ConfigManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import redis.clients.jedis.DefaultJedisClientConfig;
+import redis.clients.jedis.HostAndPort;
 import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisClientConfig;
 import redis.clients.jedis.JedisPool;
 import redis.clients.jedis.JedisPoolConfig;
 
@@ -13,6 +16,11 @@ public class RedisManager {
     private static final Logger logger = LoggerFactory.getLogger(RedisManager.class);
     
     private final JedisPool jedisPool;
+    private final HostAndPort address;
+    private final int timeout;
+    private final int database;
+    // 连接亲和模式：阻塞消费者使用独占长连接，不占用共享连接池
+    private final boolean consumerAffinity;
     
     public RedisManager() {
         String host = ConfigManager.getProperty("redis.host", "localhost");
@@ -31,14 +39,39 @@ public class RedisManager {
         poolConfig.setTimeBetweenEvictionRunsMillis(Duration.ofSeconds(30).toMillis());
         
         this.jedisPool = new JedisPool(poolConfig, host, port, timeout, null, database);
+        this.address = new HostAndPort(host, port);
+        this.timeout = timeout;
+        this.database = database;
+        this.consumerAffinity = Boolean.parseBoolean(ConfigManager.getProperty("redis.consumer.dedicated", "true"));
         
-        logger.info("Redis connection pool initialized - {}:{}, database: {}", host, port, database);
+        logger.info("Redis connection pool initialized - {}:{}, database: {}, dedicated consumer connections: {}", 
+                   host, port, database, consumerAffinity);
     }
     
     public Jedis getJedis() {
         return jedisPool.getResource();
     }
     
+    /**
+     * 为阻塞消费者打开连接
+     * 连接亲和模式下返回独占长连接（不做借出/归还检查，出错时才做健康检查并重连），
+     * 否则每轮从共享连接池借用。
+     * @param name 消费者名称，亲和模式下作为CLIENT SETNAME，便于在服务端定位连接
+     */
+    public RedisConnectionSource openConsumerConnection(String name) {
+        if (!consumerAffinity) {
+            return new PooledConnectionSource();
+        }
+        
+        JedisClientConfig clientConfig = DefaultJedisClientConfig.builder()
+                .connectionTimeoutMillis(timeout)
+                .socketTimeoutMillis(timeout)
+                .database(database)
+                .clientName(name)
+                .build();
+        return new PinnedRedisConnection(name, address, clientConfig);
+    }
+    
     public boolean testConnection() {
         try (Jedis jedis = getJedis()) {
             String response = jedis.ping();
@@ -56,4 +89,31 @@ public class RedisManager {
             logger.info("Redis connection pool closed");
         }
     }
+    
+    /**
+     * 每轮从共享连接池借用连接
+     */
+    private class PooledConnectionSource implements RedisConnectionSource {
+        
+        @Override
+        public Jedis acquire() {
+            return getJedis();
+        }
+        
+        @Override
+        public void release(Jedis jedis) {
+            if (jedis != null) {
+                jedis.close();
+            }
+        }
+        
+        @Override
+        public void reportError(Exception cause) {
+            // 连接池在归还时会丢弃已损坏的连接
+        }
+        
+        @Override
+        public void close() {
+        }
+    }
 } 
\ No newline at end of file
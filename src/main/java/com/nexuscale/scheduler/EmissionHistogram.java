@@ -0,0 +1,72 @@
+package com.nexuscale.scheduler;
+
+/**
+ * 最近一段时间内每秒的发送量
+ * 环形数组按秒记录，用来观察负载是平滑分布还是集中在某几秒突发。
+ */
+public class EmissionHistogram {
+    private final int windowSeconds;
+    private final long[] counts;
+    private final long[] seconds;
+    
+    public EmissionHistogram(int windowSeconds) {
+        this.windowSeconds = windowSeconds;
+        this.counts = new long[windowSeconds];
+        this.seconds = new long[windowSeconds];
+    }
+    
+    public synchronized void record(long timestampMillis, int count) {
+        long second = timestampMillis / 1000;
+        int index = (int) Math.floorMod(second, (long) windowSeconds);
+        if (seconds[index] != second) {
+            if (seconds[index] > second) {
+                // 已经超出窗口的迟到记录
+                return;
+            }
+            seconds[index] = second;
+            counts[index] = 0;
+        }
+        counts[index] += count;
+    }
+    
+    /**
+     * 截至 nowMillis 之前已结束的 windowSeconds 秒，每秒的发送量（从旧到新）
+     */
+    public synchronized long[] snapshot(long nowMillis) {
+        long current = nowMillis / 1000;
+        long[] result = new long[windowSeconds];
+        for (int i = 0; i < windowSeconds; i++) {
+            long second = current - windowSeconds + i;
+            int index = (int) Math.floorMod(second, (long) windowSeconds);
+            result[i] = seconds[index] == second ? counts[index] : 0;
+        }
+        return result;
+    }
+    
+    /**
+     * 文本视图：汇总行（最小/平均/最大、峰均比）加上每行10秒的明细
+     */
+    public String format(long nowMillis) {
+        long[] values = snapshot(nowMillis);
+        long min = Long.MAX_VALUE;
+        long max = 0;
+        long total = 0;
+        for (long value : values) {
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+            total += value;
+        }
+        double avg = (double) total / values.length;
+        
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("per-second emissions over last %ds: min=%d, avg=%.1f, max=%d, peak/avg=%.2f",
+                                windowSeconds, min, avg, max, avg > 0 ? max / avg : 0.0));
+        for (int i = 0; i < values.length; i++) {
+            if (i % 10 == 0) {
+                sb.append(String.format("%n  [-%2ds]", windowSeconds - i));
+            }
+            sb.append(String.format(" %6d", values[i]));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,434 @@
+package com.nexuscale.scheduler;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 哈希时间轮调度器
+ * 时间轴按 tickMillis 划分刻度，wheelSize 个桶循环使用；到期时间超过一圈的任务记录剩余圈数。
+ * - schedule / cancel 都是O(1)：调用方只把任务放入无锁队列，由唯一的tick线程挂到桶上或从桶上摘除，
+ *   桶内双向链表不需要加锁
+ * - 每个刻度把到期的任务收集成列表，按 dispatchBatchSize 拆批后交给工作线程池，
+ *   周期任务按原到期时间 + 周期重新入轮（固定频率，不随处理耗时漂移）
+ * - 同一个周期任务同一时刻最多只有一次执行：上一次执行还没结束时，本次到期直接跳过（计入skipped），
+ *   不会排队补执行；schedule(payload, delay, period, previous) 替换任务时与旧任务共用这个标记
+ * - 分发队列有界（dispatchQueueCapacity 个批次），队列满时tick线程阻塞等待（背压），
+ *   工作线程跟不上的表现是刻度延迟上升，而不是内存中堆积无限的批次
+ */
+public class HashedTimingWheel<T> {
+    private static final Logger logger = LoggerFactory.getLogger(HashedTimingWheel.class);
+    
+    private final String name;
+    private final long tickMillis;
+    private final int mask;
+    private final Bucket<T>[] wheel;
+    private final int dispatchBatchSize;
+    private final TickHandler<T> handler;
+    private final ThreadPoolExecutor workers;
+    private final Thread tickerThread;
+    
+    private final Queue<WheelTimeout<T>> pendingTimeouts = new ConcurrentLinkedQueue<>();
+    private final Queue<WheelTimeout<T>> cancelledTimeouts = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger activeTimeouts = new AtomicInteger();
+    private final AtomicLong dispatchedCount = new AtomicLong();
+    // 上一次执行尚未结束而跳过的到期次数
+    private final AtomicLong skippedCount = new AtomicLong();
+    // 刻度延迟：批次开始处理的时间 - 刻度结束时间，反映tick线程和工作线程是否跟得上
+    private final AtomicLong latenessTotal = new AtomicLong();
+    private final AtomicLong latenessSamples = new AtomicLong();
+    private final AtomicLong latenessMax = new AtomicLong();
+    private final long startTime;
+    private volatile boolean running = true;
+    private long tick;
+    
+    /**
+     * @param tickMillis        刻度长度（毫秒），决定调度精度
+     * @param wheelSize         桶数量，会向上取整为2的幂
+     * @param workerThreads     处理到期任务的工作线程数
+     * @param dispatchBatchSize 每批交给工作线程的最大任务数
+     */
+    public HashedTimingWheel(String name, long tickMillis, int wheelSize, int workerThreads,
+                             int dispatchBatchSize, TickHandler<T> handler) {
+        this(name, tickMillis, wheelSize, workerThreads, dispatchBatchSize, Math.max(1, workerThreads) * 4, handler);
+    }
+    
+    /**
+     * @param dispatchQueueCapacity 等待工作线程处理的最大批次数，队列满时tick线程阻塞
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public HashedTimingWheel(String name, long tickMillis, int wheelSize, int workerThreads,
+                             int dispatchBatchSize, int dispatchQueueCapacity, TickHandler<T> handler) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("tickMillis must be positive: " + tickMillis);
+        }
+        this.name = name;
+        this.tickMillis = tickMillis;
+        int size = normalizeWheelSize(wheelSize);
+        this.mask = size - 1;
+        this.wheel = new Bucket[size];
+        for (int i = 0; i < size; i++) {
+            wheel[i] = new Bucket<>();
+        }
+        this.dispatchBatchSize = Math.max(1, dispatchBatchSize);
+        this.handler = handler;
+        
+        AtomicInteger workerIndex = new AtomicInteger();
+        int threads = Math.max(1, workerThreads);
+        this.workers = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, dispatchQueueCapacity)), r -> {
+            Thread thread = new Thread(r, name + "-worker-" + workerIndex.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }, HashedTimingWheel::blockUntilQueued);
+        
+        this.startTime = System.currentTimeMillis();
+        this.tickerThread = new Thread(this::runTicker, name + "-ticker");
+        this.tickerThread.setDaemon(true);
+        this.tickerThread.start();
+        
+        logger.info("Timing wheel {} started: tick={}ms, buckets={}, workers={}, batch={}, queue={}",
+                   name, tickMillis, size, threads, this.dispatchBatchSize, Math.max(1, dispatchQueueCapacity));
+    }
+    
+    /**
+     * 分发队列满时的背压策略：tick线程等待队列出现空位；时间轮已停止或等待被中断时拒绝
+     */
+    private static void blockUntilQueued(Runnable task, ThreadPoolExecutor executor) {
+        if (executor.isShutdown()) {
+            throw new RejectedExecutionException("Worker pool is shut down");
+        }
+        try {
+            executor.getQueue().put(task);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrupted while waiting for dispatch queue", e);
+        }
+    }
+    
+    private static int normalizeWheelSize(int wheelSize) {
+        int size = 1;
+        while (size < wheelSize) {
+            size <<= 1;
+        }
+        return size;
+    }
+    
+    /**
+     * 添加定时任务
+     * @param delayMillis  首次到期延迟
+     * @param periodMillis 周期，<=0 表示一次性任务
+     */
+    public WheelTimeout<T> schedule(T payload, long delayMillis, long periodMillis) {
+        return schedule(payload, delayMillis, periodMillis, null);
+    }
+    
+    /**
+     * 添加替换 previous 的定时任务（例如周期变化后重新调度）
+     * 新任务与 previous 共用执行中标记：previous 的最后一次执行结束前，新任务的到期会被跳过，
+     * 同一个 payload 不会同时在两个工作线程上处理
+     * @param previous 被替换的任务，为null时等同于 schedule(payload, delayMillis, periodMillis)
+     */
+    public WheelTimeout<T> schedule(T payload, long delayMillis, long periodMillis, WheelTimeout<T> previous) {
+        if (!running) {
+            throw new IllegalStateException("Timing wheel " + name + " is stopped");
+        }
+        long deadline = System.currentTimeMillis() - startTime + Math.max(0, delayMillis);
+        WheelTimeout<T> timeout = new WheelTimeout<>(this, payload, deadline, periodMillis, previous);
+        activeTimeouts.incrementAndGet();
+        pendingTimeouts.add(timeout);
+        return timeout;
+    }
+    
+    void onCancelled(WheelTimeout<T> timeout) {
+        activeTimeouts.decrementAndGet();
+        cancelledTimeouts.add(timeout);
+    }
+    
+    private void runTicker() {
+        List<WheelTimeout<T>> due = new ArrayList<>();
+        
+        while (running) {
+            long deadline = waitForNextTick();
+            if (deadline < 0) {
+                break;
+            }
+            
+            try {
+                processCancelled();
+                transferPending();
+                expireBucket(wheel[(int) (tick & mask)], deadline, due);
+                dispatch(due, startTime + deadline);
+            } catch (Exception e) {
+                logger.error("Error processing tick {} of timing wheel {}", tick, name, e);
+            } finally {
+                due = new ArrayList<>();
+                tick++;
+            }
+        }
+    }
+    
+    /**
+     * 等待到当前刻度结束，返回该刻度的结束时间（相对启动时间），被停止时返回-1
+     */
+    private long waitForNextTick() {
+        long deadline = tickMillis * (tick + 1);
+        while (running) {
+            long sleepMillis = deadline - (System.currentTimeMillis() - startTime);
+            if (sleepMillis <= 0) {
+                return deadline;
+            }
+            try {
+                Thread.sleep(sleepMillis);
+            } catch (InterruptedException e) {
+                if (!running) {
+                    return -1;
+                }
+            }
+        }
+        return -1;
+    }
+    
+    private void processCancelled() {
+        WheelTimeout<T> timeout;
+        while ((timeout = cancelledTimeouts.poll()) != null) {
+            Bucket<T> bucket = timeout.bucket;
+            if (bucket != null) {
+                bucket.remove(timeout);
+            }
+        }
+    }
+    
+    private void transferPending() {
+        WheelTimeout<T> timeout;
+        while ((timeout = pendingTimeouts.poll()) != null) {
+            if (!timeout.isCancelled()) {
+                place(timeout, tick);
+            }
+        }
+    }
+    
+    /**
+     * 根据到期时间把任务挂到对应的桶上，已过期的任务放到 firstTick 的桶
+     * @param firstTick 下一个会被扫描的刻度；剩余圈数相对它计算，
+     *                  否则到期刻度恰好为 firstTick + k*wheelSize 的任务会晚一圈
+     */
+    private void place(WheelTimeout<T> timeout, long firstTick) {
+        long calculated = timeout.deadline / tickMillis;
+        timeout.remainingRounds = Math.max(0, (calculated - firstTick) / wheel.length);
+        long ticks = Math.max(calculated, firstTick);
+        wheel[(int) (ticks & mask)].add(timeout);
+    }
+    
+    private void expireBucket(Bucket<T> bucket, long deadline, List<WheelTimeout<T>> due) {
+        WheelTimeout<T> timeout = bucket.head;
+        List<WheelTimeout<T>> rescheduled = null;
+        
+        while (timeout != null) {
+            WheelTimeout<T> next = timeout.next;
+            if (timeout.remainingRounds <= 0 && timeout.deadline <= deadline) {
+                bucket.remove(timeout);
+                if (timeout.isPeriodic()) {
+                    if (!timeout.isCancelled()) {
+                        if (timeout.tryStartRun()) {
+                            due.add(timeout);
+                        } else {
+                            skippedCount.incrementAndGet();
+                        }
+                        timeout.deadline += timeout.getPeriodMillis();
+                        if (rescheduled == null) {
+                            rescheduled = new ArrayList<>();
+                        }
+                        rescheduled.add(timeout);
+                    }
+                } else if (timeout.markExpired()) {
+                    activeTimeouts.decrementAndGet();
+                    due.add(timeout);
+                }
+            } else if (timeout.remainingRounds > 0) {
+                timeout.remainingRounds--;
+            }
+            timeout = next;
+        }
+        
+        // 周期任务在扫描完当前桶后再入轮，避免周期小于一圈时在本次扫描中被重复处理；
+        // 当前桶已扫描过，从下一个刻度开始计算位置
+        if (rescheduled != null) {
+            for (WheelTimeout<T> periodic : rescheduled) {
+                place(periodic.deadline / tickMillis <= tick ? advance(periodic) : periodic, tick + 1);
+            }
+        }
+    }
+    
+    /**
+     * 周期短于一个刻度时，下一次执行至少推迟到下一个刻度
+     */
+    private WheelTimeout<T> advance(WheelTimeout<T> timeout) {
+        long period = timeout.getPeriodMillis();
+        long nextTickStart = tickMillis * (tick + 1);
+        long skipped = (nextTickStart - timeout.deadline + period - 1) / period;
+        timeout.deadline += skipped * period;
+        return timeout;
+    }
+    
+    private void dispatch(List<WheelTimeout<T>> due, long tickEndMillis) {
+        if (due.isEmpty()) {
+            return;
+        }
+        
+        dispatchedCount.addAndGet(due.size());
+        int size = due.size();
+        for (int from = 0; from < size; from += dispatchBatchSize) {
+            List<WheelTimeout<T>> batch = due.subList(from, Math.min(size, from + dispatchBatchSize));
+            try {
+                workers.execute(() -> runBatch(batch, tickEndMillis));
+            } catch (RejectedExecutionException e) {
+                // 停止过程中的剩余批次直接丢弃
+                logger.warn("Dropped batch of {} timeouts in timing wheel {}: {}", batch.size(), name, e.getMessage());
+                finishRuns(batch);
+            }
+        }
+    }
+    
+    private void runBatch(List<WheelTimeout<T>> batch, long tickEndMillis) {
+        recordLateness(System.currentTimeMillis() - tickEndMillis);
+        try {
+            List<T> payloads = new ArrayList<>(batch.size());
+            for (WheelTimeout<T> timeout : batch) {
+                payloads.add(timeout.getPayload());
+            }
+            handler.onTick(payloads);
+        } catch (Exception e) {
+            logger.error("Error handling batch of {} timeouts in timing wheel {}", batch.size(), name, e);
+        } finally {
+            finishRuns(batch);
+        }
+    }
+    
+    private static <T> void finishRuns(List<WheelTimeout<T>> batch) {
+        for (WheelTimeout<T> timeout : batch) {
+            // 一次性任务不占用执行中标记
+            if (timeout.isPeriodic()) {
+                timeout.finishRun();
+            }
+        }
+    }
+    
+    private void recordLateness(long latenessMillis) {
+        long lateness = Math.max(0, latenessMillis);
+        latenessTotal.addAndGet(lateness);
+        latenessSamples.incrementAndGet();
+        latenessMax.accumulateAndGet(lateness, Math::max);
+    }
+    
+    public void stop() {
+        running = false;
+        tickerThread.interrupt();
+        workers.shutdown();
+        try {
+            if (!workers.awaitTermination(10, TimeUnit.SECONDS)) {
+                workers.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            workers.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        logger.info("Timing wheel {} stopped", name);
+    }
+    
+    /**
+     * 当前未取消、未到期的任务数
+     */
+    public int size() {
+        return activeTimeouts.get();
+    }
+    
+    public long getDispatchedCount() {
+        return dispatchedCount.get();
+    }
+    
+    /**
+     * 因上一次执行尚未结束而跳过的到期次数，持续增长说明工作线程处理不过来
+     */
+    public long getSkippedCount() {
+        return skippedCount.get();
+    }
+    
+    /**
+     * 已分发、等待工作线程处理的批次数
+     */
+    public int getQueuedBatches() {
+        return workers.getQueue().size();
+    }
+    
+    public long getTickMillis() {
+        return tickMillis;
+    }
+    
+    /**
+     * 已分发批次的累计延迟（毫秒）和批次数，调用方可按区间求差得到平均延迟
+     */
+    public long getLatenessTotalMillis() {
+        return latenessTotal.get();
+    }
+    
+    public long getLatenessSamples() {
+        return latenessSamples.get();
+    }
+    
+    /**
+     * 返回上次调用以来的最大延迟并清零
+     */
+    public long resetMaxLatenessMillis() {
+        return latenessMax.getAndSet(0);
+    }
+    
+    /**
+     * 时间轮的桶：侵入式双向链表，只由tick线程访问
+     */
+    static final class Bucket<T> {
+        WheelTimeout<T> head;
+        WheelTimeout<T> tail;
+        
+        void add(WheelTimeout<T> timeout) {
+            timeout.bucket = this;
+            timeout.next = null;
+            timeout.prev = tail;
+            if (tail == null) {
+                head = timeout;
+            } else {
+                tail.next = timeout;
+            }
+            tail = timeout;
+        }
+        
+        void remove(WheelTimeout<T> timeout) {
+            if (timeout.bucket != this) {
+                return;
+            }
+            if (timeout.prev != null) {
+                timeout.prev.next = timeout.next;
+            } else {
+                head = timeout.next;
+            }
+            if (timeout.next != null) {
+                timeout.next.prev = timeout.prev;
+            } else {
+                tail = timeout.prev;
+            }
+            timeout.next = null;
+            timeout.prev = null;
+            timeout.bucket = null;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.nexuscale.scheduler;
+
+/**
+ * 相位分散策略
+ * 每个任务按key的哈希在周期内得到一个固定偏移，首次执行对齐到墙钟时间上的该偏移，
+ * 大量同周期任务因此均匀分布在整个周期内，而不是在同一时刻集中触发。
+ * 偏移只取决于key和周期，进程重启后同一设备仍在周期内的同一位置执行。
+ */
+public final class PhaseSpreader {
+    
+    private PhaseSpreader() {
+    }
+    
+    /**
+     * key在周期内的固定偏移（毫秒），范围 [0, periodMillis)
+     */
+    public static long offset(String key, long periodMillis) {
+        return Math.floorMod(mix(key.hashCode()), periodMillis);
+    }
+    
+    /**
+     * 从 nowMillis 起到下一次到达该key偏移位置的延迟，范围 [0, periodMillis)
+     */
+    public static long initialDelay(String key, long periodMillis, long nowMillis) {
+        return Math.floorMod(offset(key, periodMillis) - nowMillis, periodMillis);
+    }
+    
+    /**
+     * SplitMix64 混合函数：连续的deviceId也能得到均匀分布的偏移
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,14 @@
+package com.nexuscale.scheduler;
+
+import java.util.List;
+
+/**
+ * 时间轮每个刻度到期任务的批量处理器，在时间轮的工作线程中调用
+ */
+public interface TickHandler<T> {
+    
+    /**
+     * @param due 本刻度到期的任务负载（同一刻度的任务可能被拆成多批并行处理）
+     */
+    void onTick(List<T> due);
+}
@@ -0,0 +1,83 @@
+package com.nexuscale.scheduler;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 时间轮中的一个定时任务，schedule() 返回，可用于取消
+ * 链表指针和剩余圈数只由时间轮的tick线程读写。
+ * inFlight 标记周期任务是否正在工作线程上执行，替换任务与被替换的任务共用同一个标记。
+ */
+public final class WheelTimeout<T> {
+    private static final int ST_ACTIVE = 0;
+    private static final int ST_CANCELLED = 1;
+    private static final int ST_EXPIRED = 2;
+    
+    private final HashedTimingWheel<T> wheel;
+    private final T payload;
+    private final long periodMillis;
+    private final AtomicInteger state = new AtomicInteger(ST_ACTIVE);
+    private final AtomicBoolean inFlight;
+    
+    // 相对于时间轮启动时间的到期时间（毫秒）
+    long deadline;
+    long remainingRounds;
+    WheelTimeout<T> next;
+    WheelTimeout<T> prev;
+    HashedTimingWheel.Bucket<T> bucket;
+    
+    WheelTimeout(HashedTimingWheel<T> wheel, T payload, long deadline, long periodMillis, WheelTimeout<T> previous) {
+        this.wheel = wheel;
+        this.payload = payload;
+        this.deadline = deadline;
+        this.periodMillis = periodMillis;
+        this.inFlight = previous != null ? previous.inFlight : new AtomicBoolean();
+    }
+    
+    public T getPayload() {
+        return payload;
+    }
+    
+    public long getPeriodMillis() {
+        return periodMillis;
+    }
+    
+    boolean isPeriodic() {
+        return periodMillis > 0;
+    }
+    
+    /**
+     * 取消任务，O(1)：只做状态切换并加入取消队列，由tick线程在下一刻度从桶中摘除
+     * @return 是否由本次调用取消（已取消或一次性任务已到期时返回false）
+     */
+    public boolean cancel() {
+        if (!state.compareAndSet(ST_ACTIVE, ST_CANCELLED)) {
+            return false;
+        }
+        wheel.onCancelled(this);
+        return true;
+    }
+    
+    public boolean isCancelled() {
+        return state.get() == ST_CANCELLED;
+    }
+    
+    public boolean isExpired() {
+        return state.get() == ST_EXPIRED;
+    }
+    
+    boolean markExpired() {
+        return state.compareAndSet(ST_ACTIVE, ST_EXPIRED);
+    }
+    
+    /**
+     * 开始一次执行；上一次执行（包括被替换任务的执行）尚未结束时返回false
+     */
+    boolean tryStartRun() {
+        return inFlight.compareAndSet(false, true);
+    }
+    
+    void finishRun() {
+        inFlight.set(false);
+    }
+}
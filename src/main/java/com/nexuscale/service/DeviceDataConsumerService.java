@@ -1,43 +1,76 @@
 package com.nexuscale.service;
 
 import com.nexuscale.config.ConfigManager;
+import com.nexuscale.consumer.DeviceStateConsumer;
+import com.nexuscale.consumer.ProcessingListRecovery;
 import com.nexuscale.consumer.RedisConsumer;
+import com.nexuscale.consumer.ReliableRedisConsumer;
+import com.nexuscale.consumer.RedisStreamConsumer;
 import com.nexuscale.database.DatabaseManager;
+import com.nexuscale.database.DeviceCatalog;
 import com.nexuscale.hbase.HBaseManager;
+import com.nexuscale.hbase.HBaseWriteMode;
 import com.nexuscale.kafka.KafkaProducerManager;
+import com.nexuscale.kafka.ProducerMetrics;
+import com.nexuscale.metrics.MetricsHttpServer;
 import com.nexuscale.redis.RedisManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 public class DeviceDataConsumerService {
     private static final Logger logger = LoggerFactory.getLogger(DeviceDataConsumerService.class);
     
     private final DatabaseManager databaseManager;
+    private final DeviceCatalog deviceCatalog;
     private final RedisManager redisManager;
     private final HBaseManager hbaseManager;
     private final KafkaProducerManager kafkaProducer;
     private final SensorDataGeneratorService sensorDataGenerator;
+    private final DeviceStateCoalescer stateCoalescer;
     private final ExecutorService executorService;
-    private final ConcurrentHashMap<String, RedisConsumer> consumers = new ConcurrentHashMap<>();
-    private final ConcurrentHashMap<String, Future<?>> consumerTasks = new ConcurrentHashMap<>();
+    private final int threadCount;
+    // 消费模式：list（Redis列表BLPOP）、reliable（LMOVE处理中列表）或 stream（Redis Stream消费组）
+    private final String consumerMode;
+    private final String nodeId;
+    // 所有消费者线程共享的topic集合，增删topic不需要新建线程
+    private final Set<String> topics = ConcurrentHashMap.newKeySet();
+    private final List<DeviceStateConsumer> consumers = new CopyOnWriteArrayList<>();
+    private final List<Future<?>> consumerTasks = new CopyOnWriteArrayList<>();
+    private final long startTime = System.currentTimeMillis();
+    private MetricsHttpServer metricsServer;
+    // reliable模式：刷新本节点心跳并接管失联节点的处理中列表
+    private ProcessingListRecovery recovery;
+    private ScheduledExecutorService recoveryScheduler;
     
     public DeviceDataConsumerService() {
         this.databaseManager = new DatabaseManager();
+        this.deviceCatalog = new DeviceCatalog(databaseManager);
         this.redisManager = new RedisManager();
         this.hbaseManager = new HBaseManager();
         this.kafkaProducer = new KafkaProducerManager();
-        this.sensorDataGenerator = new SensorDataGeneratorService(databaseManager, hbaseManager, kafkaProducer);
+        this.sensorDataGenerator = new SensorDataGeneratorService(deviceCatalog, hbaseManager, kafkaProducer);
         
-        int threadCount = ConfigManager.getIntProperty("app.consumer.threads", 10);
+        this.threadCount = ConfigManager.getIntProperty("app.consumer.threads", 10);
+        this.consumerMode = ConfigManager.getProperty("app.consumer.mode", "list").trim().toLowerCase();
+        this.stateCoalescer = new DeviceStateCoalescer(sensorDataGenerator, coalesceWindowMillis(consumerMode));
+        this.nodeId = resolveNodeId();
         this.executorService = Executors.newFixedThreadPool(threadCount);
         
-        logger.info("Device Data Consumer Service initialized with {} threads", threadCount);
+        logger.info("Device Data Consumer Service initialized with {} threads, mode: {}, node: {}", 
+                   threadCount, consumerMode, nodeId);
     }
     
     public void start() {
@@ -49,27 +82,89 @@ public class DeviceDataConsumerService {
             return;
         }
         
+        // 一次性加载设备目录，之后只做增量刷新
+        deviceCatalog.loadAll();
+        deviceCatalog.startRefresh();
+        
         // 初始化所有状态为1的活跃设备
         logger.info("Initializing active devices from database...");
         sensorDataGenerator.initializeActiveDevices();
         
-        // Get device types from database
-        List<String> deviceTypes = databaseManager.getDeviceTypes();
+        // Get device types from device catalog
+        List<String> deviceTypes = deviceCatalog.getDeviceTypes();
         
         if (deviceTypes.isEmpty()) {
-            logger.warn("No device types found in database. No consumers will be started.");
-            return;
+            logger.warn("No device types found in database. Consumers will idle until topics are refreshed.");
         }
         
-        // Start consumer for each device type
+        // Register topic for each device type
         for (String deviceType : deviceTypes) {
             startConsumerForTopic(deviceType);
         }
         
-        logger.info("All consumers started successfully. Total consumers: {}", consumers.size());
+        // 可靠模式下先重放上次运行遗留在处理中列表的消息，再开始正常消费
+        if ("reliable".equals(consumerMode)) {
+            int batchSize = ConfigManager.getIntProperty("app.consumer.batch.size", 100);
+            recovery = new ProcessingListRecovery(redisManager, stateCoalescer, batchSize);
+            startRecovery();
+        }
+        
+        // 固定数量的消费者线程轮换监听所有topic
+        startConsumers();
+        startMetricsServer();
+        
+        logger.info("All consumers started successfully. Consumer threads: {}, topics: {}", 
+                   consumers.size(), topics.size());
         logger.info("Active devices initialized: {}", sensorDataGenerator.getActiveDeviceCount());
     }
     
+    /**
+     * 先写入心跳再重放本节点遗留的列表；之后定期刷新心跳（过期时间为3个间隔），
+     * 并按 app.consumer.reliable.stale.check.ms 接管心跳已过期的节点的列表
+     */
+    private void startRecovery() {
+        long heartbeatMillis = Math.max(1, ConfigManager.getIntProperty("app.consumer.reliable.heartbeat.ms", 5000));
+        long staleCheckMillis = ConfigManager.getIntProperty("app.consumer.reliable.stale.check.ms", 30000);
+        recovery.heartbeat(nodeId, heartbeatMillis * 3);
+        recovery.recover(topics, nodeId);
+        
+        // 心跳和接管各用一个线程，重放大量消息时不会耽误心跳
+        recoveryScheduler = Executors.newScheduledThreadPool(2, r -> {
+            Thread thread = new Thread(r, "processing-list-recovery");
+            thread.setDaemon(true);
+            return thread;
+        });
+        recoveryScheduler.scheduleWithFixedDelay(() -> {
+            try {
+                recovery.heartbeat(nodeId, heartbeatMillis * 3);
+            } catch (Exception e) {
+                logger.error("Error refreshing consumer heartbeat for node {}", nodeId, e);
+            }
+        }, heartbeatMillis, heartbeatMillis, TimeUnit.MILLISECONDS);
+        if (staleCheckMillis > 0) {
+            recoveryScheduler.scheduleWithFixedDelay(() -> recovery.recoverStale(topics, nodeId),
+                    staleCheckMillis, staleCheckMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+    
+    /**
+     * app.metrics.port 大于0时在该端口提供 /metrics（Prometheus文本格式）
+     */
+    private void startMetricsServer() {
+        int port = ConfigManager.getIntProperty("app.metrics.port", 0);
+        if (port <= 0) {
+            return;
+        }
+        try {
+            metricsServer = new MetricsHttpServer(port);
+            metricsServer.register(kafkaProducer.getMetrics());
+            metricsServer.start();
+        } catch (IOException e) {
+            logger.error("Failed to start metrics endpoint on port {}", port, e);
+            metricsServer = null;
+        }
+    }
+    
     private boolean testConnections() {
         logger.info("Testing database connection...");
         if (!databaseManager.testConnection()) {
@@ -99,32 +194,76 @@ public class DeviceDataConsumerService {
         return true;
     }
     
+    private void startConsumers() {
+        for (int i = 0; i < threadCount; i++) {
+            DeviceStateConsumer consumer = createConsumer(i);
+            consumers.add(consumer);
+            consumerTasks.add(executorService.submit(consumer));
+        }
+        logger.info("Started {} {} consumer threads", threadCount, consumerMode);
+    }
+    
+    private DeviceStateConsumer createConsumer(int index) {
+        if ("stream".equals(consumerMode)) {
+            // 消费者名称在同一节点重启后保持不变，未确认的消息可以被自己或其它节点接管
+            RedisStreamConsumer consumer = new RedisStreamConsumer(nodeId + "-" + index, topics, redisManager);
+            consumer.setStateHandler(stateCoalescer);
+            consumer.setPartition(index, threadCount);
+            return consumer;
+        }
+        
+        if ("reliable".equals(consumerMode)) {
+            ReliableRedisConsumer consumer = new ReliableRedisConsumer(nodeId + "-" + index, topics, redisManager);
+            consumer.setStateHandler(stateCoalescer);
+            consumer.setPartition(index, threadCount);
+            return consumer;
+        }
+        
+        // 每个topic只由一个线程BLPOP，保证同一topic的状态变更按顺序生效
+        RedisConsumer consumer = new RedisConsumer("redis-consumer-" + index, topics, redisManager);
+        consumer.setStateHandler(stateCoalescer);
+        consumer.setPartition(index, threadCount);
+        return consumer;
+    }
+    
+    /**
+     * reliable/stream模式在handler返回后才确认消息（LREM/XACK），合并窗口会让消息在状态生效前就被确认，
+     * 崩溃时丢失窗口内的状态变更；这两种模式下不做合并，保证"生效后确认"
+     */
+    private static long coalesceWindowMillis(String consumerMode) {
+        long windowMillis = ConfigManager.getIntProperty("app.state.coalesce.window.ms", 500);
+        if (windowMillis > 0 && ("reliable".equals(consumerMode) || "stream".equals(consumerMode))) {
+            logger.warn("Ignoring app.state.coalesce.window.ms={} in {} mode: messages are acknowledged only after "
+                       + "their state is applied", windowMillis, consumerMode);
+            return 0;
+        }
+        return windowMillis;
+    }
+    
+    private static String resolveNodeId() {
+        String configured = ConfigManager.getProperty("app.consumer.node.id");
+        if (configured != null && !configured.trim().isEmpty()) {
+            return configured.trim();
+        }
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            logger.warn("Unable to resolve host name for consumer node id, using 'nexuscale'", e);
+            return "nexuscale";
+        }
+    }
+    
     private void startConsumerForTopic(String topic) {
-        if (consumers.containsKey(topic)) {
+        if (!topics.add(topic)) {
             logger.warn("Consumer for topic {} already exists", topic);
             return;
         }
         
-        RedisConsumer consumer = new RedisConsumer(topic, redisManager);
-        consumer.setSensorDataGenerator(sensorDataGenerator);
-        consumers.put(topic, consumer);
-        
-        Future<?> task = executorService.submit(consumer);
-        consumerTasks.put(topic, task);
-        
         logger.info("Started consumer for topic: {}", topic);
     }
     
     public void stopConsumerForTopic(String topic) {
-        RedisConsumer consumer = consumers.remove(topic);
-        if (consumer != null) {
-            consumer.stop();
-            
-            Future<?> task = consumerTasks.remove(topic);
-            if (task != null) {
-                task.cancel(true);
-            }
-            
+        if (topics.remove(topic)) {
             logger.info("Stopped consumer for topic: {}", topic);
         }
     }
@@ -132,10 +271,12 @@ public class DeviceDataConsumerService {
     public void refreshDeviceTypes() {
         logger.info("Refreshing device types from database...");
         
-        List<String> currentDeviceTypes = databaseManager.getDeviceTypes();
+        deviceCatalog.refresh();
+        List<String> currentDeviceTypes = deviceCatalog.getDeviceTypes();
+        sensorDataGenerator.refreshTemplates();
         
         // Stop consumers for topics that no longer exist
-        for (String existingTopic : consumers.keySet()) {
+        for (String existingTopic : new ArrayList<>(topics)) {
             if (!currentDeviceTypes.contains(existingTopic)) {
                 stopConsumerForTopic(existingTopic);
                 logger.info("Removed consumer for obsolete topic: {}", existingTopic);
@@ -144,34 +285,49 @@ public class DeviceDataConsumerService {
         
         // Start consumers for new topics
         for (String deviceType : currentDeviceTypes) {
-            if (!consumers.containsKey(deviceType)) {
+            if (!topics.contains(deviceType)) {
                 startConsumerForTopic(deviceType);
                 logger.info("Added consumer for new topic: {}", deviceType);
             }
         }
         
-        logger.info("Device types refresh completed. Active consumers: {}", consumers.size());
+        logger.info("Device types refresh completed. Active topics: {}", topics.size());
     }
     
     public void shutdown() {
         logger.info("Shutting down Device Data Consumer Service...");
         
         // Stop all consumers
-        for (RedisConsumer consumer : consumers.values()) {
+        for (DeviceStateConsumer consumer : consumers) {
             consumer.stop();
         }
         
         // Cancel all tasks
-        for (Future<?> task : consumerTasks.values()) {
+        for (Future<?> task : consumerTasks) {
             task.cancel(true);
         }
         
-        // Shutdown services
+        if (recoveryScheduler != null) {
+            recoveryScheduler.shutdownNow();
+            try {
+                recovery.clearHeartbeat(nodeId);
+            } catch (Exception e) {
+                logger.warn("Failed to clear consumer heartbeat for node {}", nodeId, e);
+            }
+        }
+        
+        // Shutdown services（先让合并窗口内剩余的状态生效）
+        deviceCatalog.stopRefresh();
+        stateCoalescer.shutdown();
         sensorDataGenerator.shutdown();
         
         // Shutdown executor service
         executorService.shutdown();
         
+        if (metricsServer != null) {
+            metricsServer.stop();
+        }
+        
         // Close connections
         redisManager.close();
         hbaseManager.close();
@@ -181,17 +337,52 @@ public class DeviceDataConsumerService {
     }
     
     public int getActiveConsumerCount() {
-        return (int) consumers.values().stream().filter(RedisConsumer::isRunning).count();
+        return (int) consumers.stream().filter(DeviceStateConsumer::isRunning).count();
     }
     
     public void printStatus() {
         logger.info("=== Device Data Consumer Service Status ===");
         logger.info("Total consumers: {}", consumers.size());
         logger.info("Active consumers: {}", getActiveConsumerCount());
+        logger.info("Subscribed topics: {}", topics.size());
+        logger.info("State changes - received: {}, applied: {}, coalesced: {}, pending: {}", 
+                   stateCoalescer.getReceivedCount(), stateCoalescer.getAppliedCount(), 
+                   stateCoalescer.getCoalescedCount(), stateCoalescer.getPendingCount());
         
-        for (String topic : consumers.keySet()) {
-            RedisConsumer consumer = consumers.get(topic);
-            logger.info("Topic: {} - Status: {}", topic, consumer.isRunning() ? "RUNNING" : "STOPPED");
+        logger.info("Device catalog - devices: {}, hits: {}, misses: {}, refreshes: {} (last {} rows in {} ms), full loads: {} (last {} ms)", 
+                   deviceCatalog.size(), deviceCatalog.getHits(), deviceCatalog.getMisses(), 
+                   deviceCatalog.getRefreshCount(), deviceCatalog.getLastRefreshRows(), deviceCatalog.getLastRefreshMillis(), 
+                   deviceCatalog.getFullLoadCount(), deviceCatalog.getLastFullLoadMillis());
+        logger.info("Generated readings: {} in {} batches", 
+                   sensorDataGenerator.getGeneratedRecords(), sensorDataGenerator.getGeneratedBatches());
+        double minutes = Math.max(1, System.currentTimeMillis() - startTime) / 60000.0;
+        long kafkaRequests = kafkaProducer.getRequestCount();
+        long hbasePuts = hbaseManager.getPutRequests();
+        logger.info("Write RPCs - Kafka requests: {} ({}/min), HBase puts: {} ({}/min, {} rows)", 
+                   kafkaRequests, String.format("%.1f", kafkaRequests / minutes), 
+                   hbasePuts, String.format("%.1f", hbasePuts / minutes), hbaseManager.getRowsWritten());
+        if (hbaseManager.getWriteMode() == HBaseWriteMode.ASYNC) {
+            logger.info("HBase async writes - retried: {}, failed: {}, pending retries: {}", 
+                       hbaseManager.getRetriedMutations(), hbaseManager.getFailedMutations(), 
+                       hbaseManager.getPendingRetries());
+        }
+        logger.info("Kafka producer - {}", kafkaProducer.formatProfileStatus());
+        ProducerMetrics producerMetrics = kafkaProducer.getMetrics();
+        logger.info("Kafka acks - {}", producerMetrics.formatSummary());
+        logger.info("Kafka acks by type - {}", producerMetrics.formatByType());
+        logger.info("Kafka acks by partition - {}", producerMetrics.formatByPartition());
+        logger.info("Generation {}", sensorDataGenerator.formatEmissionHistogram());
+        String pipelineStatus = sensorDataGenerator.formatPipelineStatus();
+        if (pipelineStatus != null) {
+            logger.info("Pipeline - {}", pipelineStatus);
+        }
+        
+        for (String topic : topics) {
+            logger.info("Topic: {}", topic);
+        }
+        for (DeviceStateConsumer consumer : consumers) {
+            logger.info("Consumer: {} - Status: {} - Messages: {}", consumer.getName(), 
+                       consumer.isRunning() ? "RUNNING" : "STOPPED", consumer.getMessagesConsumed());
         }
         logger.info("==========================================");
     }
@@ -0,0 +1,139 @@
+package com.nexuscale.service;
+
+import com.nexuscale.consumer.DeviceStateHandler;
+import com.nexuscale.consumer.DeviceStateMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 设备状态合并窗口
+ * 位于Redis消费者和数据生成器之间：窗口期内同一设备只保留最新的状态，
+ * 窗口结束时对每个设备只执行一次最终状态，避免设备频繁开关或积压重放时
+ * 反复取消/调度任务和查询数据库。窗口为0时直接转发，不做合并。
+ */
+public class DeviceStateCoalescer implements DeviceStateHandler {
+    private static final Logger logger = LoggerFactory.getLogger(DeviceStateCoalescer.class);
+    
+    private final DeviceStateHandler delegate;
+    private final long windowMillis;
+    private final Map<String, Integer> pendingStates = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService flushScheduler;
+    
+    private final AtomicLong received = new AtomicLong();
+    private final AtomicLong applied = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    
+    public DeviceStateCoalescer(DeviceStateHandler delegate, long windowMillis) {
+        this.delegate = delegate;
+        this.windowMillis = Math.max(0, windowMillis);
+        
+        if (this.windowMillis > 0) {
+            this.flushScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "device-state-coalescer");
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.flushScheduler.scheduleWithFixedDelay(this::flush, this.windowMillis, this.windowMillis, 
+                                                       TimeUnit.MILLISECONDS);
+            logger.info("Device state coalescing enabled with window {} ms", this.windowMillis);
+        } else {
+            this.flushScheduler = null;
+            logger.info("Device state coalescing disabled");
+        }
+    }
+    
+    @Override
+    public void startDataGeneration(String deviceId, int state) {
+        received.incrementAndGet();
+        
+        if (flushScheduler == null) {
+            applied.incrementAndGet();
+            delegate.startDataGeneration(deviceId, state);
+            return;
+        }
+        
+        // 窗口内已有该设备的待生效状态，则被新状态覆盖
+        if (pendingStates.put(deviceId, state) != null) {
+            coalesced.incrementAndGet();
+        }
+    }
+    
+    @Override
+    public void startDataGeneration(List<DeviceStateMessage> messages) {
+        if (flushScheduler == null) {
+            received.addAndGet(messages.size());
+            applied.addAndGet(messages.size());
+            delegate.startDataGeneration(messages);
+            return;
+        }
+        
+        for (DeviceStateMessage message : messages) {
+            startDataGeneration(message.getDeviceId(), message.getState());
+        }
+    }
+    
+    /**
+     * 将窗口内每个设备的最终状态交给数据生成器
+     */
+    public void flush() {
+        int flushed = 0;
+        for (String deviceId : pendingStates.keySet()) {
+            Integer state = pendingStates.remove(deviceId);
+            if (state == null) {
+                continue;
+            }
+            
+            try {
+                delegate.startDataGeneration(deviceId, state);
+            } catch (Exception e) {
+                logger.error("Error applying coalesced state {} for device {}", state, deviceId, e);
+            }
+            applied.incrementAndGet();
+            flushed++;
+        }
+        
+        if (flushed > 0) {
+            logger.debug("Flushed {} coalesced device states", flushed);
+        }
+    }
+    
+    public void shutdown() {
+        if (flushScheduler != null) {
+            flushScheduler.shutdown();
+            try {
+                flushScheduler.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            // 关闭前把窗口内剩余的状态全部生效
+            flush();
+        }
+    }
+    
+    public long getReceivedCount() {
+        return received.get();
+    }
+    
+    public long getAppliedCount() {
+        return applied.get();
+    }
+    
+    /**
+     * 被后续状态覆盖、没有单独生效的状态变更数量
+     */
+    public long getCoalescedCount() {
+        return coalesced.get();
+    }
+    
+    public int getPendingCount() {
+        return pendingStates.size();
+    }
+}
@@ -1,52 +1,124 @@
 package com.nexuscale.service;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nexuscale.codec.SensorSchemaRegistry;
+import com.nexuscale.config.ConfigManager;
+import com.nexuscale.consumer.DeviceStateHandler;
+import com.nexuscale.consumer.DeviceStateMessage;
 import com.nexuscale.database.DatabaseManager;
+import com.nexuscale.database.DeviceCatalog;
+import com.nexuscale.generator.CompiledTemplate;
+import com.nexuscale.generator.DeviceSignal;
+import com.nexuscale.generator.IntervalPolicy;
+import com.nexuscale.generator.TemplateCache;
+import com.nexuscale.generator.ValueEngine;
 import com.nexuscale.hbase.HBaseManager;
 import com.nexuscale.kafka.KafkaProducerManager;
+import com.nexuscale.pipeline.SensorPipeline;
+import com.nexuscale.scheduler.EmissionHistogram;
+import com.nexuscale.scheduler.HashedTimingWheel;
+import com.nexuscale.scheduler.PhaseSpreader;
+import com.nexuscale.scheduler.WheelTimeout;
+import com.nexuscale.sink.HBaseSensorSink;
+import com.nexuscale.sink.KafkaSensorSink;
+import com.nexuscale.sink.SensorDataSink;
+import com.nexuscale.sink.SensorReading;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
-import java.sql.SQLException;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
-import java.util.Random;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
-public class SensorDataGeneratorService {
+public class SensorDataGeneratorService implements DeviceStateHandler {
     private static final Logger logger = LoggerFactory.getLogger(SensorDataGeneratorService.class);
     
-    private final DatabaseManager databaseManager;
-    private final HBaseManager hbaseManager;
-    private final KafkaProducerManager kafkaProducer;
-    private final ObjectMapper objectMapper;
-    private final Random random;
-    private final ScheduledExecutorService executorService;
+    // 设备和模板的内存目录，状态消息处理路径不访问数据库
+    private final DeviceCatalog deviceCatalog;
+    // 读数输出目标（Kafka、HBase，或压测用的本地替身）
+    private final List<SensorDataSink> sinks;
+    // 每个设备独立的随机数流，工作线程之间无竞争，固定种子时可复现
+    private final ValueEngine valueEngine;
+    // 按dt_id共享的预编译模板
+    private final TemplateCache templateCache;
+    // 处理设备开启时目录未命中的补救查询等一次性任务
+    private final ExecutorService executorService;
+    // 每个设备的周期数据生成任务由时间轮调度，到期的设备按刻度批量分发给工作线程
+    private final HashedTimingWheel<DeviceInfo> generationWheel;
+    // 每个设备的采样间隔（设备/类型配置、模板 interval_ms 或全局默认）
+    private final IntervalPolicy intervalPolicy;
+    // 按deviceId哈希把设备分散到周期内的固定位置，避免所有设备在同一时刻触发；
+    // 只用于批量调度（启动初始化、调整采样间隔），实时开启的设备立即产生第一条读数
+    private final boolean phaseSpread;
+    private final EmissionHistogram emissionHistogram = new EmissionHistogram(60);
     
     // 跟踪每个设备的数据生成任务
-    private final Map<String, ScheduledFuture<?>> deviceTasks;
+    private final Map<String, WheelTimeout<DeviceInfo>> deviceTasks;
+    
+    // 批量生成统计
+    private final AtomicLong generatedBatches = new AtomicLong();
+    private final AtomicLong generatedRecords = new AtomicLong();
     
     public SensorDataGeneratorService(DatabaseManager databaseManager, 
                                     HBaseManager hbaseManager, 
                                     KafkaProducerManager kafkaProducer) {
-        this.databaseManager = databaseManager;
-        this.hbaseManager = hbaseManager;
-        this.kafkaProducer = kafkaProducer;
-        this.objectMapper = new ObjectMapper();
-        this.random = new Random();
-        this.executorService = Executors.newScheduledThreadPool(10);
+        this(new DeviceCatalog(databaseManager), hbaseManager, kafkaProducer);
+    }
+    
+    public SensorDataGeneratorService(DeviceCatalog deviceCatalog, 
+                                    HBaseManager hbaseManager, 
+                                    KafkaProducerManager kafkaProducer) {
+        this(deviceCatalog, createSinks(deviceCatalog, hbaseManager, kafkaProducer));
+    }
+    
+    /**
+     * Kafka和HBase两个sink；开启流水线时它们作为独立阶段从环形缓冲区消费，生成线程不再等待写出
+     */
+    private static List<SensorDataSink> createSinks(DeviceCatalog deviceCatalog, HBaseManager hbaseManager, 
+                                                    KafkaProducerManager kafkaProducer) {
+        List<SensorDataSink> sinks = Arrays.asList(
+                new KafkaSensorSink(kafkaProducer, new SensorSchemaRegistry(deviceCatalog)), 
+                new HBaseSensorSink(hbaseManager));
+        if (ConfigManager.getProperty("app.pipeline.enabled", "false").equalsIgnoreCase("true")) {
+            return Collections.singletonList(new SensorPipeline(sinks));
+        }
+        return sinks;
+    }
+    
+    public SensorDataGeneratorService(DeviceCatalog deviceCatalog, List<SensorDataSink> sinks) {
+        this.deviceCatalog = deviceCatalog;
+        this.sinks = sinks;
+        this.valueEngine = new ValueEngine();
+        this.templateCache = new TemplateCache();
+        // 目录刷新发现模板变化时重新编译；目录已加载（例如内存目录）时先编译一次
+        this.deviceCatalog.setTemplateListener(this::refreshTemplates);
+        if (deviceCatalog.isLoaded()) {
+            templateCache.reload(deviceCatalog.getTemplates());
+        }
+        this.executorService = Executors.newFixedThreadPool(
+                ConfigManager.getIntProperty("app.generator.lookup.threads", 4));
+        this.phaseSpread = Boolean.parseBoolean(ConfigManager.getProperty("app.scheduler.phase.spread", "true"));
+        this.generationWheel = new HashedTimingWheel<>("sensor-generation",
+                ConfigManager.getIntProperty("app.scheduler.tick.ms", 100),
+                ConfigManager.getIntProperty("app.scheduler.wheel.size", 1024),
+                ConfigManager.getIntProperty("app.scheduler.workers", 10),
+                ConfigManager.getIntProperty("app.scheduler.dispatch.batch", 256),
+                ConfigManager.getIntProperty("app.scheduler.dispatch.queue", 64),
+                this::generateForDueDevices);
+        this.intervalPolicy = new IntervalPolicy(generationWheel.getTickMillis());
         this.deviceTasks = new ConcurrentHashMap<>();
     }
     
-    public void startDataGeneration(String deviceId, int state) {
+    @Override
+    public void startDataGeneration(String rawDeviceId, int state) {
+        // 与设备目录使用同一个键，"007" 和 "7" 的开关消息作用于同一个任务；非数字ID抛出IllegalArgumentException
+        String deviceId = DeviceCatalog.normalizeDeviceId(rawDeviceId);
         if (state == 1) {
             logger.info("Device {} is turned ON. Starting data generation...", deviceId);
             startDataGenerationForDevice(deviceId);
@@ -56,26 +128,46 @@ public class SensorDataGeneratorService {
         }
     }
     
+    /**
+     * 批量处理一组设备状态消息，按消息顺序依次生效
+     */
+    @Override
+    public void startDataGeneration(List<DeviceStateMessage> messages) {
+        logger.info("Applying batch of {} device state messages", messages.size());
+        for (DeviceStateMessage message : messages) {
+            try {
+                startDataGeneration(message.getDeviceId(), message.getState());
+            } catch (Exception e) {
+                logger.error("Error applying state {} for device {}", message.getState(), message.getDeviceId(), e);
+            }
+        }
+    }
+    
     private void startDataGenerationForDevice(String deviceId) {
         // 如果设备已经在运行，先停止
         stopDataGenerationForDevice(deviceId);
         
-        // 在新线程中执行数据生成
+        // 目录命中时直接调度，不访问数据库
+        DeviceCatalog.DeviceEntry entry = deviceCatalog.getDevice(deviceId);
+        if (entry != null) {
+            scheduleDataGeneration(toDeviceInfo(entry), false);
+            return;
+        }
+        
+        // 未命中（例如刚创建的设备）：在后台线程刷新目录后再查一次
         executorService.submit(() -> {
             try {
-                // 查询设备信息和模板
-                DeviceInfo deviceInfo = getDeviceInfo(deviceId);
-                if (deviceInfo == null) {
+                DeviceCatalog.DeviceEntry refreshed = deviceCatalog.getDeviceRefreshingOnMiss(deviceId);
+                if (refreshed == null) {
                     logger.error("Device {} not found in database", deviceId);
                     return;
                 }
                 
-                logger.info("Found device {}: template={}, en_name={}", 
-                           deviceId, deviceInfo.template, deviceInfo.enName);
+                logger.info("Found device {} after catalog refresh: dt_id={}", deviceId, refreshed.getDtId());
                 
                 // 开始定期生成数据
-                scheduleDataGeneration(deviceInfo);
-                
+                scheduleDataGeneration(toDeviceInfo(refreshed), false);
+            
             } catch (Exception e) {
                 logger.error("Error starting data generation for device {}", deviceId, e);
             }
@@ -83,9 +175,9 @@ public class SensorDataGeneratorService {
     }
     
     private void stopDataGenerationForDevice(String deviceId) {
-        ScheduledFuture<?> task = deviceTasks.remove(deviceId);
+        WheelTimeout<DeviceInfo> task = deviceTasks.remove(deviceId);
         if (task != null) {
-            boolean cancelled = task.cancel(false);
+            boolean cancelled = task.cancel();
             if (cancelled) {
                 logger.info("Successfully stopped data generation for device {}", deviceId);
             } else {
@@ -96,254 +188,104 @@ public class SensorDataGeneratorService {
         }
     }
     
-    private void scheduleDataGeneration(DeviceInfo deviceInfo) {
-        // 每1分钟生成一次数据
-        ScheduledFuture<?> future = executorService.scheduleAtFixedRate(() -> {
-            try {
-                generateAndStoreSensorData(deviceInfo);
-            } catch (Exception e) {
-                logger.error("Error generating sensor data for device {}", deviceInfo.deviceId, e);
-            }
-        }, 0, 1, TimeUnit.MINUTES);
+    /**
+     * @param spreadPhase 首次执行是否按相位分散；false时立即执行
+     */
+    private void scheduleDataGeneration(DeviceInfo deviceInfo, boolean spreadPhase) {
+        CompiledTemplate template = templateCache.get(deviceInfo.dtId);
+        deviceInfo.signal = valueEngine.newSignal(deviceInfo.deviceId,
+                                                  template != null ? template.getFieldCount() : 0);
         
-        // 将任务保存到映射中，以便后续可以取消
-        deviceTasks.put(deviceInfo.deviceId, future);
-        logger.info("Scheduled data generation task for device {}", deviceInfo.deviceId);
-    }
-    
-    private void generateAndStoreSensorData(DeviceInfo deviceInfo) {
-        try {
-            long timestamp = System.currentTimeMillis();
-            
-            // 根据设备类型生成完整的JSON数据
-            Map<String, Object> sensorDataJson = generateCompleteJsonByType(deviceInfo.enName, deviceInfo.template);
-            
-            // 创建要存储到HBase的数据 - 只存储设备类型对应的列
-            Map<String, String> hbaseData = new HashMap<>();
-            
-            // 将完整的JSON作为一个列存储，列名就是设备类型
-            String jsonValue = objectMapper.writeValueAsString(sensorDataJson);
-            hbaseData.put(deviceInfo.enName, jsonValue);
-            
-            // 创建Kafka消息
-            Map<String, Object> kafkaMessage = new HashMap<>();
-            kafkaMessage.put("deviceId", deviceInfo.deviceId);
-            kafkaMessage.put("deviceType", deviceInfo.enName);
-            kafkaMessage.put("timestamp", timestamp);
-            kafkaMessage.put("data", sensorDataJson);
-            
-            String jsonMessage = objectMapper.writeValueAsString(kafkaMessage);
-            
-            // 发送到Kafka
-            kafkaProducer.sendSensorData(deviceInfo.deviceId, jsonMessage);
-            
-            // 存储到HBase
-            hbaseManager.putSensorData(deviceInfo.deviceId, timestamp, hbaseData);
-            
-            logger.info("Generated and stored sensor data for device {} ({}): {}", 
-                       deviceInfo.deviceId, deviceInfo.enName, sensorDataJson);
-            
-        } catch (Exception e) {
-            logger.error("Error generating sensor data for device {}", deviceInfo.deviceId, e);
+        WheelTimeout<DeviceInfo> timeout = newGenerationTimeout(deviceInfo, template, spreadPhase, null);
+        
+        // 将任务保存到映射中，以便后续可以取消；同一设备被重复调度时取消旧任务
+        WheelTimeout<DeviceInfo> previous = deviceTasks.put(deviceInfo.deviceId, timeout);
+        if (previous != null) {
+            previous.cancel();
         }
+        logger.debug("Scheduled data generation task for device {} every {} ms", 
+                   deviceInfo.deviceId, timeout.getPeriodMillis());
     }
     
-    private Map<String, Object> generateCompleteJsonByType(String enName, String template) {
-        Map<String, Object> data = new HashMap<>();
-        
-        try {
-            // 解析template JSON
-            JsonNode templateNode = objectMapper.readTree(template);
-            
-            // 根据设备类型获取对应的模板节点
-            JsonNode deviceTypeNode = templateNode.get(enName);
-            if (deviceTypeNode == null) {
-                logger.warn("No template found for device type: {}", enName);
-                return data;
-            }
-            
-            Map<String, Object> generatedData = new HashMap<>();
-            
-            // 处理不同类型的传感器数据
-            switch (enName.toLowerCase()) {
-                case "temperature":
-                    generatedData.put("value", generateValueFromRange(deviceTypeNode.get("range")));
-                    break;
-                    
-                case "humidity":
-                    generatedData.put("value", generateValueFromRange(deviceTypeNode.get("range")));
-                    break;
-                    
-                case "air_component":
-                    // 空气成分通常包含多个元素，需要为每个元素生成值
-                    if (templateNode.has("co2")) {
-                        JsonNode co2Node = templateNode.get("co2");
-                        generatedData.put("co2_value", generateValueFromRange(co2Node.get("range")));
-                    }
-                    if (templateNode.has("o2")) {
-                        JsonNode o2Node = templateNode.get("o2");
-                        generatedData.put("o2_value", generateValueFromRange(o2Node.get("range")));
-                    }
-                    if (templateNode.has("pm25")) {
-                        JsonNode pm25Node = templateNode.get("pm25");
-                        generatedData.put("pm25_value", generateValueFromRange(pm25Node.get("range")));
-                    }
-                    break;
-                    
-                case "soil_npk":
-                    // 土壤NPK包含氮磷钾三个元素
-                    if (templateNode.has("nitrogen")) {
-                        JsonNode nitrogenNode = templateNode.get("nitrogen");
-                        generatedData.put("nitrogen_value", generateValueFromRange(nitrogenNode.get("range")));
-                    }
-                    if (templateNode.has("phosphorus")) {
-                        JsonNode phosphorusNode = templateNode.get("phosphorus");
-                        generatedData.put("phosphorus_value", generateValueFromRange(phosphorusNode.get("range")));
-                    }
-                    if (templateNode.has("potassium")) {
-                        JsonNode potassiumNode = templateNode.get("potassium");
-                        generatedData.put("potassium_value", generateValueFromRange(potassiumNode.get("range")));
-                    }
-                    break;
-                    
-                case "soil_ph":
-                    generatedData.put("value", generateValueFromRange(deviceTypeNode.get("range")));
-                    break;
-                    
-                case "soil_trace_elements":
-                    // 土壤微量元素包含多种元素
-                    if (templateNode.has("iron")) {
-                        JsonNode ironNode = templateNode.get("iron");
-                        generatedData.put("iron_value", generateValueFromRange(ironNode.get("range")));
-                    }
-                    if (templateNode.has("zinc")) {
-                        JsonNode zincNode = templateNode.get("zinc");
-                        generatedData.put("zinc_value", generateValueFromRange(zincNode.get("range")));
-                    }
-                    if (templateNode.has("copper")) {
-                        JsonNode copperNode = templateNode.get("copper");
-                        generatedData.put("copper_value", generateValueFromRange(copperNode.get("range")));
-                    }
-                    if (templateNode.has("manganese")) {
-                        JsonNode manganeseNode = templateNode.get("manganese");
-                        generatedData.put("manganese_value", generateValueFromRange(manganeseNode.get("range")));
-                    }
-                    break;
-                    
-                case "wind_speed":
-                    generatedData.put("value", generateValueFromRange(deviceTypeNode.get("range")));
-                    break;
-                    
-                case "wind_direction":
-                    generatedData.put("value", generateValueFromRange(deviceTypeNode.get("range")));
-                    break;
-                    
-                case "light_intensity":
-                    generatedData.put("value", generateValueFromRange(deviceTypeNode.get("range")));
-                    break;
-                    
-                default:
-                    // 默认情况，尝试从range字段生成值
-                    if (deviceTypeNode.has("range")) {
-                        generatedData.put("value", generateValueFromRange(deviceTypeNode.get("range")));
-                    } else {
-                        generatedData.put("value", random.nextDouble() * 100.0);
-                    }
-                    break;
-            }
-            
-            data.put(enName, generatedData);
-            
-        } catch (Exception e) {
-            logger.error("Error parsing template for device type {}: {}", enName, e.getMessage());
-            // 如果解析失败，返回默认数据
-            Map<String, Object> defaultData = new HashMap<>();
-            defaultData.put("value", random.nextDouble() * 100.0);
-            data.put(enName, defaultData);
-        }
-        
-        return data;
+    /**
+     * 按设备的采样间隔调度；spreadPhase 时首次执行对齐到设备在周期内的固定相位，否则立即执行
+     */
+    private WheelTimeout<DeviceInfo> newGenerationTimeout(DeviceInfo deviceInfo, CompiledTemplate template,
+                                                          boolean spreadPhase, WheelTimeout<DeviceInfo> previous) {
+        long interval = intervalPolicy.intervalFor(deviceInfo.deviceId, template);
+        long initialDelay = phaseSpread && spreadPhase
+                ? PhaseSpreader.initialDelay(deviceInfo.deviceId, interval, System.currentTimeMillis())
+                : 0;
+        return generationWheel.schedule(deviceInfo, initialDelay, interval, previous);
     }
     
     /**
-     * 从range字符串中生成随机值
-     * 支持格式：
-     * - "0~100" -> 在0到100之间生成随机值
-     * - "37" -> 固定值37
-     * - "-10~40" -> 在-10到40之间生成随机值
+     * 时间轮回调：处理同一刻度到期的一批设备
+     * 先为整批设备生成数据，再用一次Kafka批量发送和一次HBase批量Put写出，
+     * 单个设备生成失败只跳过该设备。
      */
-    private double generateValueFromRange(JsonNode rangeNode) {
-        if (rangeNode == null || rangeNode.isNull()) {
-            return random.nextDouble() * 100.0;
-        }
+    private void generateForDueDevices(List<DeviceInfo> dueDevices) {
+        long timestamp = System.currentTimeMillis();
+        List<SensorReading> readings = new ArrayList<>(dueDevices.size());
         
-        String range = rangeNode.asText();
-        
-        try {
-            if (range.contains("~")) {
-                // 处理范围格式：min~max
-                String[] parts = range.split("~");
-                if (parts.length == 2) {
-                    double min = Double.parseDouble(parts[0].trim());
-                    double max = Double.parseDouble(parts[1].trim());
-                    
-                    // 生成范围内的随机值
-                    double value = min + random.nextDouble() * (max - min);
-                    
-                    // 根据数值大小决定保留的小数位数
-                    if (max - min > 100) {
-                        return Math.round(value * 10.0) / 10.0; // 保留1位小数
-                    } else if (max - min > 10) {
-                        return Math.round(value * 100.0) / 100.0; // 保留2位小数
-                    } else {
-                        return Math.round(value * 1000.0) / 1000.0; // 保留3位小数
-                    }
+        for (DeviceInfo deviceInfo : dueDevices) {
+            try {
+                CompiledTemplate template = templateCache.get(deviceInfo.dtId);
+                if (template == null) {
+                    logger.warn("Template {} of device {} no longer exists, skipping", deviceInfo.dtId, deviceInfo.deviceId);
+                    continue;
                 }
-            } else {
-                // 处理固定值格式
-                return Double.parseDouble(range.trim());
+                
+                // 根据设备类型生成完整的JSON数据
+                Map<String, Object> sensorDataJson = template.generate(valueEngine, deviceInfo.signal, timestamp);
+                readings.add(new SensorReading(deviceInfo.deviceId, template.getEnName(), template.getDtId(), 
+                                                timestamp, sensorDataJson));
+                
+                logger.debug("Generated sensor data for device {} ({}): {}", 
+                            deviceInfo.deviceId, template.getEnName(), sensorDataJson);
+            
+            } catch (Exception e) {
+                logger.error("Error generating sensor data for device {}", deviceInfo.deviceId, e);
             }
-        } catch (NumberFormatException e) {
-            logger.warn("Invalid range format: {}, using random value", range);
         }
         
-        // 如果解析失败，返回随机值
-        return random.nextDouble() * 100.0;
-    }
-    
-    private DeviceInfo getDeviceInfo(String deviceId) {
-        String sql = "SELECT d.device_id, d.device_name, dt.en_name, dt.template " +
-                    "FROM device d " +
-                    "LEFT JOIN device_template dt ON d.dt_id = dt.dt_id " +
-                    "WHERE d.device_id = ?";
+        if (readings.isEmpty()) {
+            return;
+        }
         
-        try (Connection conn = databaseManager.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            
-            stmt.setInt(1, Integer.parseInt(deviceId));  // device_id是int类型
-            ResultSet rs = stmt.executeQuery();
-            
-            if (rs.next()) {
-                DeviceInfo info = new DeviceInfo();
-                info.deviceId = String.valueOf(rs.getInt("device_id"));
-                info.deviceName = rs.getString("device_name");
-                info.enName = rs.getString("en_name");
-                info.template = rs.getString("template");
-                return info;
+        // 各sink互不影响：一个失败不阻止其他sink写入
+        for (SensorDataSink sink : sinks) {
+            try {
+                sink.write(readings);
+            } catch (Exception e) {
+                logger.error("Error writing sensor data batch of {} devices to {}", readings.size(), sink.getName(), e);
             }
-            
-        } catch (SQLException | NumberFormatException e) {
-            logger.error("Error querying device info for device {}", deviceId, e);
         }
         
-        return null;
+        generatedBatches.incrementAndGet();
+        generatedRecords.addAndGet(readings.size());
+        emissionHistogram.record(timestamp, readings.size());
+        logger.debug("Generated and stored sensor data for {} devices in one batch", readings.size());
+    }
+    
+    private static DeviceInfo toDeviceInfo(DeviceCatalog.DeviceEntry entry) {
+        DeviceInfo info = new DeviceInfo();
+        info.deviceId = entry.getDeviceId();
+        info.deviceName = entry.getDeviceName();
+        info.dtId = entry.getDtId();
+        return info;
     }
     
     public void shutdown() {
         // 停止所有设备的数据生成任务
-        logger.info("Stopping all device data generation tasks...");
-        for (String deviceId : deviceTasks.keySet()) {
-            stopDataGenerationForDevice(deviceId);
+        logger.info("Stopping all {} device data generation tasks...", deviceTasks.size());
+        for (WheelTimeout<DeviceInfo> task : deviceTasks.values()) {
+            task.cancel();
+        }
+        deviceTasks.clear();
+        generationWheel.stop();
+        for (SensorDataSink sink : sinks) {
+            sink.close();
         }
         
         if (executorService != null && !executorService.isShutdown()) {
@@ -367,63 +309,109 @@ public class SensorDataGeneratorService {
         return deviceTasks.size();
     }
     
+    public long getGeneratedBatches() {
+        return generatedBatches.get();
+    }
+    
+    public long getGeneratedRecords() {
+        return generatedRecords.get();
+    }
+    
+    /**
+     * 生成任务所在的时间轮，用于查看刻度延迟等调度指标
+     */
+    public HashedTimingWheel<?> getGenerationWheel() {
+        return generationWheel;
+    }
+    
+    /**
+     * 最近60秒每秒生成的读数，用于观察负载是否平滑
+     */
+    public String formatEmissionHistogram() {
+        return emissionHistogram.format(System.currentTimeMillis());
+    }
+    
+    /**
+     * 写出流水线的状态（各阶段队列深度等），未启用流水线时返回null
+     */
+    public String formatPipelineStatus() {
+        for (SensorDataSink sink : sinks) {
+            if (sink instanceof SensorPipeline) {
+                return ((SensorPipeline) sink).formatStatus();
+            }
+        }
+        return null;
+    }
+    
     /**
      * 检查特定设备是否正在运行
      */
     public boolean isDeviceActive(String deviceId) {
-        ScheduledFuture<?> task = deviceTasks.get(deviceId);
-        return task != null && !task.isCancelled() && !task.isDone();
+        WheelTimeout<DeviceInfo> task = deviceTasks.get(deviceId);
+        return task != null && !task.isCancelled();
     }
     
     /**
      * 系统启动时初始化所有状态为1的设备
-     * 从数据库查询所有state=1的设备，并为它们启动数据生成任务
+     * 从设备目录取出所有state=1的设备，并为它们启动数据生成任务
      */
     public void initializeActiveDevices() {
-        logger.info("Initializing active devices from database...");
-        
-        String sql = "SELECT d.device_id, d.device_name, d.state, dt.en_name, dt.template " +
-                    "FROM device d " +
-                    "LEFT JOIN device_template dt ON d.dt_id = dt.dt_id " +
-                    "WHERE d.state = 1";
+        logger.info("Initializing active devices from device catalog...");
+        if (!deviceCatalog.isLoaded()) {
+            deviceCatalog.loadAll();
+        }
         
-        try (Connection conn = databaseManager.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql);
-             ResultSet rs = stmt.executeQuery()) {
+        int activeDeviceCount = 0;
+        for (DeviceCatalog.DeviceEntry entry : deviceCatalog.getActiveDevices()) {
+            CompiledTemplate template = templateCache.get(entry.getDtId());
+            logger.debug("Found active device: ID={}, Name={}, Type={}", entry.getDeviceId(), entry.getDeviceName(),
+                       template != null ? template.getEnName() : null);
             
-            int activeDeviceCount = 0;
-            while (rs.next()) {
-                String deviceId = String.valueOf(rs.getInt("device_id"));
-                String deviceName = rs.getString("device_name");
-                String enName = rs.getString("en_name");
-                String template = rs.getString("template");
-                
-                logger.info("Found active device: ID={}, Name={}, Type={}", deviceId, deviceName, enName);
-                
-                // 创建设备信息对象
-                DeviceInfo deviceInfo = new DeviceInfo();
-                deviceInfo.deviceId = deviceId;
-                deviceInfo.deviceName = deviceName;
-                deviceInfo.enName = enName;
-                deviceInfo.template = template;
-                
-                // 启动数据生成任务
-                scheduleDataGeneration(deviceInfo);
-                activeDeviceCount++;
+            // 启动数据生成任务（大量设备同时启动，按相位分散）
+            scheduleDataGeneration(toDeviceInfo(entry), true);
+            activeDeviceCount++;
+        }
+        
+        logger.info("Successfully initialized {} active devices", activeDeviceCount);
+    }
+    
+    /**
+     * 设备模板变更后重新编译所有模板，已调度的设备在下一次生成时使用新模板；
+     * 采样间隔发生变化的设备按新间隔重新调度
+     */
+    public void refreshTemplates() {
+        templateCache.reload(deviceCatalog.getTemplates());
+        
+        int rescheduled = 0;
+        for (Map.Entry<String, WheelTimeout<DeviceInfo>> entry : deviceTasks.entrySet()) {
+            WheelTimeout<DeviceInfo> current = entry.getValue();
+            DeviceInfo deviceInfo = current.getPayload();
+            CompiledTemplate template = templateCache.get(deviceInfo.dtId);
+            if (intervalPolicy.intervalFor(deviceInfo.deviceId, template) == current.getPeriodMillis()) {
+                continue;
             }
             
-            logger.info("Successfully initialized {} active devices", activeDeviceCount);
-            
-        } catch (SQLException e) {
-            logger.error("Error initializing active devices from database", e);
+            // 新任务沿用同一个DeviceInfo（和其中的signal），与旧任务共用执行中标记，
+            // 旧任务正在执行的那一次结束前新任务不会开始
+            WheelTimeout<DeviceInfo> replacement = newGenerationTimeout(deviceInfo, template, true, current);
+            // 期间设备被关闭或重新调度时放弃替换
+            if (deviceTasks.replace(entry.getKey(), current, replacement)) {
+                current.cancel();
+                rescheduled++;
+            } else {
+                replacement.cancel();
+            }
+        }
+        if (rescheduled > 0) {
+            logger.info("Rescheduled {} devices with changed sampling intervals", rescheduled);
         }
     }
     
-    // 内部类：设备信息
+    // 内部类：设备信息（模板按dt_id从TemplateCache共享获取）
     private static class DeviceInfo {
         String deviceId;
         String deviceName;
-        String enName;
-        String template;
+        int dtId;
+        DeviceSignal signal;
     }
 } 
\ No newline at end of file
@@ -0,0 +1,65 @@
+package com.nexuscale.sink;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 把读数按行写入本地文件（JSON Lines，格式与Kafka消息相同），代替Kafka/HBase做本地压测
+ */
+public class FileSensorSink implements SensorDataSink {
+    private static final Logger logger = LoggerFactory.getLogger(FileSensorSink.class);
+    
+    private final Path path;
+    private final BufferedWriter writer;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    
+    public FileSensorSink(String path) throws IOException {
+        this.path = Paths.get(path);
+        this.writer = Files.newBufferedWriter(this.path, StandardCharsets.UTF_8);
+        logger.info("Writing sensor readings to {}", this.path.toAbsolutePath());
+    }
+    
+    @Override
+    public void write(List<SensorReading> readings) throws IOException {
+        StringBuilder lines = new StringBuilder(readings.size() * 128);
+        for (SensorReading reading : readings) {
+            Map<String, Object> message = new HashMap<>();
+            message.put("deviceId", reading.getDeviceId());
+            message.put("deviceType", reading.getDeviceType());
+            message.put("timestamp", reading.getTimestamp());
+            message.put("data", reading.getData());
+            lines.append(objectMapper.writeValueAsString(message)).append('\n');
+        }
+        // 多个工作线程共用一个文件，整批一次写入保证行不交错
+        synchronized (writer) {
+            writer.write(lines.toString());
+        }
+    }
+    
+    @Override
+    public String getName() {
+        return "file";
+    }
+    
+    @Override
+    public void close() {
+        synchronized (writer) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                logger.error("Error closing sensor data file {}", path, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.nexuscale.sink;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nexuscale.hbase.HBaseManager;
+import org.apache.hadoop.hbase.client.Put;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 批量写入HBase：列名为设备类型，值为完整的JSON数据
+ * 每条读数一行还是每个设备每个时间桶一行由 HBaseManager 的存储布局决定
+ */
+public class HBaseSensorSink implements SensorDataSink {
+    private final HBaseManager hbaseManager;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    
+    public HBaseSensorSink(HBaseManager hbaseManager) {
+        this.hbaseManager = hbaseManager;
+    }
+    
+    @Override
+    public void write(List<SensorReading> readings) throws Exception {
+        List<Put> puts = new ArrayList<>(readings.size());
+        for (SensorReading reading : readings) {
+            String jsonValue = objectMapper.writeValueAsString(reading.getData());
+            puts.add(hbaseManager.buildSensorPut(reading.getDeviceId(), reading.getTimestamp(),
+                                                 Collections.singletonMap(reading.getDeviceType(), jsonValue)));
+        }
+        hbaseManager.putSensorDataBatch(puts);
+    }
+    
+    @Override
+    public String getName() {
+        return "hbase";
+    }
+}
@@ -0,0 +1,98 @@
+package com.nexuscale.sink;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nexuscale.codec.SensorReadingSerializer;
+import com.nexuscale.codec.SensorSchemaRegistry;
+import com.nexuscale.codec.WireFormat;
+import com.nexuscale.kafka.KafkaProducerManager;
+import com.nexuscale.kafka.SensorMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 批量发送到Kafka传感器数据topic
+ * 消息格式由 kafka.topic.&lt;topic&gt;.format 决定：json（默认）或 binary（见 SensorReadingCodec）
+ * 单条读数编码失败（如未知设备类型、字段超出二进制格式限制）时跳过该条并计数，不影响同批其它读数。
+ */
+public class KafkaSensorSink implements SensorDataSink {
+    private static final Logger logger = LoggerFactory.getLogger(KafkaSensorSink.class);
+    // 编码错误日志最小间隔，期间的其他错误只计数
+    private static final long ERROR_LOG_INTERVAL_MS = 1000;
+    
+    private final KafkaProducerManager kafkaProducer;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final String topic;
+    private final WireFormat format;
+    private final SensorReadingSerializer binarySerializer;
+    private final AtomicLong encodeFailures = new AtomicLong();
+    private final AtomicLong lastErrorLogTime = new AtomicLong();
+    private final AtomicLong suppressedErrors = new AtomicLong();
+    
+    public KafkaSensorSink(KafkaProducerManager kafkaProducer, SensorSchemaRegistry schemaRegistry) {
+        this.kafkaProducer = kafkaProducer;
+        this.topic = kafkaProducer.getTopicName();
+        this.format = WireFormat.forTopic(topic);
+        this.binarySerializer = new SensorReadingSerializer(schemaRegistry);
+    }
+    
+    @Override
+    public void write(List<SensorReading> readings) throws Exception {
+        List<SensorMessage> messages = new ArrayList<>(readings.size());
+        for (SensorReading reading : readings) {
+            byte[] payload;
+            try {
+                payload = encode(reading);
+            } catch (Exception e) {
+                encodeFailures.incrementAndGet();
+                logEncodeError(reading, e);
+                continue;
+            }
+            messages.add(new SensorMessage(reading.getDeviceId(), reading.getDeviceType(), payload));
+        }
+        if (!messages.isEmpty()) {
+            kafkaProducer.sendSensorDataBatch(messages);
+        }
+    }
+    
+    /**
+     * 编码失败被跳过的读数条数
+     */
+    public long getEncodeFailures() {
+        return encodeFailures.get();
+    }
+    
+    private void logEncodeError(SensorReading reading, Exception exception) {
+        long now = System.currentTimeMillis();
+        long last = lastErrorLogTime.get();
+        if (now - last < ERROR_LOG_INTERVAL_MS || !lastErrorLogTime.compareAndSet(last, now)) {
+            suppressedErrors.incrementAndGet();
+            return;
+        }
+        logger.error("Failed to encode reading of device {} ({}), skipped ({} similar errors suppressed, {} total)", 
+                    reading.getDeviceId(), reading.getDeviceType(), suppressedErrors.getAndSet(0), 
+                    encodeFailures.get(), exception);
+    }
+    
+    private byte[] encode(SensorReading reading) throws Exception {
+        if (format == WireFormat.BINARY) {
+            return binarySerializer.serialize(topic, reading);
+        }
+        Map<String, Object> kafkaMessage = new HashMap<>();
+        kafkaMessage.put("deviceId", reading.getDeviceId());
+        kafkaMessage.put("deviceType", reading.getDeviceType());
+        kafkaMessage.put("timestamp", reading.getTimestamp());
+        kafkaMessage.put("data", reading.getData());
+        return objectMapper.writeValueAsBytes(kafkaMessage);
+    }
+    
+    @Override
+    public String getName() {
+        return "kafka";
+    }
+}
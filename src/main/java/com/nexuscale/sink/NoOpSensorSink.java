@@ -0,0 +1,25 @@
+package com.nexuscale.sink;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 丢弃所有读数，只计数；用于测量生成路径本身的容量
+ */
+public class NoOpSensorSink implements SensorDataSink {
+    private final AtomicLong written = new AtomicLong();
+    
+    @Override
+    public void write(List<SensorReading> readings) {
+        written.addAndGet(readings.size());
+    }
+    
+    @Override
+    public String getName() {
+        return "noop";
+    }
+    
+    public long getWritten() {
+        return written.get();
+    }
+}
@@ -0,0 +1,24 @@
+package com.nexuscale.sink;
+
+import java.util.List;
+
+/**
+ * 传感器读数的输出目标
+ * 数据生成器每个刻度把到期设备的读数整批交给每个sink，单个sink失败不影响其他sink。
+ */
+public interface SensorDataSink {
+    
+    /**
+     * 写出一批读数，失败时抛出异常
+     * 调用方可能在返回后复用该列表，sink不应持有列表本身
+     */
+    void write(List<SensorReading> readings) throws Exception;
+    
+    String getName();
+    
+    /**
+     * 释放sink自己创建的资源；外部传入的连接由创建者关闭
+     */
+    default void close() {
+    }
+}
@@ -0,0 +1,48 @@
+package com.nexuscale.sink;
+
+import java.util.Map;
+
+/**
+ * 一个设备在某一时刻的一条传感器读数
+ */
+public class SensorReading {
+    private final String deviceId;
+    private final String deviceType;
+    // 设备类型 dt_id，0表示未知
+    private final int dtId;
+    private final long timestamp;
+    // {deviceType: {字段: 值}}，与模板生成结果一致
+    private final Map<String, Object> data;
+    
+    public SensorReading(String deviceId, String deviceType, long timestamp, Map<String, Object> data) {
+        this(deviceId, deviceType, 0, timestamp, data);
+    }
+    
+    public SensorReading(String deviceId, String deviceType, int dtId, long timestamp, Map<String, Object> data) {
+        this.deviceId = deviceId;
+        this.deviceType = deviceType;
+        this.dtId = dtId;
+        this.timestamp = timestamp;
+        this.data = data;
+    }
+    
+    public String getDeviceId() {
+        return deviceId;
+    }
+    
+    public String getDeviceType() {
+        return deviceType;
+    }
+    
+    public int getDtId() {
+        return dtId;
+    }
+    
+    public long getTimestamp() {
+        return timestamp;
+    }
+    
+    public Map<String, Object> getData() {
+        return data;
+    }
+}
@@ -0,0 +1,111 @@
+package com.nexuscale.test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nexuscale.consumer.DeviceStateMessage;
+import com.nexuscale.consumer.DeviceStateMessageDecoder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * 设备状态消息解码性能对比
+ * readTree + JsonNode（原实现） vs DeviceStateMessageDecoder（流式解码），
+ * 两种消息格式分别测试，输出 ns/op 和每条消息分配的字节数。
+ * 用法: DeviceStateDecoderBenchmark [每轮次数, 默认1000000]
+ */
+public class DeviceStateDecoderBenchmark {
+    private static final Logger logger = LoggerFactory.getLogger(DeviceStateDecoderBenchmark.class);
+    
+    private static final String ARRAY_MESSAGE =
+            "[\"com.nexuscale.entity.DeviceStateMessage\",{\"deviceId\":10234,\"state\":1,"
+            + "\"userId\":7,\"timestamp\":1718000000000,\"source\":\"web\"}]";
+    private static final String OBJECT_MESSAGE =
+            "{\"deviceId\":\"10234\",\"state\":0,\"userId\":7,\"timestamp\":1718000000000,\"source\":\"web\"}";
+    
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final DeviceStateMessageDecoder decoder = new DeviceStateMessageDecoder();
+    
+    // 防止JIT消除计算
+    private static long sink;
+    
+    public static void main(String[] args) throws Exception {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        
+        verify(ARRAY_MESSAGE);
+        verify(OBJECT_MESSAGE);
+        
+        logger.info("=== Device State Decoder Benchmark: {} iterations ===", iterations);
+        for (String message : new String[]{ARRAY_MESSAGE, OBJECT_MESSAGE}) {
+            String shape = message.startsWith("[") ? "array " : "object";
+            
+            // 预热
+            run(message, iterations, true);
+            run(message, iterations, false);
+            
+            Result tree = run(message, iterations, true);
+            Result streaming = run(message, iterations, false);
+            
+            logger.info("[{}] readTree : {} ns/op, {} B/op", shape,
+                       String.format("%.1f", tree.nsPerOp), String.format("%.0f", tree.bytesPerOp));
+            logger.info("[{}] decoder  : {} ns/op, {} B/op", shape,
+                       String.format("%.1f", streaming.nsPerOp), String.format("%.0f", streaming.bytesPerOp));
+        }
+        logger.info("(checksum {})", sink);
+    }
+    
+    private static void verify(String message) throws Exception {
+        DeviceStateMessage expected = decodeWithTree(message);
+        DeviceStateMessage actual = decoder.decode(message);
+        if (!expected.getDeviceId().equals(actual.getDeviceId()) || expected.getState() != actual.getState()) {
+            throw new IllegalStateException("Decoder mismatch: " + expected + " vs " + actual);
+        }
+    }
+    
+    private static Result run(String message, int iterations, boolean useTree) throws Exception {
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long allocatedBefore = allocatedBytes(threadBean, threadId);
+        
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            DeviceStateMessage decoded = useTree ? decodeWithTree(message) : decoder.decode(message);
+            sink += decoded.getState() + decoded.getDeviceId().length();
+        }
+        long elapsed = System.nanoTime() - start;
+        
+        long allocated = allocatedBytes(threadBean, threadId) - allocatedBefore;
+        return new Result((double) elapsed / iterations, (double) allocated / iterations);
+    }
+    
+    /**
+     * 原 RedisConsumer.processMessage 中基于 readTree 的解析逻辑
+     */
+    private static DeviceStateMessage decodeWithTree(String data) throws Exception {
+        JsonNode jsonNode = objectMapper.readTree(data);
+        JsonNode messageData = jsonNode.isArray() && jsonNode.size() >= 2 ? jsonNode.get(1) : jsonNode;
+        if (messageData != null && messageData.has("deviceId") && messageData.has("state")) {
+            return new DeviceStateMessage(messageData.get("deviceId").asText(), messageData.get("state").asInt());
+        }
+        return null;
+    }
+    
+    private static long allocatedBytes(ThreadMXBean threadBean, long threadId) {
+        if (threadBean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threadBean).getThreadAllocatedBytes(threadId);
+        }
+        return 0;
+    }
+    
+    private static class Result {
+        final double nsPerOp;
+        final double bytesPerOp;
+        
+        Result(double nsPerOp, double bytesPerOp) {
+            this.nsPerOp = nsPerOp;
+            this.bytesPerOp = bytesPerOp;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.nexuscale.test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nexuscale.generator.CompiledTemplate;
+import com.nexuscale.generator.DeviceSignal;
+import com.nexuscale.generator.SignalMode;
+import com.nexuscale.generator.ValueEngine;
+import com.nexuscale.scheduler.HashedTimingWheel;
+import com.nexuscale.scheduler.PhaseSpreader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 高频采样下的持续生成吞吐
+ * N个设备以100ms间隔在时间轮上调度，每次到期执行与 SensorDataGeneratorService 相同的
+ * 生成和序列化步骤（不写Kafka/HBase），统计实际读数/秒、目标读数/秒和每个CPU核心每秒的读数。
+ * 用法: GenerationThroughputBenchmark [设备数, 默认20000] [间隔毫秒, 默认100] [测量秒数, 默认10]
+ */
+public class GenerationThroughputBenchmark {
+    private static final Logger logger = LoggerFactory.getLogger(GenerationThroughputBenchmark.class);
+    
+    private static final String TEMPLATE = "{\"wind_speed\":{\"range\":\"0~40\"}}";
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    
+    public static void main(String[] args) throws Exception {
+        int deviceCount = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        long intervalMillis = args.length > 1 ? Long.parseLong(args[1]) : 100;
+        int measureSeconds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        int cores = Runtime.getRuntime().availableProcessors();
+        
+        CompiledTemplate template = CompiledTemplate.compile(1, "wind_speed", TEMPLATE);
+        ValueEngine engine = new ValueEngine(42, SignalMode.RANDOM_WALK, 0.05);
+        AtomicLong readings = new AtomicLong();
+        
+        HashedTimingWheel<Device> wheel = new HashedTimingWheel<>("benchmark", Math.min(100, intervalMillis), 1024,
+                cores, 256, due -> generate(due, template, engine, readings));
+        
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < deviceCount; i++) {
+            Device device = new Device(String.valueOf(i), engine.newSignal(String.valueOf(i), template.getFieldCount()));
+            wheel.schedule(device, PhaseSpreader.initialDelay(device.deviceId, intervalMillis, now), intervalMillis);
+        }
+        
+        logger.info("=== Generation Throughput: {} devices every {} ms, {} cores, target {} readings/s ===",
+                   deviceCount, intervalMillis, cores, deviceCount * 1000L / intervalMillis);
+        
+        // 预热
+        Thread.sleep(3000);
+        
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        long cpuBefore = processCpuNanos(os);
+        long readingsBefore = readings.get();
+        long start = System.nanoTime();
+        Thread.sleep(measureSeconds * 1000L);
+        long elapsed = System.nanoTime() - start;
+        long cpu = processCpuNanos(os) - cpuBefore;
+        long produced = readings.get() - readingsBefore;
+        
+        double perSecond = produced * 1e9 / elapsed;
+        logger.info("Sustained: {} readings/s ({}% of target)", String.format("%.0f", perSecond),
+                   String.format("%.1f", perSecond * 100 * intervalMillis / (deviceCount * 1000.0)));
+        if (cpu > 0) {
+            logger.info("CPU: {} cores busy on average, {} readings/s per core",
+                       String.format("%.2f", (double) cpu / elapsed), String.format("%.0f", produced * 1e9 / cpu));
+        }
+        wheel.stop();
+    }
+    
+    /**
+     * 与 SensorDataGeneratorService.generateForDueDevices 相同的生成和序列化步骤
+     */
+    private static void generate(List<Device> due, CompiledTemplate template, ValueEngine engine, AtomicLong readings) {
+        long timestamp = System.currentTimeMillis();
+        int count = 0;
+        for (Device device : due) {
+            try {
+                Map<String, Object> sensorDataJson = template.generate(engine, device.signal, timestamp);
+                String hbaseValue = objectMapper.writeValueAsString(sensorDataJson);
+                
+                Map<String, Object> kafkaMessage = new HashMap<>();
+                kafkaMessage.put("deviceId", device.deviceId);
+                kafkaMessage.put("deviceType", template.getEnName());
+                kafkaMessage.put("timestamp", timestamp);
+                kafkaMessage.put("data", sensorDataJson);
+                String message = objectMapper.writeValueAsString(kafkaMessage);
+                
+                if (hbaseValue.length() + message.length() > 0) {
+                    count++;
+                }
+            } catch (Exception e) {
+                logger.error("Error generating reading for device {}", device.deviceId, e);
+            }
+        }
+        readings.addAndGet(count);
+    }
+    
+    private static long processCpuNanos(OperatingSystemMXBean os) {
+        if (os instanceof com.sun.management.OperatingSystemMXBean) {
+            return ((com.sun.management.OperatingSystemMXBean) os).getProcessCpuTime();
+        }
+        return 0;
+    }
+    
+    private static class Device {
+        final String deviceId;
+        final DeviceSignal signal;
+        
+        Device(String deviceId, DeviceSignal signal) {
+            this.deviceId = deviceId;
+            this.signal = signal;
+        }
+    }
+}
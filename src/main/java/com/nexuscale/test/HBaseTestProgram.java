@@ -2,6 +2,9 @@ package com.nexuscale.test;
 
 import com.nexuscale.database.DatabaseManager;
 import com.nexuscale.hbase.HBaseManager;
+import com.nexuscale.hbase.ReadingCursor;
+import com.nexuscale.hbase.SensorQuery;
+import com.nexuscale.hbase.StoredReading;
 import com.nexuscale.kafka.KafkaProducerManager;
 import com.nexuscale.service.SensorDataGeneratorService;
 import org.slf4j.Logger;
@@ -114,6 +117,9 @@ public class HBaseTestProgram {
                     case 5:
                         testBatchInsert(hbaseManager);
                         break;
+                    case 6:
+                        testQueryRange(hbaseManager, scanner);
+                        break;
                     case 0:
                         running = false;
                         break;
@@ -139,6 +145,7 @@ public class HBaseTestProgram {
         System.out.println("3. 扫描设备历史数据");
         System.out.println("4. 测试传感器数据生成");
         System.out.println("5. 批量插入测试数据");
+        System.out.println("6. 按时间范围分页查询");
         System.out.println("0. 退出程序");
         System.out.println("=====================================");
     }
@@ -252,6 +259,46 @@ public class HBaseTestProgram {
         hbaseManager.scanDeviceData(deviceId, limit);
     }
     
+    private static void testQueryRange(HBaseManager hbaseManager, Scanner scanner) throws Exception {
+        System.out.print("请输入设备ID: ");
+        String deviceId = scanner.nextLine().trim();
+        
+        System.out.print("请输入查询最近多少分钟 (留空默认60): ");
+        String minutesStr = scanner.nextLine().trim();
+        long minutes = minutesStr.isEmpty() ? 60 : Long.parseLong(minutesStr);
+        
+        System.out.print("请输入字段名，逗号分隔 (留空查询全部): ");
+        String fieldsStr = scanner.nextLine().trim();
+        
+        long to = System.currentTimeMillis();
+        long from = to - minutes * 60_000L;
+        String token = null;
+        int page = 0;
+        do {
+            SensorQuery query = new SensorQuery(deviceId, from, to).limit(10).resumeFrom(token);
+            if (!fieldsStr.isEmpty()) {
+                query.fields(fieldsStr.split("\\s*,\\s*"));
+            }
+            
+            System.out.println("--- 第" + (++page) + "页 ---");
+            try (ReadingCursor cursor = hbaseManager.queryRange(query)) {
+                while (cursor.hasNext()) {
+                    StoredReading reading = cursor.next();
+                    System.out.println("时间戳: " + reading.getTimestamp() + " " + reading.getFields());
+                }
+                token = cursor.getContinuationToken();
+            }
+            
+            if (token != null) {
+                System.out.print("按Enter查看下一页，输入q结束: ");
+                if ("q".equalsIgnoreCase(scanner.nextLine().trim())) {
+                    break;
+                }
+            }
+        } while (token != null);
+        System.out.println("查询结束");
+    }
+    
     private static void testGenerateSensorData(SensorDataGeneratorService sensorDataGenerator, Scanner scanner) {
         System.out.print("请输入设备ID: ");
         String deviceId = scanner.nextLine().trim();
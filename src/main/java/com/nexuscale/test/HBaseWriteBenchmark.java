@@ -0,0 +1,92 @@
+package com.nexuscale.test;
+
+import com.nexuscale.hbase.HBaseManager;
+import com.nexuscale.hbase.HBaseWriteMode;
+import org.apache.hadoop.hbase.client.Put;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * HBase写入路径的持续吞吐对比（需要可用的HBase集群，写入配置的表）
+ * - single：原 putSensorData，每条读数一次 getTable + 同步 put
+ * - batch：同步 putSensorDataBatch，每批一次 table.put(List)
+ * - async：BufferedMutator 异步写入，计时包含结束时的最终flush
+ * 各线程使用 900000000 起的独立设备ID，避免与真实设备数据混在一起。
+ * 用法: HBaseWriteBenchmark [每种模式秒数, 默认30] [线程数, 默认4] [批大小, 默认500] [模式, 默认single,batch,async]
+ */
+public class HBaseWriteBenchmark {
+    private static final Logger logger = LoggerFactory.getLogger(HBaseWriteBenchmark.class);
+    private static final int DEVICE_ID_BASE = 900_000_000;
+    private static final String VALUE = "{\"temperature\":{\"value\":23.456}}";
+    
+    public static void main(String[] args) throws Exception {
+        int seconds = args.length > 0 ? Integer.parseInt(args[0]) : 30;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        int batchSize = args.length > 2 ? Integer.parseInt(args[2]) : 500;
+        String[] modes = (args.length > 3 ? args[3] : "single,batch,async").split(",");
+        
+        logger.info("=== HBase Write Benchmark: {}s per mode, {} threads, batch {} ===", seconds, threads, batchSize);
+        for (String mode : modes) {
+            String name = mode.trim().toLowerCase();
+            HBaseManager hbaseManager = new HBaseManager("async".equals(name) ? HBaseWriteMode.ASYNC : HBaseWriteMode.SYNC);
+            try {
+                run(name, hbaseManager, seconds, threads, batchSize);
+            } finally {
+                hbaseManager.close();
+            }
+        }
+    }
+    
+    private static void run(String mode, HBaseManager hbaseManager, int seconds, int threads, int batchSize)
+            throws InterruptedException {
+        AtomicLong rows = new AtomicLong();
+        CountDownLatch done = new CountDownLatch(threads);
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        Map<String, String> data = Collections.singletonMap("temperature", VALUE);
+        
+        long start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            int deviceBase = DEVICE_ID_BASE + t * 1_000_000;
+            Thread worker = new Thread(() -> {
+                try {
+                    long sequence = 0;
+                    while (System.nanoTime() < deadline) {
+                        long timestamp = System.currentTimeMillis();
+                        if ("single".equals(mode)) {
+                            hbaseManager.putSensorData(String.valueOf(deviceBase + sequence++ % 1000), timestamp, data);
+                            rows.incrementAndGet();
+                        } else {
+                            List<Put> puts = new ArrayList<>(batchSize);
+                            for (int i = 0; i < batchSize; i++) {
+                                puts.add(hbaseManager.buildSensorPut(String.valueOf(deviceBase + sequence++ % 1000), 
+                                                                     timestamp, data));
+                            }
+                            hbaseManager.putSensorDataBatch(puts);
+                            rows.addAndGet(batchSize);
+                        }
+                    }
+                } catch (Exception e) {
+                    logger.error("Benchmark writer failed in mode {}", mode, e);
+                } finally {
+                    done.countDown();
+                }
+            }, "hbase-bench-" + t);
+            worker.start();
+        }
+        done.await();
+        // 异步模式下缓冲区中的行也要写完才算
+        hbaseManager.flush();
+        long elapsed = System.nanoTime() - start;
+        
+        logger.info("{}: {} rows in {} ms, {} puts/s, {} table.put/mutate calls, failed rows: {}", mode, rows.get(),
+                   elapsed / 1_000_000, String.format("%.0f", rows.get() * 1e9 / elapsed), 
+                   hbaseManager.getPutRequests(), hbaseManager.getFailedMutations());
+    }
+}
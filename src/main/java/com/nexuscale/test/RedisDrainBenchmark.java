@@ -0,0 +1,82 @@
+package com.nexuscale.test;
+
+import com.nexuscale.consumer.ListBatchDrainer;
+import com.nexuscale.redis.RedisManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.util.KeyValue;
+
+/**
+ * Redis队列积压消费速度测试
+ * 向临时队列写入一批设备状态消息，分别用逐条BLPOP和批量模式消费，比较每秒消费条数。
+ * 用法: RedisDrainBenchmark [消息数, 默认100000] [批量大小, 默认100]
+ */
+public class RedisDrainBenchmark {
+    private static final Logger logger = LoggerFactory.getLogger(RedisDrainBenchmark.class);
+    private static final String BENCHMARK_KEY = "nexuscale:benchmark:drain";
+    
+    public static void main(String[] args) {
+        int messageCount = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        int batchSize = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        
+        RedisManager redisManager = new RedisManager();
+        try {
+            if (!redisManager.testConnection()) {
+                logger.error("Redis connection failed. Exiting...");
+                return;
+            }
+            
+            logger.info("=== Redis Drain Benchmark: {} messages ===", messageCount);
+            double single = runDrain(redisManager, messageCount, 1);
+            double batched = runDrain(redisManager, messageCount, batchSize);
+            
+            logger.info("Single BLPOP : {} msg/s", String.format("%.0f", single));
+            logger.info("Batch of {}  : {} msg/s", batchSize, String.format("%.0f", batched));
+            logger.info("Speedup      : {}x", String.format("%.1f", batched / single));
+        } finally {
+            try (Jedis jedis = redisManager.getJedis()) {
+                jedis.del(BENCHMARK_KEY);
+            }
+            redisManager.close();
+        }
+    }
+    
+    private static double runDrain(RedisManager redisManager, int messageCount, int batchSize) {
+        ListBatchDrainer drainer = new ListBatchDrainer();
+        
+        try (Jedis jedis = redisManager.getJedis()) {
+            jedis.del(BENCHMARK_KEY);
+            fillQueue(jedis, messageCount);
+            
+            long start = System.nanoTime();
+            int drained = 0;
+            while (drained < messageCount) {
+                KeyValue<String, String> result = jedis.blpop(2.0, BENCHMARK_KEY);
+                if (result == null) {
+                    break;
+                }
+                drained++;
+                if (batchSize > 1) {
+                    drained += drainer.drain(jedis, BENCHMARK_KEY, batchSize - 1).size();
+                }
+            }
+            long elapsed = System.nanoTime() - start;
+            
+            logger.info("Drained {} messages with batch size {} in {} ms", 
+                       drained, batchSize, elapsed / 1_000_000);
+            return drained / (elapsed / 1_000_000_000.0);
+        }
+    }
+    
+    private static void fillQueue(Jedis jedis, int messageCount) {
+        Pipeline pipeline = jedis.pipelined();
+        for (int i = 0; i < messageCount; i++) {
+            String message = "[\"com.nexuscale.DeviceStateMessage\",{\"deviceId\":" + (i % 1000 + 1) 
+                    + ",\"state\":" + (i % 2) + "}]";
+            pipeline.rpush(BENCHMARK_KEY, message);
+        }
+        pipeline.sync();
+    }
+}
@@ -0,0 +1,179 @@
+package com.nexuscale.test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nexuscale.config.ConfigManager;
+import com.nexuscale.hbase.HBaseManager;
+import com.nexuscale.hbase.HBaseWriteMode;
+import com.nexuscale.hbase.RowKeyCodec;
+import com.nexuscale.hbase.StorageLayout;
+import org.apache.hadoop.hbase.client.Put;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 每条读数一行 与 时间桶宽行 两种存储布局的对比
+ * - 存储：按 KeyValue 序列化格式计算每个cell的字节数（未压缩），并按行键排序后估算 FAST_DIFF 编码后的大小
+ *   （每个cell只保存与前一个key不同的后缀），不需要HBase集群
+ * - live：分别用两种布局写入同一批模拟读数（不同的设备ID段，行键版本不同，可以共存于同一张表），
+ *   再对每个设备取最近一天的读数和随机单条读数，对比扫描耗时（需要 hbase.rowkey.format=salted）
+ * 用法: StorageLayoutBenchmark [设备数, 默认1000] [采样间隔秒, 默认60] [小时数, 默认24] [桶长度秒, 默认3600] [live]
+ */
+public class StorageLayoutBenchmark {
+    private static final Logger logger = LoggerFactory.getLogger(StorageLayoutBenchmark.class);
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final String DEVICE_TYPE = "temperature";
+    private static final byte[] FAMILY = {'c', 'f', '1'};
+    private static final int[] DEVICE_ID_BASES = {910_000_000, 920_000_000};
+    
+    public static void main(String[] args) throws Exception {
+        int devices = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        long intervalMillis = (args.length > 1 ? Long.parseLong(args[1]) : 60) * 1000;
+        int hours = args.length > 2 ? Integer.parseInt(args[2]) : 24;
+        long bucketMillis = (args.length > 3 ? Long.parseLong(args[3]) : 3600) * 1000;
+        boolean live = args.length > 4 && "live".equalsIgnoreCase(args[4]);
+        
+        // 从整点开始，使每个设备的读数正好落满若干个时间桶
+        long start = System.currentTimeMillis() / bucketMillis * bucketMillis - hours * 3_600_000L;
+        int readingsPerDevice = (int) (hours * 3_600_000L / intervalMillis);
+        StorageLayout[] layouts = {StorageLayout.ROW_PER_READING, StorageLayout.bucketed(bucketMillis)};
+        
+        logger.info("=== Storage Layout Benchmark: {} devices x {} readings ({} s interval, {} h) ===",
+                   devices, readingsPerDevice, intervalMillis / 1000, hours);
+        for (StorageLayout layout : layouts) {
+            estimateStorage(layout, devices, readingsPerDevice, start, intervalMillis);
+        }
+        
+        if (live && !"salted".equalsIgnoreCase(ConfigManager.getProperty("hbase.rowkey.format", "legacy").trim())) {
+            logger.error("Live comparison requires hbase.rowkey.format=salted (bucketed layout has no legacy row keys)");
+            return;
+        }
+        if (live) {
+            for (int i = 0; i < layouts.length; i++) {
+                HBaseManager hbaseManager = new HBaseManager(HBaseWriteMode.SYNC, layouts[i]);
+                try {
+                    runLive(hbaseManager, DEVICE_ID_BASES[i], devices, readingsPerDevice, start, intervalMillis);
+                } finally {
+                    hbaseManager.close();
+                }
+            }
+        }
+    }
+    
+    /**
+     * KeyValue: keyLength(4) + valueLength(4) + rowLength(2) + row + familyLength(1) + family
+     *           + qualifier + timestamp(8) + type(1) + value
+     * FAST_DIFF 近似：flag(1) + 公共前缀长度(1) + key长度(1) + value长度(1) + 不同的key后缀 + 时间戳差(2) + value
+     */
+    private static void estimateStorage(StorageLayout layout, int devices, int readingsPerDevice, long start,
+                                        long intervalMillis) throws Exception {
+        RowKeyCodec codec = new RowKeyCodec(layout.rowKeyVersion());
+        long rows = 0;
+        long keyValueBytes = 0;
+        long encodedBytes = 0;
+        for (int device = 1; device <= devices; device++) {
+            // 同一设备同一盐值桶的cell在表中连续，设备内排序即可得到每个cell在表中的前一个key
+            List<byte[][]> cells = new ArrayList<>(readingsPerDevice);
+            byte[] lastRow = null;
+            for (int i = 0; i < readingsPerDevice; i++) {
+                long timestamp = start + i * intervalMillis;
+                byte[] row = codec.encode(device, layout.rowTimestamp(timestamp));
+                if (lastRow == null || compare(row, lastRow) != 0) {
+                    rows++;
+                    lastRow = row;
+                }
+                byte[] qualifier = layout.qualifier(timestamp, DEVICE_TYPE);
+                byte[] key = new byte[row.length + FAMILY.length + qualifier.length];
+                System.arraycopy(row, 0, key, 0, row.length);
+                System.arraycopy(FAMILY, 0, key, row.length, FAMILY.length);
+                System.arraycopy(qualifier, 0, key, row.length + FAMILY.length, qualifier.length);
+                cells.add(new byte[][]{key, sampleValue(device, i)});
+            }
+            cells.sort((a, b) -> compare(a[0], b[0]));
+            
+            byte[] previous = null;
+            for (byte[][] cell : cells) {
+                byte[] key = cell[0];
+                int valueLength = cell[1].length;
+                keyValueBytes += 4 + 4 + 2 + 1 + key.length + 8 + 1 + valueLength;
+                // 盐值桶内第一个cell的前一个key属于其他设备，只共享版本和盐值
+                int common = previous != null && previous[1] == key[1] ? commonPrefix(previous, key) : 2;
+                encodedBytes += 4 + (key.length - common) + 2 + valueLength;
+                previous = key;
+            }
+        }
+        long readings = (long) devices * readingsPerDevice;
+        logger.info("{}: {} rows | KeyValue {} MB ({} B/reading) | ~FAST_DIFF {} MB ({} B/reading)", layout.describe(),
+                   rows, String.format("%.1f", keyValueBytes / 1048576.0), 
+                   String.format("%.1f", (double) keyValueBytes / readings),
+                   String.format("%.1f", encodedBytes / 1048576.0), String.format("%.1f", (double) encodedBytes / readings));
+    }
+    
+    private static int compare(byte[] a, byte[] b) {
+        for (int i = 0; i < Math.min(a.length, b.length); i++) {
+            int diff = (a[i] & 0xFF) - (b[i] & 0xFF);
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return a.length - b.length;
+    }
+    
+    private static int commonPrefix(byte[] a, byte[] b) {
+        int i = 0;
+        while (i < a.length && i < b.length && a[i] == b[i]) {
+            i++;
+        }
+        return i;
+    }
+    
+    private static void runLive(HBaseManager hbaseManager, int deviceBase, int devices, int readingsPerDevice,
+                                long start, long intervalMillis) throws Exception {
+        String layout = hbaseManager.getStorageLayout().describe();
+        long writeStart = System.nanoTime();
+        for (int device = 0; device < devices; device++) {
+            String deviceId = String.valueOf(deviceBase + device);
+            List<Put> puts = new ArrayList<>(readingsPerDevice);
+            for (int i = 0; i < readingsPerDevice; i++) {
+                puts.add(hbaseManager.buildSensorPut(deviceId, start + i * intervalMillis, Collections.singletonMap(
+                        DEVICE_TYPE, new String(sampleValue(device, i), "UTF-8"))));
+            }
+            hbaseManager.putSensorDataBatch(puts);
+        }
+        long writeNanos = System.nanoTime() - writeStart;
+        
+        // 最近一天（或全部）读数
+        int scanLimit = (int) Math.min(readingsPerDevice, 86_400_000L / intervalMillis);
+        long scanned = 0;
+        long scanStart = System.nanoTime();
+        for (int device = 0; device < devices; device++) {
+            scanned += hbaseManager.scanLatest(String.valueOf(deviceBase + device), scanLimit).size();
+        }
+        long scanNanos = System.nanoTime() - scanStart;
+        
+        long getStart = System.nanoTime();
+        int found = 0;
+        for (int device = 0; device < devices; device++) {
+            long timestamp = start + (device * 7919L % readingsPerDevice) * intervalMillis;
+            if (hbaseManager.getSensorData(String.valueOf(deviceBase + device), timestamp) != null) {
+                found++;
+            }
+        }
+        long getNanos = System.nanoTime() - getStart;
+        
+        logger.info("{}: write {} readings/s | scan latest {}: {} ms/device, {} readings/s | point get {} ms ({}/{} found)",
+                   layout, String.format("%.0f", (double) devices * readingsPerDevice * 1e9 / writeNanos), scanLimit,
+                   String.format("%.2f", scanNanos / 1e6 / devices), String.format("%.0f", scanned * 1e9 / scanNanos),
+                   String.format("%.2f", getNanos / 1e6 / devices), found, devices);
+    }
+    
+    private static byte[] sampleValue(int device, int sequence) throws Exception {
+        double value = 20 + ((device * 31 + sequence * 17) % 1000) / 100.0;
+        Map<String, Object> data = Collections.singletonMap(DEVICE_TYPE, value);
+        return objectMapper.writeValueAsBytes(data);
+    }
+}
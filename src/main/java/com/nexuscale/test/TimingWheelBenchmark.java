@@ -0,0 +1,102 @@
+package com.nexuscale.test;
+
+import com.nexuscale.scheduler.HashedTimingWheel;
+import com.nexuscale.scheduler.WheelTimeout;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 设备调度开销对比：ScheduledThreadPoolExecutor（原实现） vs HashedTimingWheel
+ * 为N个设备各添加一个每分钟执行一次的周期任务，随机分布在一分钟内，
+ * 分别测量添加耗时、调度结构占用的堆内存和全部取消的耗时。
+ * 用法: TimingWheelBenchmark [设备数, 默认1000000]   建议 -Xmx2g
+ */
+public class TimingWheelBenchmark {
+    private static final Logger logger = LoggerFactory.getLogger(TimingWheelBenchmark.class);
+    private static final long PERIOD_MILLIS = TimeUnit.MINUTES.toMillis(1);
+    
+    public static void main(String[] args) throws Exception {
+        int deviceCount = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        long[] delays = new long[deviceCount];
+        Random random = new Random(42);
+        for (int i = 0; i < deviceCount; i++) {
+            // 避开基准运行期间到期，只测量调度结构本身的开销
+            delays[i] = 10_000 + (long) (random.nextDouble() * (PERIOD_MILLIS - 10_000));
+        }
+        
+        logger.info("=== Scheduling Benchmark: {} devices, period {} ms ===", deviceCount, PERIOD_MILLIS);
+        benchmarkExecutor(delays);
+        benchmarkWheel(delays);
+    }
+    
+    private static void benchmarkExecutor(long[] delays) {
+        ScheduledExecutorService executor = Executors.newScheduledThreadPool(10);
+        Runnable task = () -> { };
+        List<ScheduledFuture<?>> futures = new ArrayList<>(delays.length);
+        
+        long heapBefore = usedHeap();
+        long start = System.nanoTime();
+        for (long delay : delays) {
+            futures.add(executor.scheduleAtFixedRate(task, delay, PERIOD_MILLIS, TimeUnit.MILLISECONDS));
+        }
+        long scheduleNanos = System.nanoTime() - start;
+        long heapAfter = usedHeap();
+        
+        start = System.nanoTime();
+        for (ScheduledFuture<?> future : futures) {
+            future.cancel(false);
+        }
+        long cancelNanos = System.nanoTime() - start;
+        
+        report("ScheduledThreadPoolExecutor", delays.length, scheduleNanos, cancelNanos, heapAfter - heapBefore);
+        executor.shutdownNow();
+    }
+    
+    private static void benchmarkWheel(long[] delays) throws InterruptedException {
+        HashedTimingWheel<Integer> wheel = new HashedTimingWheel<>("benchmark", 100, 1024, 10, 256, due -> { });
+        Integer payload = 1;
+        List<WheelTimeout<Integer>> timeouts = new ArrayList<>(delays.length);
+        
+        long heapBefore = usedHeap();
+        long start = System.nanoTime();
+        for (long delay : delays) {
+            timeouts.add(wheel.schedule(payload, delay, PERIOD_MILLIS));
+        }
+        long scheduleNanos = System.nanoTime() - start;
+        // 等待tick线程把新任务挂到桶上
+        Thread.sleep(500);
+        long heapAfter = usedHeap();
+        
+        start = System.nanoTime();
+        for (WheelTimeout<Integer> timeout : timeouts) {
+            timeout.cancel();
+        }
+        long cancelNanos = System.nanoTime() - start;
+        
+        report("HashedTimingWheel", delays.length, scheduleNanos, cancelNanos, heapAfter - heapBefore);
+        wheel.stop();
+    }
+    
+    private static void report(String name, int count, long scheduleNanos, long cancelNanos, long heapBytes) {
+        logger.info("{}: schedule {} ms ({} ns/op), cancel {} ms ({} ns/op), heap ~{} MB", name,
+                   scheduleNanos / 1_000_000, scheduleNanos / count,
+                   cancelNanos / 1_000_000, cancelNanos / count,
+                   heapBytes / (1024 * 1024));
+    }
+    
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
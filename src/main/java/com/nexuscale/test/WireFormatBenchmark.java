@@ -0,0 +1,134 @@
+package com.nexuscale.test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nexuscale.codec.SensorReadingCodec;
+import com.nexuscale.codec.SensorSchema;
+import com.nexuscale.codec.SensorSchemaRegistry;
+import com.nexuscale.database.DeviceCatalog;
+import com.nexuscale.generator.CompiledTemplate;
+import com.nexuscale.generator.DeviceSignal;
+import com.nexuscale.generator.SignalMode;
+import com.nexuscale.generator.ValueEngine;
+import com.nexuscale.sink.SensorReading;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 传感器消息编码对比：原JSON消息（嵌套HashMap + Jackson）与 SensorReadingCodec 二进制格式
+ * 按设备类型输出平均消息字节数、编码ns/op，以及二进制解码ns/op。
+ * 用法: WireFormatBenchmark [每种类型的读数, 默认200000]
+ */
+public class WireFormatBenchmark {
+    private static final Logger logger = LoggerFactory.getLogger(WireFormatBenchmark.class);
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    
+    private static final String[][] TYPES = {
+        {"temperature", "{\"temperature\":{\"range\":\"-10~40\"}}"},
+        {"air_component", "{\"air_component\":{},\"co2\":{\"range\":\"300~2000\"},"
+                + "\"o2\":{\"range\":\"19~21\"},\"pm25\":{\"range\":\"0~300\"}}"},
+        {"soil_trace_elements", "{\"soil_trace_elements\":{},\"iron\":{\"range\":\"0~50\"},"
+                + "\"zinc\":{\"range\":\"0~10\"},\"copper\":{\"range\":\"0~5\"},\"manganese\":{\"range\":\"0~20\"}}"},
+    };
+    
+    private static volatile long sink;
+    
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        ValueEngine engine = new ValueEngine(42, SignalMode.RANDOM_WALK, 0.05);
+        SensorSchemaRegistry registry = new SensorSchemaRegistry();
+        SensorReadingCodec codec = new SensorReadingCodec(registry);
+        
+        logger.info("=== Wire Format Benchmark: {} readings per type ===", count);
+        for (int t = 0; t < TYPES.length; t++) {
+            int dtId = t + 1;
+            String enName = TYPES[t][0];
+            CompiledTemplate template = CompiledTemplate.compile(dtId, enName, TYPES[t][1]);
+            registry.register(SensorSchema.compile(new DeviceCatalog.TemplateEntry(dtId, enName, TYPES[t][1])));
+            
+            List<SensorReading> readings = new ArrayList<>(count);
+            long timestamp = System.currentTimeMillis();
+            for (int i = 0; i < count; i++) {
+                String deviceId = String.valueOf(100000 + i);
+                DeviceSignal signal = engine.newSignal(deviceId, template.getFieldCount());
+                readings.add(new SensorReading(deviceId, enName, dtId, timestamp + i,
+                                               template.generate(engine, signal, timestamp + i)));
+            }
+            
+            // 预热两轮后再计时
+            for (int round = 0; round < 2; round++) {
+                encodeJson(readings);
+                encodeBinary(codec, readings);
+            }
+            
+            long start = System.nanoTime();
+            long jsonBytes = encodeJson(readings);
+            long jsonNanos = System.nanoTime() - start;
+            
+            start = System.nanoTime();
+            List<byte[]> encoded = encodeBinary(codec, readings);
+            long binaryNanos = System.nanoTime() - start;
+            long binaryBytes = 0;
+            for (byte[] message : encoded) {
+                binaryBytes += message.length;
+            }
+            
+            for (int round = 0; round < 2; round++) {
+                decodeBinary(codec, encoded);
+            }
+            start = System.nanoTime();
+            decodeBinary(codec, encoded);
+            long decodeNanos = System.nanoTime() - start;
+            
+            SensorReading original = readings.get(0);
+            SensorReading decoded = codec.decode(encoded.get(0));
+            if (!original.getData().equals(decoded.getData())) {
+                throw new IllegalStateException("Round trip mismatch: " + original.getData() + " vs " + decoded.getData());
+            }
+            
+            logger.info("{} ({} fields): json {} B/msg, {} ns/op | binary {} B/msg, {} ns/op, decode {} ns/op | {}x smaller",
+                       enName, template.getFieldCount(),
+                       String.format("%.1f", (double) jsonBytes / count), jsonNanos / count,
+                       String.format("%.1f", (double) binaryBytes / count), binaryNanos / count, decodeNanos / count,
+                       String.format("%.1f", (double) jsonBytes / binaryBytes));
+        }
+    }
+    
+    /**
+     * 与 KafkaSensorSink 的JSON格式相同
+     */
+    private static long encodeJson(List<SensorReading> readings) throws Exception {
+        long bytes = 0;
+        for (SensorReading reading : readings) {
+            Map<String, Object> kafkaMessage = new HashMap<>();
+            kafkaMessage.put("deviceId", reading.getDeviceId());
+            kafkaMessage.put("deviceType", reading.getDeviceType());
+            kafkaMessage.put("timestamp", reading.getTimestamp());
+            kafkaMessage.put("data", reading.getData());
+            bytes += objectMapper.writeValueAsBytes(kafkaMessage).length;
+        }
+        sink += bytes;
+        return bytes;
+    }
+    
+    private static List<byte[]> encodeBinary(SensorReadingCodec codec, List<SensorReading> readings) {
+        List<byte[]> encoded = new ArrayList<>(readings.size());
+        for (SensorReading reading : readings) {
+            encoded.add(codec.encode(reading));
+        }
+        sink += encoded.size();
+        return encoded;
+    }
+    
+    private static void decodeBinary(SensorReadingCodec codec, List<byte[]> encoded) {
+        long timestamps = 0;
+        for (byte[] message : encoded) {
+            timestamps += codec.decode(message).getTimestamp();
+        }
+        sink += timestamps;
+    }
+}